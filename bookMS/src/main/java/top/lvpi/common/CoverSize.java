@@ -0,0 +1,58 @@
+package top.lvpi.common;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 封面图片尺寸，按最长边限制
+ */
+public enum CoverSize {
+
+    THUMB("thumb", 120), // 列表缩略图
+    DETAIL("detail", 300), // 详情页，与原有封面尺寸一致，也是默认尺寸
+    ZOOM("zoom", 800); // 放大查看
+
+    /**
+     * 尺寸代码，用于请求参数和对象名称
+     */
+    private final String code;
+
+    /**
+     * 最长边（像素）
+     */
+    private final int maxEdge;
+
+    CoverSize(String code, int maxEdge) {
+        this.code = code;
+        this.maxEdge = maxEdge;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+
+    /**
+     * 根据尺寸代码获取尺寸，为空时返回默认尺寸，无法识别时返回null
+     */
+    public static CoverSize of(String code) {
+        if (StringUtils.isBlank(code)) {
+            return DETAIL;
+        }
+        for (CoverSize size : values()) {
+            if (size.code.equalsIgnoreCase(code.trim())) {
+                return size;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 最大的尺寸，渲染PDF封面时以它为目标
+     */
+    public static CoverSize largest() {
+        return ZOOM;
+    }
+}
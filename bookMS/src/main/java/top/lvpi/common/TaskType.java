@@ -0,0 +1,63 @@
+package top.lvpi.common;
+
+/**
+ * 后台任务类型，每种类型使用独立的有界线程池
+ * <p>
+ * 默认线程数和队列容量可通过 task.executor.{code}.threads / queue-capacity 覆盖
+ */
+public enum TaskType {
+
+    EXTRACT("extract", "文本提取", 2, 20), // 单本图书PDF文本提取
+    EXCEL_IMPORT("excel-import", "Excel导入", 1, 5), // Excel批量导入图书并提取封面
+    OPAC("opac", "OPAC信息获取", 2, 50), // 单本图书OPAC信息获取
+    OPAC_BATCH("opac-batch", "批量OPAC信息获取", 1, 2), // 全部未获取OPAC信息的图书
+    EXTRACT_IMPORT_BATCH("extract-import-batch", "批量提取和导入", 1, 2), // 批量提取文本并导入ES
+    OPAC_TOPIC_BATCH("opac-topic-batch", "批量解析OPAC主题标签", 1, 2), // 批量解析OPAC主题标签
+    CATALOG_REBUILD("catalog-rebuild", "图书目录索引重建", 1, 1), // 全量重建图书目录ES索引
+    ES_REINDEX("es-reindex", "章节索引重建", 1, 1), // 全量重建章节ES索引并切换别名
+    COVER_MIGRATE("cover-migrate", "封面迁移", 1, 1), // 封面base64数据转存到MinIO
+    MD5_BACKFILL("md5-backfill", "MD5索引回填", 1, 1); // 从存储桶对象元数据回填MD5去重索引
+
+    /**
+     * 类型代码，用于配置项、线程名和Redis键
+     */
+    private final String code;
+
+    /**
+     * 类型名称，用于提示信息
+     */
+    private final String name;
+
+    /**
+     * 默认线程数
+     */
+    private final int threads;
+
+    /**
+     * 默认等待队列容量
+     */
+    private final int queueCapacity;
+
+    TaskType(String code, String name, int threads, int queueCapacity) {
+        this.code = code;
+        this.name = name;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+}
@@ -14,6 +14,7 @@ import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.elasticsearch.client.RestClient;
+import top.lvpi.utils.EsBulkIndexer;
 
 @Configuration
 @EnableElasticsearchRepositories(basePackages = "com.lvpi.repository.es")
@@ -28,6 +29,26 @@ public class ElasticsearchConfig extends ElasticsearchConfiguration {
     @Value("${spring.elasticsearch.password}")
     private String password;
 
+    // 单个bulk请求的最大文档数
+    @Value("${es.bulk.max-operations:1000}")
+    private int bulkMaxOperations;
+
+    // 单个bulk请求的最大字节数，需小于ES的http.max_content_length
+    @Value("${es.bulk.max-size-bytes:5242880}")
+    private long bulkMaxSizeBytes;
+
+    // 同时在途的bulk请求数
+    @Value("${es.bulk.max-concurrent-requests:2}")
+    private int bulkMaxConcurrentRequests;
+
+    // 失败条目的最大重试次数
+    @Value("${es.bulk.max-retries:3}")
+    private int bulkMaxRetries;
+
+    // 首次重试前的等待时间（毫秒），之后每次翻倍
+    @Value("${es.bulk.initial-backoff-ms:500}")
+    private long bulkInitialBackoffMillis;
+
     @Override
     public ClientConfiguration clientConfiguration() {
         return ClientConfiguration.builder()
@@ -65,4 +86,10 @@ public class ElasticsearchConfig extends ElasticsearchConfiguration {
         // 创建API客户端
         return new ElasticsearchClient(transport);
     }
+
+    @Bean
+    public EsBulkIndexer esBulkIndexer(ElasticsearchClient elasticsearchClient) {
+        return new EsBulkIndexer(elasticsearchClient, bulkMaxOperations, bulkMaxSizeBytes,
+            bulkMaxConcurrentRequests, bulkMaxRetries, bulkInitialBackoffMillis);
+    }
 } 
\ No newline at end of file
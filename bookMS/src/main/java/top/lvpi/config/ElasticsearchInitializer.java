@@ -9,6 +9,9 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
+import top.lvpi.common.BusinessException;
+import top.lvpi.service.BookCatalogService;
+import top.lvpi.service.EsReindexService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import cn.hutool.json.JSONObject;
@@ -20,7 +23,7 @@ import java.nio.charset.StandardCharsets;
 @Component
 public class ElasticsearchInitializer implements CommandLineRunner {
 
-    private static final String BOOKS_INDEX = "books";
+    private static final String BOOKS_INDEX = EsReindexService.BOOKS_ALIAS;
 //    private static final String TOPICS_INDEX = "topics";
     private static final int MAX_RETRIES = 30;
     private static final long RETRY_DELAY = 2000; // 2 seconds
@@ -28,6 +31,12 @@ public class ElasticsearchInitializer implements CommandLineRunner {
     @Autowired
     private ElasticsearchClient elasticsearchClient;
 
+    @Autowired
+    private EsReindexService esReindexService;
+
+    @Autowired
+    private BookCatalogService bookCatalogService;
+
     private final ResourceLoader resourceLoader;
     private final ObjectMapper objectMapper;
 
@@ -40,6 +49,14 @@ public class ElasticsearchInitializer implements CommandLineRunner {
     public void run(String... args) {
         initializeIndex(BOOKS_INDEX, "es/books-mapping.json");
 //        initializeIndex(TOPICS_INDEX, "es/topics-mapping.json");
+        try {
+            // 章节索引初始化成功说明ES已可用，图书目录索引不存在时创建并在后台写入
+            bookCatalogService.initIndex();
+        } catch (Exception e) {
+            // 搜索在目录索引不可用时退回MySQL，不影响启动
+            log.error("Failed to initialize book catalog index {}, call POST /book/catalog/rebuild to retry",
+                BookCatalogService.CATALOG_ALIAS, e);
+        }
     }
 
     private void initializeIndex(String indexName, String mappingFile) {
@@ -52,61 +69,34 @@ public class ElasticsearchInitializer implements CommandLineRunner {
                 JsonNode expectedMapping = objectMapper.readTree(mappingJson);
                 JSONObject expectedMappings = JSONUtil.parseObj(expectedMapping.get("mappings").toString());
 
+                // books 为别名时，检查其指向的版本索引
+                String currentIndex = esReindexService.getCurrentIndex();
+                if (currentIndex != null) {
+                    if (mappingMatches(currentIndex, expectedMappings)) {
+                        log.info("Index {} (alias {}) exists and mapping is up to date", currentIndex, indexName);
+                        return;
+                    }
+                    // 不删除旧索引，后台构建新版本索引后切换别名，期间旧索引继续提供搜索
+                    log.info("Index {} (alias {}) exists but mapping is different, rebuilding in background", currentIndex, indexName);
+                    startReindex("索引映射变更");
+                    return;
+                }
+
                 // 检查索引是否存在
                 boolean indexExists = elasticsearchClient.indices()
                     .exists(ExistsRequest.of(e -> e.index(indexName)))
                     .value();
 
                 if (indexExists) {
-                    // 获取现有索引的映射
-                    GetIndexResponse getIndexResponse = elasticsearchClient.indices().get(
-                        GetIndexRequest.of(g -> g.index(indexName))
-                    );
-                    
-                    // 获取索引状态并进行空检查
-                    IndexState indexState = getIndexResponse.get(indexName);
-                    if (indexState == null) {
-                        log.info("Index state for {} is null, recreating index", indexName);
-                        deleteAndRecreateIndex(indexName, mappingJson);
-                        return;
-                    }
-                    
-                    // 获取映射并进行空检查
-                    TypeMapping mappings = indexState.mappings();
-                    if (mappings == null) {
-                        log.info("Mappings for index {} are null, recreating index", indexName);
-                        deleteAndRecreateIndex(indexName, mappingJson);
-                        return;
-                    }
-                    
-                    // 转换映射为JSON对象进行比较
-                    String currentMappingStr = mappings.toString();
-                    JSONObject currentMappingJson = JSONUtil.parseObj(currentMappingStr.replace("TypeMapping: ", ""));
-                    
-                    // 比较映射结构
-                    if (expectedMappings.equals(currentMappingJson)) {
-                        log.info("Index {} exists and mapping is up to date", indexName);
-                        return;
-                    }
-
-                    log.info("Index {} exists but mapping is different, recreating index", indexName);
-                    deleteAndRecreateIndex(indexName, mappingJson);
+                    // 旧版本部署的实体索引，迁移到版本索引+别名，迁移完成前继续使用原索引
+                    log.info("Index {} is a concrete index, migrating to versioned index behind alias in background", indexName);
+                    startReindex("迁移为版本索引");
                     return;
                 }
 
-                // 创建索引
-                CreateIndexResponse response = elasticsearchClient.indices()
-                    .create(c -> c
-                        .index(indexName)
-                        .withJson(new java.io.StringReader(mappingJson))
-                    );
-
-                if (response.acknowledged()) {
-                    log.info("Successfully created index {}", indexName);
-                    return;
-                } else {
-                    log.error("Failed to create index {}", indexName);
-                }
+                // 全新部署，创建第一个版本索引并挂上别名
+                esReindexService.createInitialIndex();
+                return;
             } catch (Exception e) {
                 retryCount++;
                 if (retryCount < MAX_RETRIES) {
@@ -127,27 +117,32 @@ public class ElasticsearchInitializer implements CommandLineRunner {
         }
     }
     
-    private void deleteAndRecreateIndex(String indexName, String mappingJson) throws Exception {
-        // 删除索引
-        DeleteIndexResponse deleteResponse = elasticsearchClient.indices()
-            .delete(DeleteIndexRequest.of(d -> d.index(indexName)));
-        
-        if (!deleteResponse.acknowledged()) {
-            throw new RuntimeException("Failed to delete existing index " + indexName);
+    private void startReindex(String reason) {
+        try {
+            esReindexService.startReindex(reason);
+        } catch (BusinessException e) {
+            // 多节点同时启动时只有一个节点执行重建
+            log.info("Reindex of {} not started: {}", BOOKS_INDEX, e.getMessage());
         }
+    }
+
+    private boolean mappingMatches(String indexName, JSONObject expectedMappings) throws Exception {
+        // 获取现有索引的映射
+        GetIndexResponse getIndexResponse = elasticsearchClient.indices().get(
+            GetIndexRequest.of(g -> g.index(indexName))
+        );
         
-        // 创建索引
-        CreateIndexResponse response = elasticsearchClient.indices()
-            .create(c -> c
-                .index(indexName)
-                .withJson(new java.io.StringReader(mappingJson))
-            );
-
-        if (response.acknowledged()) {
-            log.info("Successfully recreated index {}", indexName);
-        } else {
-            log.error("Failed to recreate index {}", indexName);
-            throw new RuntimeException("Failed to recreate index " + indexName);
+        // 获取索引状态并进行空检查
+        IndexState indexState = getIndexResponse.get(indexName);
+        if (indexState == null || indexState.mappings() == null) {
+            log.info("Mappings for index {} are null", indexName);
+            return false;
         }
+        
+        // 转换映射为JSON对象进行比较
+        TypeMapping mappings = indexState.mappings();
+        String currentMappingStr = mappings.toString();
+        JSONObject currentMappingJson = JSONUtil.parseObj(currentMappingStr.replace("TypeMapping: ", ""));
+        return expectedMappings.equals(currentMappingJson);
     }
 }
@@ -0,0 +1,31 @@
+package top.lvpi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import top.lvpi.utils.ParallelPdfExtractor;
+
+@Configuration
+public class PdfExtractConfig {
+
+    // 并行提取线程数，0 表示使用CPU核数，可按节点单独配置
+    @Value("${pdf.extract.parallelism:0}")
+    private int parallelism;
+
+    // 每个提取任务负责的页数
+    @Value("${pdf.extract.pages-per-range:50}")
+    private int pagesPerRange;
+
+    // 等待执行的任务队列容量
+    @Value("${pdf.extract.queue-capacity:64}")
+    private int queueCapacity;
+
+    // 每个打开的PDF文档最多占用的堆内存（字节），超出部分写入临时scratch文件
+    @Value("${pdf.extract.max-main-memory-bytes:16777216}")
+    private long maxMainMemoryBytes;
+
+    @Bean(destroyMethod = "shutdown")
+    public ParallelPdfExtractor parallelPdfExtractor() {
+        return new ParallelPdfExtractor(parallelism, pagesPerRange, queueCapacity, maxMainMemoryBytes);
+    }
+}
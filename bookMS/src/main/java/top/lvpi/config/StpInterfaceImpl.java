@@ -1,8 +1,8 @@
 package top.lvpi.config;
 
 import cn.dev33.satoken.stp.StpInterface;
-import top.lvpi.model.entity.User;
-import top.lvpi.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import top.lvpi.service.UserRoleCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -13,32 +13,23 @@ import java.util.List;
  * 自定义权限验证接口扩展
  */
 @Component
+@Slf4j
 public class StpInterfaceImpl implements StpInterface {
     
     @Autowired
-    private UserMapper userMapper;
+    private UserRoleCacheService userRoleCacheService;
 
     /**
-     * 返回一个用户所拥有的角色标识列表
+     * 返回一个用户所拥有的角色标识列表，按登录ID缓存
      */
     @Override
     public List<String> getRoleList(Object loginId, String loginType) {
-        List<String> roles = new ArrayList<>();
         try {
-            User user = userMapper.selectById(Long.parseLong(loginId.toString()));
-            if (user != null) {
-                // 添加用户角色
-                roles.add(user.getUserRole());
-                // 如果是管理员，添加admin角色
-                if ("admin".equals(user.getUserRole())) {
-                    roles.add("admin");
-                }
-            }
+            return userRoleCacheService.getRoleList(Long.parseLong(loginId.toString()));
         } catch (Exception e) {
-            // 处理异常情况
-            e.printStackTrace();
+            log.error("获取用户角色失败，loginId: {}", loginId, e);
+            return new ArrayList<>();
         }
-        return roles;
     }
 
     /**
@@ -1,43 +1,52 @@
 package top.lvpi.controller;
 
+import cn.hutool.core.collection.CollUtil;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import top.lvpi.common.BaseResponse;
 import top.lvpi.common.BusinessException;
+import top.lvpi.common.CoverSize;
 import top.lvpi.common.ErrorCode;
+import top.lvpi.common.TaskType;
+import top.lvpi.model.dto.book.BookFacetSearchRequest;
+import top.lvpi.model.dto.book.BookFacetSearchResult;
 import top.lvpi.model.dto.book.BookAddRequest;
 import top.lvpi.model.dto.book.BookQueryRequest;
 import top.lvpi.model.dto.book.BookUpdateRequest;
 import top.lvpi.model.entity.Book;
+import top.lvpi.model.entity.Img;
 import top.lvpi.model.entity.LpFile;
 import top.lvpi.model.vo.BookVO;
+import top.lvpi.service.BookCatalogService;
 import top.lvpi.service.BookService;
 import top.lvpi.service.FileService;
 import top.lvpi.service.PdfService;
+import top.lvpi.utils.ImageUtils;
 import top.lvpi.utils.PDFUtils;
 
-import cn.hutool.core.lang.UUID;
 
 import top.lvpi.service.ImgService;
 import top.lvpi.service.LpFileService;
 import top.lvpi.model.dto.file.LpBookFileDTO;
+import top.lvpi.model.dto.file.FileStat;
 import top.lvpi.model.dto.file.FileUploadResult;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.scheduling.annotation.EnableAsync;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 
 import java.net.URLEncoder;
 import java.util.Map;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
@@ -45,7 +54,9 @@ import java.util.Arrays;
 
 import top.lvpi.model.dto.task.TaskProgress;
 import top.lvpi.service.BookFileService;
-import top.lvpi.service.BookSectionEsService;
+import top.lvpi.service.TaskService;
+import top.lvpi.service.BookExtractPipelineService;
+import top.lvpi.service.OpacHarvestService;
 
 @Tag(name = "图书管理", description = "图书相关接口")
 @RestController
@@ -70,14 +81,49 @@ public class BookController {
     private LpFileService lpFileService;
 
     @Autowired
-    private BookSectionEsService bookSectionEsService;
+    private BookFileService bookFileService;
 
     @Autowired
-    private BookFileService bookFileService;
+    private TaskService taskService;
 
-    // 修改为存储TaskProgress的映射
-    private final ConcurrentHashMap<String, TaskProgress> taskProgressMap = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, CompletableFuture<String>> taskResults = new ConcurrentHashMap<>();
+    @Autowired
+    private BookCatalogService bookCatalogService;
+
+    @Autowired
+    private BookExtractPipelineService bookExtractPipelineService;
+
+    @Autowired
+    private OpacHarvestService opacHarvestService;
+
+    /**
+     * 下载默认是否重定向到MinIO预签名地址
+     */
+    @Value("${file.download.redirect:false}")
+    private boolean downloadRedirect;
+
+    /**
+     * 重定向时预签名地址的前缀，对应nginx中代理MinIO的路径
+     */
+    @Value("${file.download.redirect-prefix:/api3/}")
+    private String downloadRedirectPrefix;
+
+    /**
+     * 按图书ID获取封面时的缓存时间（秒）
+     */
+    @Value("${cover.book-max-age-seconds:3600}")
+    private long coverBookMaxAge;
+
+    /**
+     * 按图片ID获取封面时的缓存时间（秒）
+     */
+    @Value("${cover.img-max-age-seconds:31536000}")
+    private long coverImgMaxAge;
+
+    /**
+     * 批量解析OPAC主题标签时每批的图书数
+     */
+    @Value("${topic.parse.batch-size:200}")
+    private int topicParseBatchSize;
 
     @Operation(summary = "添加图书", description = "添加新图书")
     @PostMapping("/add")
@@ -266,6 +312,16 @@ public class BookController {
         }
     }
 
+    @Operation(summary = "分面搜索", description = "一次请求返回图书、命中总数以及分类、出版社、出版年份和各级主题的分面统计")
+    @GetMapping("/search/faceted")
+    public BaseResponse<BookFacetSearchResult> facetSearch(BookFacetSearchRequest request) {
+        try {
+            return BaseResponse.success(bookService.facetSearch(request));
+        } catch (BusinessException e) {
+            return BaseResponse.error(e.getCode(), e.getMessage());
+        }
+    }
+
     @Operation(summary = "统计图书数量", description = "根据查询条件统计图书数量")
     @GetMapping("/count")
     public BaseResponse<Long> countBooks(BookQueryRequest bookQueryRequest) {
@@ -331,18 +387,13 @@ public class BookController {
         lpFile.setFileOriginalName(file.getOriginalFilename());
         lpFile.setFileSize(file.getSize());
         lpFile.setFileSuffix(file.getOriginalFilename().substring(file.getOriginalFilename().lastIndexOf(".")));
-        try {
-            lpFile.setFileMd5(DigestUtils.md5Hex(file.getBytes()));
-        } catch (IOException e) {
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "文件md5计算失败");
-        }
-
         try {
             // 上传文件
             FileUploadResult result = fileService.uploadFile(file);
             
-            // 更新文件信息
+            // 更新文件信息，MD5在上传时已随写入一并计算
             lpFile.setFileName(result.getFileName());
+            lpFile.setFileMd5(result.getMd5());
 
             // 保存文件信息
             try {
@@ -420,10 +471,123 @@ public class BookController {
         }
     }
     
-    @Operation(summary = "下载图书", description = "根据文件路径下载图书")
+    @Operation(summary = "获取图书封面图片", description = "直接返回图书封面图片，支持ETag缓存校验")
+    @GetMapping("/cover/{id}/image")
+    public void getBookCoverImage(
+            @Parameter(description = "图书ID") @PathVariable("id") Long id,
+            @Parameter(description = "封面尺寸：thumb-列表缩略图，detail-详情（默认），zoom-放大") @RequestParam(required = false) String size,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        if (id == null || id <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "图书ID不合法");
+        }
+        // 图书的封面可能被替换，缓存后需要重新校验
+        writeCoverImage(imgService.getImageMetaByBookId(id), parseCoverSize(size), "public, max-age=" + coverBookMaxAge, request, response);
+    }
+
+    @Operation(summary = "获取图书封面图片-图片ID", description = "通过图片ID直接返回封面图片，内容不会变化，可长期缓存")
+    @GetMapping("/cover/img/{imgId}/image")
+    public void getBookCoverImageByImgId(
+            @Parameter(description = "图片ID") @PathVariable("imgId") Long imgId,
+            @Parameter(description = "封面尺寸：thumb-列表缩略图，detail-详情（默认），zoom-放大") @RequestParam(required = false) String size,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        if (imgId == null || imgId <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "图片ID不合法");
+        }
+        // 替换封面时会生成新的图片ID，同一图片ID的内容不变
+        writeCoverImage(imgService.getImageMeta(imgId), parseCoverSize(size), "public, max-age=" + coverImgMaxAge + ", immutable", request, response);
+    }
+
+    @Operation(summary = "迁移封面图片", description = "后台将数据库中的base64封面分批转存到MinIO")
+    @PostMapping("/cover/migrate")
+    public BaseResponse<TaskProgress> migrateCovers() {
+        return BaseResponse.success(imgService.startMigration());
+    }
+
+    @Operation(summary = "获取封面迁移状态")
+    @GetMapping("/cover/migrate/status/{taskId}")
+    public BaseResponse<TaskProgress> getCoverMigrationStatus(@PathVariable("taskId") String taskId) {
+        return getTaskStatus(taskId);
+    }
+
+    @Operation(summary = "重建图书目录索引", description = "后台从MySQL全量重建ES图书目录索引，完成后切换别名")
+    @PostMapping("/catalog/rebuild")
+    public BaseResponse<TaskProgress> rebuildCatalog() {
+        return BaseResponse.success(bookCatalogService.startRebuild());
+    }
+
+    @Operation(summary = "获取图书目录索引重建状态")
+    @GetMapping("/catalog/rebuild/status/{taskId}")
+    public BaseResponse<TaskProgress> getCatalogRebuildStatus(@PathVariable("taskId") String taskId) {
+        return getTaskStatus(taskId);
+    }
+
+    private CoverSize parseCoverSize(String size) {
+        CoverSize coverSize = CoverSize.of(size);
+        if (coverSize == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的封面尺寸: " + size);
+        }
+        return coverSize;
+    }
+
+    private void writeCoverImage(Img img, CoverSize size, String cacheControl, HttpServletRequest request, HttpServletResponse response) {
+        if (img == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书封面不存在");
+        }
+        try {
+            // 请求的尺寸未生成时（如旧封面）返回默认尺寸
+            CoverSize actualSize = imgService.resolveSize(img, size);
+            byte[] imageBytes = null;
+            String etagValue = img.getImgEtag();
+            if (etagValue != null && actualSize != CoverSize.DETAIL) {
+                // 各尺寸由同一张原图生成，以默认尺寸的MD5加尺寸代码区分
+                etagValue = etagValue + "-" + actualSize.getCode();
+            }
+            if (etagValue == null) {
+                // 尚未迁移的旧数据没有保存ETag，读取内容后计算
+                imageBytes = imgService.getImageBytes(img, actualSize);
+                if (imageBytes == null) {
+                    throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书封面不存在");
+                }
+                etagValue = DigestUtils.md5Hex(imageBytes);
+            }
+            String etag = "\"" + etagValue + "\"";
+            response.setHeader("ETag", etag);
+            response.setHeader("Cache-Control", cacheControl);
+            if (etagMatches(request.getHeader("If-None-Match"), etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            if (imageBytes == null) {
+                imageBytes = imgService.getImageBytes(img, actualSize);
+                if (imageBytes == null) {
+                    throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书封面不存在");
+                }
+            }
+            response.setContentType(actualSize == CoverSize.DETAIL && img.getContentType() != null
+                    ? img.getContentType() : ImageUtils.detectContentType(imageBytes));
+            response.setContentLength(imageBytes.length);
+            response.getOutputStream().write(imageBytes);
+        } catch (BusinessException e) {
+            throw e;
+        } catch (IOException e) {
+            if (response.isCommitted()) {
+                log.warn("输出封面图片{}中断: {}", img.getId(), e.getMessage());
+                return;
+            }
+            log.error("读取封面图片失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取封面图片失败");
+        }
+    }
+    
+    @Operation(summary = "下载图书", description = "根据文件路径下载图书，支持Range断点续传和ETag缓存校验")
     @GetMapping("/download/{id}")
     public void downloadBook(
             @Parameter(description = "图书ID") @PathVariable("id") Long id,
+            @Parameter(description = "是否重定向到MinIO预签名地址，不传时使用配置") @RequestParam(required = false) Boolean redirect,
+            HttpServletRequest request,
             HttpServletResponse response) {
         if (id == null || id <= 0) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "图书ID不合法");
@@ -441,21 +605,137 @@ public class BookController {
             }
             // 获取文件名
             String fileName = lpFile.getFileName();
-            
+
+            // 重定向模式：由MinIO直接返回文件内容，不经过应用服务器
+            if (redirect != null ? redirect : downloadRedirect) {
+                response.sendRedirect(downloadRedirectPrefix + fileService.getPreviewUrl(fileName));
+                return;
+            }
+
+            FileStat stat = fileService.statFile(fileName);
+            String etag = "\"" + stat.getEtag() + "\"";
+            response.setHeader("ETag", etag);
+            response.setHeader("Accept-Ranges", "bytes");
+            response.setDateHeader("Last-Modified", stat.getLastModified());
+
+            // 客户端缓存的文件未变化
+            if (etagMatches(request.getHeader("If-None-Match"), etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
             // 设置响应头
             response.setContentType("application/pdf");
             response.setHeader("Content-Disposition", 
                 "attachment; filename=" + URLEncoder.encode(fileName, "UTF-8"));
-            
-            // 获取文件流并写入响应
-            fileService.downloadFile(fileName, response.getOutputStream());
+
+            long size = stat.getSize();
+            long start = 0;
+            long end = size - 1;
+            String range = request.getHeader("Range");
+            String ifRange = request.getHeader("If-Range");
+            // If-Range与当前ETag不一致说明文件已变化，返回完整文件
+            if (range != null && (ifRange == null || ifRange.equals(etag))) {
+                long[] bounds = parseRange(range, size);
+                if (bounds != null && bounds.length == 0) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader("Content-Range", "bytes */" + size);
+                    return;
+                }
+                if (bounds != null) {
+                    start = bounds[0];
+                    end = bounds[1];
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + size);
+                }
+            }
+            response.setContentLengthLong(end - start + 1);
+            if (end >= start) {
+                // 按区间从MinIO读取并写入响应
+                fileService.downloadFile(fileName, start, end - start + 1, response.getOutputStream());
+            }
         } catch (BusinessException e) {
             throw e;
+        } catch (IOException e) {
+            if (response.isCommitted()) {
+                // 已开始输出，多为客户端中断（如阅读器取消区间请求）
+                log.warn("下载图书{}中断: {}", id, e.getMessage());
+                return;
+            }
+            log.error("下载文件失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "下载文件失败");
         } catch (Exception e) {
             log.error("下载文件失败", e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "下载文件失败");
         }
     }
+
+    /**
+     * If-None-Match 是否命中当前ETag，弱校验
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析单个字节区间 bytes=start-end / bytes=start- / bytes=-suffix
+     * @return [start, end]；格式无效（如 last 小于 first）或不支持（如多区间）时返回null，按RFC 7233忽略Range返回完整文件；
+     *         格式正确但起点不小于文件大小时返回空数组
+     */
+    private static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // 后缀区间：最后N个字节
+                long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    return null;
+                }
+                if (suffix == 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                long lastPos = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                if (start < 0 || lastPos < start) {
+                    // 语法上无效的区间，忽略Range
+                    return null;
+                }
+                end = Math.min(lastPos, size - 1);
+            }
+            if (start >= size) {
+                return new long[0];
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
     
 
     @Operation(summary = "提取文本", description = "提取PDF文件中的文本内容")
@@ -471,118 +751,69 @@ public class BookController {
             return BaseResponse.error(ErrorCode.OPERATION_ERROR, "该PDF文件已进行过文本提取");
         }
 
-        // 检查是否有正在进行中的任务
-        for (TaskProgress progress : taskProgressMap.values()) {
-            if (progress.getStatus() == 0) {
-                try {
-                    Book book = bookService.getBookById(id);
-                    if (book != null && StringUtils.isNotBlank(book.getFileName())) {
-                        return BaseResponse.error(ErrorCode.OPERATION_ERROR, "该PDF文件正在进行文本提取，请稍后再试");
-                    }
-                } catch (BusinessException e) {
-                    log.error("检查任务状态时发生错误", e);
-                }
+        // 提交到该类型任务的线程池，队列已满或同一任务正在执行时抛出业务异常
+        TaskProgress task = taskService.submit(TaskType.EXTRACT, String.valueOf(id), "初始化任务", taskProgress -> {
+            LpBookFileDTO lpBookFileDTO = bookFileService.getBookFilesNoDeleteByBookId(id);   
+            if (lpBookFileDTO == null) {
+                throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书文件不存在");
             }
-        }
-
-        // 生成唯一的任务ID
-        String taskId = UUID.randomUUID().toString();
-        
-        // 初始化任务进度
-        TaskProgress taskProgress = new TaskProgress()
-            .setTaskId(taskId)
-            .setStatus(0)
-            .setProgress(0)
-            .setCurrentStep("初始化任务");
-        taskProgressMap.put(taskId, taskProgress);
-        
-        // 提交异步任务
-        CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
-            try {
 
+            LpFile lpFile = lpFileService.getById(lpBookFileDTO.getFileId());
+            if (lpFile == null) {
+                throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+            }
+            
 
-                LpBookFileDTO lpBookFileDTO = bookFileService.getBookFilesNoDeleteByBookId(id);   
-                if (lpBookFileDTO == null) {
-                    throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书文件不存在");
-                }
-
-                LpFile lpFile = lpFileService.getById(lpBookFileDTO.getFileId());
-                if (lpFile == null) {
-                    throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
-                }
-                
-
-                // 更新进度：检查封面
-                taskProgress.setProgress(10)
-                    .setCurrentStep("检查图书封面");
-                
-                Book book = bookService.getBookById(id);
-                // 检查是否需要提取封面
-                if (StringUtils.isBlank(book.getPicUrl())) {
-                    taskProgress.setCurrentStep("提取PDF封面");
-                    try {
-                        // 获取PDF文件输入流
-                        InputStream pdfStream = fileService.getFileInputStream(lpFile.getFileName());
-                        // 提取PDF首页为图片
-                        String base64Image = PDFUtils.exportPageToImage(pdfStream);
-                        // 保存图片到数据库
-                        Long imgId = imgService.saveImage(base64Image, id);
-                        // 更新图书封面URL
-                        BookUpdateRequest updateRequest = new BookUpdateRequest();
-                        updateRequest.setId(id);
-                        updateRequest.setPicUrl("img/" + imgId);
-                        bookService.updateBook(updateRequest);
-                        pdfStream.close();
-                    } catch (Exception e) {
-                        log.error("提取PDF封面失败", e);
-                    }
+            // 更新进度：检查封面
+            taskProgress.setProgress(10)
+                .setCurrentStep("检查图书封面");
+            
+            Book book = bookService.getBookById(id);
+            // 检查是否需要提取封面
+            if (StringUtils.isBlank(book.getPicUrl())) {
+                taskProgress.setCurrentStep("提取PDF封面");
+                try {
+                    // 获取PDF文件输入流
+                    InputStream pdfStream = fileService.getFileInputStream(lpFile.getFileName());
+                    // 渲染PDF首页，生成各尺寸封面
+                    BufferedImage coverImage = PDFUtils.renderCover(pdfStream, CoverSize.largest().getMaxEdge());
+                    Long imgId = imgService.saveCover(coverImage, id);
+                    // 更新图书封面URL
+                    BookUpdateRequest updateRequest = new BookUpdateRequest();
+                    updateRequest.setId(id);
+                    updateRequest.setPicUrl("img/" + imgId);
+                    bookService.updateBook(updateRequest);
+                    pdfStream.close();
+                } catch (Exception e) {
+                    log.error("提取PDF封面失败", e);
                 }
+            }
 
-                // 更新进度：开始文本提取
-                taskProgress.setProgress(30)
-                    .setCurrentStep("正在提取PDF文本内容...");
+            // 更新进度：开始文本提取
+            taskProgress.setProgress(30)
+                .setCurrentStep("正在提取PDF文本内容...");
 
-                // 执行文本提取
-                String result = pdfService.extractText(lpFile.getFileName(), id, book.getTitle());
+            // 执行文本提取
+            String result = pdfService.extractText(lpFile.getFileName(), id, book.getTitle());
 
-                // 更新任务完成状态
-                taskProgress.setStatus(1)
-                    .setProgress(100)
-                    .setCurrentStep("文本提取完成")
-                    //返回图书id、名称、文件名
-                    .setResult(id + "," + book.getTitle() + "," + lpFile.getFileName());
+            // 更新任务完成状态
+            taskProgress.setStatus(1)
+                .setProgress(100)
+                .setCurrentStep("文本提取完成")
+                //返回图书id、名称、文件名
+                .setResult(id + "," + book.getTitle() + "," + lpFile.getFileName());
 
-                return result;
-            } catch (BusinessException e) {
-                // 更新任务失败状态
-                taskProgress.setStatus(2)
-                    .setErrorMessage(e.getMessage());
-                throw new RuntimeException(e);
-            }
+            return result;
         });
 
-        // 将任务结果存储到映射中
-        taskResults.put(taskId, future);
-
         // 返回任务ID
-        return BaseResponse.success(20001,"任务已开始，任务ID:" + taskId);
+        return BaseResponse.success(20001,"任务已开始，任务ID:" + task.getTaskId());
     }
 
     @Operation(summary = "查询提取结果", description = "根据任务ID查询提取结果")
     @GetMapping("/extract/result/{taskId}")
     public BaseResponse<TaskProgress> getExtractResult(@PathVariable("taskId") String taskId) {
-        TaskProgress progress = taskProgressMap.get(taskId);
-        if (progress == null) {
-            return BaseResponse.error(ErrorCode.NOT_FOUND_ERROR, "任务ID不存在");
-        }
-
-        // 如果任务已完成，从映射中移除
-        if (progress.getStatus() != 0) {
-            taskProgressMap.remove(taskId);
-            taskResults.remove(taskId);
-        }
-
-        return BaseResponse.success(progress);
+        return getTaskStatus(taskId);
     }
 
     @Operation(summary = "获取文件预览地址--图书id", description = "通过图书id获取预览地址")
@@ -642,110 +873,79 @@ public class BookController {
             return BaseResponse.error(ErrorCode.PARAMS_ERROR, "只支持Excel文件(.xlsx或.xls)");
         }
 
+        byte[] fileContent;
         try {
-            byte[] fileContent = file.getBytes();
-            String taskId = UUID.randomUUID().toString();
+            fileContent = file.getBytes();
+        } catch (IOException e) {
+            log.error("读取文件失败", e);
+            return BaseResponse.error(ErrorCode.SYSTEM_ERROR, "读取文件失败：" + e.getMessage());
+        }
+
+        TaskProgress task = taskService.submit(TaskType.EXCEL_IMPORT, null, "开始导入Excel文件", taskProgress -> {
+            // 更新进度：导入基本信息
+            taskProgress.setProgress(20)
+                .setCurrentStep("导入图书基本信息");
+            String importResult = bookService.importBooksFromExcel(fileContent, fileName);
             
-            // 初始化任务进度
-            TaskProgress taskProgress = new TaskProgress()
-                .setTaskId(taskId)
-                .setStatus(0)
-                .setProgress(0)
-                .setCurrentStep("开始导入Excel文件");
-            taskProgressMap.put(taskId, taskProgress);
+            // 更新进度：处理封面
+            taskProgress.setProgress(50)
+                .setCurrentStep("获取需要处理封面的图书列表");
+            List<Book> booksWithoutCover = bookService.getBooksWithoutCover();
             
-            CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    // 更新进度：导入基本信息
-                    taskProgress.setProgress(20)
-                        .setCurrentStep("导入图书基本信息");
-                    String importResult = bookService.importBooksFromExcel(fileContent, fileName);
-                    
-                    // 更新进度：处理封面
-                    taskProgress.setProgress(50)
-                        .setCurrentStep("获取需要处理封面的图书列表");
-                    List<Book> booksWithoutCover = bookService.getBooksWithoutCover();
-                    
-                    int total = booksWithoutCover.size();
-                    int current = 0;
-                    
-                    // 处理每本书的封面
-                    for (Book book : booksWithoutCover) {
-                        current++;
-                        int progress = 50 + (current * 50 / total);
-                        taskProgress.setProgress(progress)
-                            .setCurrentStep(String.format("正在处理第%d/%d本图书的封面", current, total));
-                        
-                        //根据图书id获取file信息
-                        LpBookFileDTO lpBookFileDTO = bookFileService.getBookFilesNoDeleteByBookId(book.getId());
-                        if (lpBookFileDTO == null) {
-                            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书文件不存在");
-                        }
+            int total = booksWithoutCover.size();
+            int current = 0;
+            
+            // 处理每本书的封面
+            for (Book book : booksWithoutCover) {
+                current++;
+                int progress = 50 + (current * 50 / total);
+                taskProgress.setProgress(progress)
+                    .setCurrentStep(String.format("正在处理第%d/%d本图书的封面", current, total));
+                
+                //根据图书id获取file信息
+                LpBookFileDTO lpBookFileDTO = bookFileService.getBookFilesNoDeleteByBookId(book.getId());
+                if (lpBookFileDTO == null) {
+                    throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书文件不存在");
+                }
 
-                        LpFile lpFile = lpFileService.getById(lpBookFileDTO.getFileId());
-                        if (lpFile == null) {
-                            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
-                        }
+                LpFile lpFile = lpFileService.getById(lpBookFileDTO.getFileId());
+                if (lpFile == null) {
+                    throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+                }
 
-                        //获取文件流
-                        InputStream pdfStream = fileService.getFileInputStream(lpFile.getFileName());
-                        
-                        try {
-                            String base64Image = PDFUtils.exportPageToImage(pdfStream);
-                            Long imgId = imgService.saveImage(base64Image, book.getId());
-                            BookUpdateRequest updateRequest = new BookUpdateRequest();
-                            updateRequest.setId(book.getId());
-                            updateRequest.setPicUrl("img/" + imgId);
-                            bookService.updateBook(updateRequest);
-                            pdfStream.close();
-                        } catch (Exception e) {
-                            log.error("提取PDF封面失败，图书ID:" + book.getId(), e);
-                        }
-                        
-                    }
-                    
-                    // 更新任务完成状态
-                    String result = importResult + "\n封面提取完成，成功处理 " + total + " 本图书";
-                    taskProgress.setStatus(1)
-                        .setProgress(100)
-                        .setCurrentStep("导入完成")
-                        .setResult(result);
-                    
-                    return result;
-                } catch (BusinessException e) {
-                    // 更新任务失败状态
-                    taskProgress.setStatus(2)
-                        .setErrorMessage(e.getMessage());
-                    throw new RuntimeException(e);
-                } catch (IOException e1) {
-                    log.error("读取文件失败", e1);
-                    throw new RuntimeException(e1);
+                //获取文件流
+                InputStream pdfStream = fileService.getFileInputStream(lpFile.getFileName());
+                
+                try {
+                    BufferedImage coverImage = PDFUtils.renderCover(pdfStream, CoverSize.largest().getMaxEdge());
+                    Long imgId = imgService.saveCover(coverImage, book.getId());
+                    BookUpdateRequest updateRequest = new BookUpdateRequest();
+                    updateRequest.setId(book.getId());
+                    updateRequest.setPicUrl("img/" + imgId);
+                    bookService.updateBook(updateRequest);
+                    pdfStream.close();
+                } catch (Exception e) {
+                    log.error("提取PDF封面失败，图书ID:" + book.getId(), e);
                 }
-            });
+                
+            }
             
-            taskResults.put(taskId, future);
-            return BaseResponse.success(20001, "任务已开始，任务ID:" + taskId);
-        } catch (IOException e) {
-            log.error("读取文件失败", e);
-            return BaseResponse.error(ErrorCode.SYSTEM_ERROR, "读取文件失败：" + e.getMessage());
-        }
+            // 更新任务完成状态
+            String result = importResult + "\n封面提取完成，成功处理 " + total + " 本图书";
+            taskProgress.setStatus(1)
+                .setProgress(100)
+                .setCurrentStep("导入完成")
+                .setResult(result);
+            
+            return result;
+        });
+        return BaseResponse.success(20001, "任务已开始，任务ID:" + task.getTaskId());
     }
 
     @Operation(summary = "查询导入任务状态", description = "根据任务ID查询导入任务的执行状态")
     @GetMapping("/import/status/{taskId}")
     public BaseResponse<TaskProgress> getImportStatus(@PathVariable("taskId") String taskId) {
-        TaskProgress progress = taskProgressMap.get(taskId);
-        if (progress == null) {
-            return BaseResponse.error(ErrorCode.NOT_FOUND_ERROR, "任务ID不存在");
-        }
-
-        // 如果任务已完成，从映射中移除
-        if (progress.getStatus() != 0) {
-            taskProgressMap.remove(taskId);
-            taskResults.remove(taskId);
-        }
-
-        return BaseResponse.success(progress);
+        return getTaskStatus(taskId);
     }
 
     @Operation(summary = "获取图书OPAC信息", description = "根据ISBN获取图书OPAC信息")
@@ -771,397 +971,184 @@ public class BookController {
             return BaseResponse.error(ErrorCode.OPERATION_ERROR, "该文件不是书籍，无法获取OPAC信息");
         }
 
-        // 生成唯一的任务ID
-        String taskId = UUID.randomUUID().toString();
-        
-        // 初始化任务进度
-        TaskProgress taskProgress = new TaskProgress()
-            .setTaskId(taskId)
-            .setStatus(0)
-            .setProgress(0)
-            .setCurrentStep("初始化OPAC信息获取任务");
-        taskProgressMap.put(taskId, taskProgress);
-        
-        // 提交异步任务
-        CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
-            try {
-                // 更新进度：开始获取OPAC信息
-                taskProgress.setProgress(30)
-                    .setCurrentStep("正在获取OPAC信息");
-                
-                String result = bookService.getAndSaveOpacInfo(id);
-                
-                // 更新任务完成状态
-                taskProgress.setStatus(1)
-                    .setProgress(100)
-                    .setCurrentStep("OPAC信息获取完成")
-                    .setResult(result);
-                
-                return result;
-            } catch (BusinessException e) {
-                // 更新任务失败状态
-                taskProgress.setStatus(2)
-                    .setErrorMessage(e.getMessage());
-                throw new RuntimeException(e);
-            }
+        // 提交到该类型任务的线程池，队列已满或同一任务正在执行时抛出业务异常
+        TaskProgress task = taskService.submit(TaskType.OPAC, String.valueOf(id), "初始化OPAC信息获取任务", taskProgress -> {
+            // 更新进度：开始获取OPAC信息
+            taskProgress.setProgress(30)
+                .setCurrentStep("正在获取OPAC信息");
+            
+            String result = bookService.getAndSaveOpacInfo(id);
+            
+            // 更新任务完成状态
+            taskProgress.setStatus(1)
+                .setProgress(100)
+                .setCurrentStep("OPAC信息获取完成")
+                .setResult(result);
+            
+            return result;
         });
         
-        // 将任务结果存储到映射中
-        taskResults.put(taskId, future);
-        
         // 返回任务ID
-        return BaseResponse.success(20001, "任务已开始，任务ID:" + taskId);
+        return BaseResponse.success(20001, "任务已开始，任务ID:" + task.getTaskId());
     }
 
     @Operation(summary = "查询OPAC获取任务状态", description = "根据任务ID查询OPAC获取任务的执行状态")
     @GetMapping("/opac/status/{taskId}")
     public BaseResponse<TaskProgress> getOpacStatus(@PathVariable("taskId") String taskId) {
-        TaskProgress progress = taskProgressMap.get(taskId);
-        if (progress == null) {
-            return BaseResponse.error(ErrorCode.NOT_FOUND_ERROR, "任务ID不存在");
-        }
-        
-        // 如果任务已完成，从映射中移除
-        if (progress.getStatus() != 0) {
-            taskProgressMap.remove(taskId);
-            taskResults.remove(taskId);
-        }
-        
-        return BaseResponse.success(progress);
+        return getTaskStatus(taskId);
     }
 
     @Operation(summary = "批量获取OPAC信息", description = "获取所有未获取OPAC信息的图书信息")
     @PostMapping("/opac/batch")
     public BaseResponse<String> batchGetOpacInfo() {
-        // 生成唯一的任务ID
-        String taskId = UUID.randomUUID().toString();
-        
-        // 初始化任务进度
-        TaskProgress taskProgress = new TaskProgress()
-            .setTaskId(taskId)
-            .setStatus(0)
-            .setProgress(0)
-            .setCurrentStep("初始化批量OPAC信息获取任务");
-        taskProgressMap.put(taskId, taskProgress);
-        
-        // 提交异步任务
-        CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
-            try {
-                // 更新进度：开始获取待处理图书列表
-                taskProgress.setProgress(10)
-                    .setCurrentStep("获取待处理图书列表");
-                
-                List<Book> books = bookService.getBooksWithoutOpac();
-                int total = books.size();
-                
-                if (total == 0) {
-                    taskProgress.setStatus(1)
-                        .setProgress(100)
-                        .setCurrentStep("没有需要获取OPAC信息的图书")
-                        .setResult("完成：没有需要获取OPAC信息的图书");
-                    return "没有需要获取OPAC信息的图书";
-                }
-                
-                // 更新进度：开始批量处理
-                taskProgress.setProgress(20)
-                    .setCurrentStep(String.format("开始处理%d本图书的OPAC信息", total));
-                
-                int current = 0;
-                StringBuilder resultBuilder = new StringBuilder();
-                
-                // 处理每本书的OPAC信息
-                for (Book book : books) {
-                    current++;
-                    int progress = 20 + (current * 80 / total);
-                    taskProgress.setProgress(progress)
-                        .setCurrentStep(String.format("正在处理第%d/%d本图书的OPAC信息", current, total));
-                    
-                    try {
-                        String result = bookService.getAndSaveOpacInfo(book.getId());
-                        resultBuilder.append(String.format("图书ID:%d，名称：%s - %s\n", book.getId(), book.getTitle(), result));
-                    } catch (Exception e) {
-                        resultBuilder.append(String.format("图书ID:%d，名称：%s - 处理失败: %s\n", book.getId(), book.getTitle(), e.getMessage()));
-                    }
-                }
-                
-                // 更新任务完成状态
-                String finalResult = String.format("批量处理完成，共处理%d本图书。\n详细结果：\n%s", total, resultBuilder.toString());
-                taskProgress.setStatus(1)
-                    .setProgress(100)
-                    .setCurrentStep("批量OPAC信息获取完成")
-                    .setResult(finalResult);
-                
-                return finalResult;
-            } catch (BusinessException e) {
-                // 更新任务失败状态
-                taskProgress.setStatus(2)
-                    .setErrorMessage(e.getMessage());
-                throw new RuntimeException(e);
-            }
+        // 提交到该类型任务的线程池，队列已满或同一任务正在执行时抛出业务异常
+        TaskProgress task = taskService.submit(TaskType.OPAC_BATCH, "all", "初始化批量OPAC信息获取任务", taskProgress -> {
+            // 并发请求并限制速率，中断后从检查点继续
+            String finalResult = opacHarvestService.harvest(taskProgress);
+            taskProgress.setStatus(1)
+                .setProgress(100)
+                .setCurrentStep("批量OPAC信息获取完成")
+                .setResult(finalResult);
+            
+            return finalResult;
         });
         
-        // 将任务结果存储到映射中
-        taskResults.put(taskId, future);
-        
         // 返回任务ID
-        return BaseResponse.success(20001, "任务已开始，任务ID:" + taskId);
+        return BaseResponse.success(20001, "任务已开始，任务ID:" + task.getTaskId());
     }
 
     @Operation(summary = "查询批量OPAC获取任务状态", description = "根据任务ID查询批量OPAC获取任务的执行状态")
     @GetMapping("/opac/batch/status/{taskId}")
     public BaseResponse<TaskProgress> getBatchOpacStatus(@PathVariable("taskId") String taskId) {
-        TaskProgress progress = taskProgressMap.get(taskId);
-        if (progress == null) {
-            return BaseResponse.error(ErrorCode.NOT_FOUND_ERROR, "任务ID不存在");
-        }
-        
-        // 如果任务已完成，从映射中移除
-        if (progress.getStatus() != 0) {
-            taskProgressMap.remove(taskId);
-            taskResults.remove(taskId);
-        }
-        
-        return BaseResponse.success(progress);
+        return getTaskStatus(taskId);
     }
 
     @Operation(summary = "批量提取和导入", description = "批量提取PDF文本并导入到ES")
     @PostMapping("/batch/extract-import")
     public BaseResponse<String> handleBatchExtractAndImport() {
-        // 生成唯一的任务ID
-        String taskId = UUID.randomUUID().toString();
-        
-        // 初始化任务进度
-        TaskProgress taskProgress = new TaskProgress()
-            .setTaskId(taskId)
-            .setStatus(0)
-            .setProgress(0)
-            .setCurrentStep("初始化批量提取任务");
-        taskProgressMap.put(taskId, taskProgress);
-        
-        // 提交异步任务
-        CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
-            try {
-                // 获取未提取文本的图书列表
-                List<Book> books = bookService.getBooksWithoutSections();
-                int total = books.size();
-                
-                if (total == 0) {
-                    taskProgress.setStatus(1)
-                        .setProgress(100)
-                        .setCurrentStep("没有需要提取的图书")
-                        .setResult("完成：没有需要提取的图书");
-                    return "没有需要提取的图书";
-                }
-                
-                int current = 0;
-                StringBuilder resultBuilder = new StringBuilder();
-                
-                // 处理每本书
-                for (Book book : books) {
-                    current++;
-                    int progress = (current * 100) / (total * 2); // 总进度分为提取和导入两部分
-                    taskProgress.setProgress(progress)
-                        .setCurrentStep(String.format("正在提取第%d/%d本图书", current, total));
-
-                    //根据图书id获取file信息
-                    LpBookFileDTO lpBookFileDTO = bookFileService.getBookFilesNoDeleteByBookId(book.getId());
-                    if (lpBookFileDTO == null) {
-                        throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书文件不存在");
-                    }
-
-                    LpFile lpFile = lpFileService.getById(lpBookFileDTO.getFileId());
-                    if (lpFile == null) {
-                        throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
-                    }
-
-                    try {
-                        if (lpFile != null) {
-                                   String result = pdfService.extractText(lpFile.getFileName(), book.getId(), book.getTitle());
-                                   resultBuilder.append(String.format("图书ID:%d，名称：%s - %s\n", book.getId(), book.getTitle(), result));
-                        }
-                    } catch (Exception e) {
-                        resultBuilder.append(String.format("图书ID:%d，名称：%s - 提取失败: %s\n", book.getId(), book.getTitle(), e.getMessage()));
-                    }
-                }
-
-                // 开始导入到ES
-                taskProgress.setCurrentStep("开始导入到ES");
-                current = 0;
-                
-                for (Book book : books) {
-                    current++;
-                    int progress = 50 + (current * 100) / (total * 2); // 导入部分占后50%进度
-                    taskProgress.setProgress(progress)
-                        .setCurrentStep(String.format("正在导入第%d/%d本图书到ES", current, total));
-                    
-                    try {
-                        if (book != null) {
-                            // 导入到ES
-                            bookSectionEsService.importBookSections(book.getId());
-                            resultBuilder.append(String.format("图书ID:%d，名称：%s - 导入ES成功\n", book.getId(), book.getTitle()));
-                            
-                            // 更新图书状态为已索引
-                            BookUpdateRequest updateRequest = new BookUpdateRequest();
-                            updateRequest.setId(book.getId());
-                            updateRequest.setIsIndexed(1);
-                            bookService.updateBook(updateRequest);
-                        }
-                    } catch (Exception e) {
-                        if (book != null) {
-                            resultBuilder.append(String.format("图书ID:%d，名称：%s - 导入ES失败: %s\n", book.getId(), book.getTitle(), e.getMessage()));
-                        } else {
-                            resultBuilder.append(String.format("图书ID:未知，名称：未知 - 导入ES失败: %s\n", e.getMessage()));
-                        }
-                    }
-                }
-                
-                // 更新任务完成状态
-                String finalResult = String.format("批量处理完成，共处理%d本图书。\n详细结果：\n%s", total, resultBuilder.toString());
+        // 提交到该类型任务的线程池，队列已满或同一任务正在执行时抛出业务异常
+        TaskProgress task = taskService.submit(TaskType.EXTRACT_IMPORT_BATCH, "all", "初始化批量提取任务", taskProgress -> {
+            // 获取未提取文本的图书列表
+            List<Book> books = bookService.getBooksWithoutSections();
+            int total = books.size();
+            
+            if (total == 0) {
                 taskProgress.setStatus(1)
                     .setProgress(100)
-                    .setCurrentStep("批量提取和导入完成")
-                    .setResult(finalResult);
-                
-                return finalResult;
-            } catch (BusinessException e) {
-                taskProgress.setStatus(2)
-                    .setErrorMessage(e.getMessage());
-                throw new RuntimeException(e);
+                    .setCurrentStep("没有需要提取的图书")
+                    .setResult("完成：没有需要提取的图书");
+                return "没有需要提取的图书";
             }
+            
+            // 下载、提取、写入章节和导入ES分阶段并行，每本图书提取完成后立即导入
+            taskProgress.setCurrentStep(String.format("开始处理%d本图书", total));
+            String details = bookExtractPipelineService.extractAndIndex(books, taskProgress);
+            
+            // 更新任务完成状态
+            String finalResult = String.format("批量处理完成，共处理%d本图书。\n详细结果：\n%s", total, details);
+            taskProgress.setStatus(1)
+                .setProgress(100)
+                .setCurrentStep("批量提取和导入完成")
+                .setResult(finalResult);
+            
+            return finalResult;
         });
-        
-        taskResults.put(taskId, future);
-        return BaseResponse.success(20001, "任务已开始，任务ID:" + taskId);
+        return BaseResponse.success(20001, "任务已开始，任务ID:" + task.getTaskId());
     }
 
     @Operation(summary = "查询批量提取和导入任务状态", description = "根据任务ID查询批量提取和导入任务的执行状态")
     @GetMapping("/batch/extract-import/status/{taskId}")
     public BaseResponse<TaskProgress> getBatchExtractImportStatus(@PathVariable("taskId") String taskId) {
-        TaskProgress progress = taskProgressMap.get(taskId);
-        if (progress == null) {
-            return BaseResponse.error(ErrorCode.NOT_FOUND_ERROR, "任务ID不存在");
-        }
-        
-        // 如果任务已完成，从映射中移除
-        if (progress.getStatus() != 0) {
-            taskProgressMap.remove(taskId);
-            taskResults.remove(taskId);
-        }
-        
-        return BaseResponse.success(progress);
+        return getTaskStatus(taskId);
     }
 
     @Operation(summary = "批量自动解析OPAC主题标签", description = "自动解析所有未处理的OPAC主题标签信息")
     @PostMapping("/opac/topics/batch")
     public BaseResponse<String> batchParseOPACTopics() {
-        // 生成唯一的任务ID
-        String taskId = UUID.randomUUID().toString();
-        
-        // 初始化任务进度
-        TaskProgress taskProgress = new TaskProgress()
-            .setTaskId(taskId)
-            .setStatus(0)
-            .setProgress(0)
-            .setCurrentStep("初始化批量解析OPAC主题标签任务");
-        taskProgressMap.put(taskId, taskProgress);
-        
-        // 提交异步任务
-        CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
-            try {
-                // 更新进度：开始获取待处理图书列表
-                taskProgress.setProgress(10)
-                    .setCurrentStep("获取待处理图书列表");
-                
-                // 查询需要处理的图书（has_parse_opac_topic为null或0，且topic字段不为null的记录）
-                List<Book> books = bookService.listBooksForTopicParsing();
-                
-                if (books.isEmpty()) {
-                    taskProgress.setProgress(100)
-                        .setStatus(2)
-                        .setCurrentStep("没有需要解析OPAC主题标签的图书");
-                    return "没有需要解析OPAC主题标签的图书";
-                }
-                
-                int total = books.size();
-                log.info("找到{}本需要解析OPAC主题标签的图书", total);
-                
-                // 更新进度：开始处理
-                taskProgress.setProgress(20)
-                    .setCurrentStep("开始解析OPAC主题标签，共" + total + "本图书");
-                
-                int processed = 0;
-                int success = 0;
-                int failed = 0;
-                
-                // 逐个处理图书
-                for (Book book : books) {
-                    try {
-                        if (book.getTopic() != null && !book.getTopic().isEmpty()) {
-                            // 解析主题标签
-                            boolean result = bookService.parseBookOPACTopics(book.getId());
-                            if (result) {
-                                success++;
-                            } else {
-                                failed++;
+        // 提交到该类型任务的线程池，队列已满或同一任务正在执行时抛出业务异常
+        TaskProgress task = taskService.submit(TaskType.OPAC_TOPIC_BATCH, "all", "初始化批量解析OPAC主题标签任务", taskProgress -> {
+            // 更新进度：开始获取待处理图书列表
+            taskProgress.setProgress(10)
+                .setCurrentStep("获取待处理图书列表");
+            
+            // 查询需要处理的图书（has_parse_opac_topic为null或0，且topic字段不为null的记录）
+            List<Book> books = bookService.listBooksForTopicParsing();
+            
+            if (books.isEmpty()) {
+                taskProgress.setProgress(100)
+                    .setStatus(2)
+                    .setCurrentStep("没有需要解析OPAC主题标签的图书");
+                return "没有需要解析OPAC主题标签的图书";
+            }
+            
+            int total = books.size();
+            log.info("找到{}本需要解析OPAC主题标签的图书", total);
+            
+            // 更新进度：开始处理
+            taskProgress.setProgress(20)
+                .setCurrentStep("开始解析OPAC主题标签，共" + total + "本图书");
+            
+            int processed = 0;
+            int success = 0;
+            int failed = 0;
+            
+            // 分批处理图书，每批的主题和关联用批量查询和批量插入完成
+            for (List<Book> batch : CollUtil.split(books, topicParseBatchSize)) {
+                int batchSuccess;
+                try {
+                    batchSuccess = bookService.parseBooksOPACTopics(batch);
+                } catch (Exception e) {
+                    // 整批失败时逐本重试，找出出错的图书
+                    log.error("批量解析{}本图书的OPAC主题标签出错，改为逐本解析", batch.size(), e);
+                    batchSuccess = 0;
+                    for (Book book : batch) {
+                        try {
+                            if (bookService.parseBookOPACTopics(book.getId())) {
+                                batchSuccess++;
                             }
-                        } else {
-                            // 没有主题，标记为已处理
-                            bookService.markTopicParseStatus(book.getId(), false);
-                            failed++;
+                        } catch (Exception ex) {
+                            log.error("解析图书ID={}的OPAC主题标签时出错", book.getId(), ex);
                         }
-                    } catch (Exception e) {
-                        log.error("解析图书ID={}的OPAC主题标签时出错", book.getId(), e);
-                        failed++;
                     }
-                    
-                    // 更新处理进度
-                    processed++;
-                    int progress = 20 + (processed * 80 / total);
-                    taskProgress.setProgress(progress)
-                        .setCurrentStep(String.format("已处理 %d/%d 本图书，成功：%d，失败：%d", 
-                                        processed, total, success, failed));
                 }
+                success += batchSuccess;
+                failed += batch.size() - batchSuccess;
                 
-                // 任务完成
-                taskProgress.setProgress(100)
-                    .setStatus(1)
-                    .setCurrentStep(String.format("任务完成，共处理 %d 本图书，成功：%d，失败：%d", 
-                                total, success, failed));
-                
-                return String.format("批量解析OPAC主题标签完成，共处理 %d 本图书，成功：%d，失败：%d", 
-                                     total, success, failed);
-                
-            } catch (Exception e) {
-                log.error("批量解析OPAC主题标签时出错", e);
-                taskProgress.setStatus(-1)
-                    .setCurrentStep("处理失败：" + e.getMessage());
-                return "处理失败：" + e.getMessage();
+                // 更新处理进度
+                processed += batch.size();
+                int progress = 20 + (processed * 80 / total);
+                taskProgress.setProgress(progress)
+                    .setCurrentStep(String.format("已处理 %d/%d 本图书，成功：%d，失败：%d", 
+                                    processed, total, success, failed));
             }
+            
+            // 任务完成
+            taskProgress.setProgress(100)
+                .setStatus(1)
+                .setCurrentStep(String.format("任务完成，共处理 %d 本图书，成功：%d，失败：%d", 
+                            total, success, failed));
+            
+            return String.format("批量解析OPAC主题标签完成，共处理 %d 本图书，成功：%d，失败：%d", 
+                                 total, success, failed);
         });
-        
-        // 存储任务结果
-        taskResults.put(taskId, future);
-        
-        return BaseResponse.success(20001, "任务已开始，任务ID:" + taskId);
+
+        return BaseResponse.success(20001, "任务已开始，任务ID:" + task.getTaskId());
     }
     
     @Operation(summary = "查询批量解析OPAC主题标签任务状态", description = "根据任务ID查询批量解析OPAC主题标签任务的执行状态")
     @GetMapping("/opac/topics/batch/status/{taskId}")
     public BaseResponse<TaskProgress> getBatchParseOPACTopicsStatus(@PathVariable("taskId") String taskId) {
-        TaskProgress progress = taskProgressMap.get(taskId);
+        return getTaskStatus(taskId);
+    }
+
+    /**
+     * 查询后台任务进度，任务结束后进度保留一段时间，到期自动清除
+     */
+    private BaseResponse<TaskProgress> getTaskStatus(String taskId) {
+        TaskProgress progress = taskService.getTask(taskId);
         if (progress == null) {
             return BaseResponse.error(ErrorCode.NOT_FOUND_ERROR, "任务ID不存在");
         }
-        
-        // 如果任务已完成，从映射中移除
-        if (progress.getStatus() != 0) {
-            taskProgressMap.remove(taskId);
-            taskResults.remove(taskId);
-        }
-        
         return BaseResponse.success(progress);
     }
-
-
-
 }
\ No newline at end of file
@@ -1,8 +1,14 @@
 package top.lvpi.controller;
 
 import top.lvpi.common.BaseResponse;
+import top.lvpi.common.ErrorCode;
+import top.lvpi.model.dto.es.SectionCursorPage;
+import top.lvpi.model.dto.es.SectionGroupPage;
 import top.lvpi.model.es.BookSectionDocument;
+import top.lvpi.model.dto.task.TaskProgress;
 import top.lvpi.service.BookSectionEsService;
+import top.lvpi.service.EsReindexService;
+import top.lvpi.service.TaskService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -19,6 +25,10 @@ public class BookSectionEsController {
 
     private final BookSectionEsService bookSectionEsService;
 
+    private final EsReindexService esReindexService;
+
+    private final TaskService taskService;
+
     @Operation(summary = "导入指定ID的章节到ES", description = "根据章节ID将单个章节导入到Elasticsearch")
     @PostMapping("/import/id/{id}")
     public BaseResponse<String> importById(
@@ -90,4 +100,52 @@ public class BookSectionEsController {
         Page<BookSectionDocument> result = bookSectionEsService.search(keyword, isbn, bookId, bookTitle,author, publisher, pageNum, PageRequest.of(page, size));
         return BaseResponse.success(result);
     }
-} 
\ No newline at end of file
+
+    @Operation(summary = "游标分页搜索章节", description = "基于point-in-time和search_after分页，不受分页深度限制；"
+            + "首次查询不传cursor，之后传入上一页返回的nextCursor并保持其余条件不变，nextCursor为空表示已到最后一页")
+    @GetMapping("/search/cursor")
+    public BaseResponse<SectionCursorPage> searchByCursor(
+            @Parameter(description = "搜索关键词，可选") @RequestParam(required = false) String keyword,
+            @Parameter(description = "ISBN，可选") @RequestParam(required = false) String isbn,
+            @Parameter(description = "书籍ID，可选") @RequestParam(required = false) String bookId,
+            @Parameter(description = "书籍名称，可选") @RequestParam(required = false) String bookTitle,
+            @Parameter(description = "作者，可选") @RequestParam(required = false) String author,
+            @Parameter(description = "出版社，可选") @RequestParam(required = false) String publisher,
+            @Parameter(description = "页码，可选") @RequestParam(required = false) Integer pageNum,
+            @Parameter(description = "每页记录数") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "上一页返回的游标，首次查询不传") @RequestParam(required = false) String cursor) {
+        return BaseResponse.success(bookSectionEsService.searchByCursor(keyword, isbn, bookId, bookTitle, author, publisher, pageNum, size, cursor));
+    }
+
+    @Operation(summary = "按图书分组搜索章节", description = "按书籍ID折叠命中的章节，每本书返回得分最高的若干页和命中章节数，结果按图书分页")
+    @GetMapping("/search/grouped")
+    public BaseResponse<SectionGroupPage> searchGroupedByBook(
+            @Parameter(description = "搜索关键词，可选") @RequestParam(required = false) String keyword,
+            @Parameter(description = "ISBN，可选") @RequestParam(required = false) String isbn,
+            @Parameter(description = "书籍ID，可选") @RequestParam(required = false) String bookId,
+            @Parameter(description = "书籍名称，可选") @RequestParam(required = false) String bookTitle,
+            @Parameter(description = "作者，可选") @RequestParam(required = false) String author,
+            @Parameter(description = "出版社，可选") @RequestParam(required = false) String publisher,
+            @Parameter(description = "页码，可选") @RequestParam(required = false) Integer pageNum,
+            @Parameter(description = "页码，从0开始，按图书计") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页图书数") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "每本书返回的页数") @RequestParam(defaultValue = "3") int pagesPerBook) {
+        return BaseResponse.success(bookSectionEsService.searchGroupedByBook(keyword, isbn, bookId, bookTitle, author, publisher, pageNum, page, size, pagesPerBook));
+    }
+
+    @Operation(summary = "重建章节索引", description = "后台从数据库重建新版本索引，完成后原子切换books别名，重建期间搜索不受影响")
+    @PostMapping("/reindex")
+    public BaseResponse<TaskProgress> reindex() {
+        return BaseResponse.success(esReindexService.startReindex("手动触发"));
+    }
+
+    @Operation(summary = "获取索引重建状态")
+    @GetMapping("/reindex/status/{taskId}")
+    public BaseResponse<TaskProgress> reindexStatus(@PathVariable("taskId") String taskId) {
+        TaskProgress progress = taskService.getTask(taskId);
+        if (progress == null) {
+            return BaseResponse.error(ErrorCode.NOT_FOUND_ERROR, "任务ID不存在");
+        }
+        return BaseResponse.success(progress);
+    }
+}
\ No newline at end of file
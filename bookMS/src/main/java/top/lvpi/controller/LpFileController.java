@@ -1,9 +1,13 @@
 package top.lvpi.controller;
 
 import top.lvpi.common.BaseResponse;
+import top.lvpi.common.ErrorCode;
 import top.lvpi.common.ResultUtils;
 import top.lvpi.model.dto.file.LpFileDTO;
+import top.lvpi.model.dto.task.TaskProgress;
+import top.lvpi.service.FileMd5IndexService;
 import top.lvpi.service.LpFileService;
+import top.lvpi.service.TaskService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +22,12 @@ public class LpFileController {
     @Autowired
     private LpFileService fileService;
 
+    @Autowired
+    private FileMd5IndexService fileMd5IndexService;
+
+    @Autowired
+    private TaskService taskService;
+
     @PostMapping("/save")
     @Operation(summary = "保存文件信息")
     public BaseResponse<Long> saveFile(@Validated @RequestBody LpFileDTO fileDTO) {
@@ -52,4 +62,20 @@ public class LpFileController {
         LpFileDTO fileDTO = fileService.getFileByMd5(md5);
         return ResultUtils.success(fileDTO);
     }
-} 
\ No newline at end of file
+
+    @PostMapping("/md5-index/backfill")
+    @Operation(summary = "回填MD5去重索引", description = "后台扫描存储桶对象的md5元数据写入去重索引，仅需在升级后执行一次")
+    public BaseResponse<TaskProgress> backfillMd5Index() {
+        return ResultUtils.success(fileMd5IndexService.startBackfill());
+    }
+
+    @GetMapping("/md5-index/backfill/status/{taskId}")
+    @Operation(summary = "获取MD5索引回填状态")
+    public BaseResponse<TaskProgress> getBackfillStatus(@PathVariable String taskId) {
+        TaskProgress progress = taskService.getTask(taskId);
+        if (progress == null) {
+            return ResultUtils.error(ErrorCode.NOT_FOUND_ERROR, "任务ID不存在");
+        }
+        return ResultUtils.success(progress);
+    }
+}
\ No newline at end of file
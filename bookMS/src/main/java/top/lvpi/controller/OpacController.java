@@ -2,16 +2,18 @@ package top.lvpi.controller;
 
 import top.lvpi.common.BaseResponse;
 import top.lvpi.common.ResultUtils;
+import top.lvpi.common.TaskType;
+import top.lvpi.model.dto.task.TaskProgress;
 import top.lvpi.service.BookService;
+import top.lvpi.service.OpacCacheService;
+import top.lvpi.service.OpacHarvestService;
+import top.lvpi.service.TaskService;
 import org.springframework.web.bind.annotation.*;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
 @RequestMapping("/api/opac")
@@ -21,8 +23,14 @@ public class OpacController {
     @Resource
     private BookService bookService;
 
-    // 用于存储任务状态
-    private static final Map<String, String> taskStatusMap = new ConcurrentHashMap<>();
+    @Resource
+    private TaskService taskService;
+
+    @Resource
+    private OpacHarvestService opacHarvestService;
+
+    @Resource
+    private OpacCacheService opacCacheService;
 
     @GetMapping("/{id}")
     @Operation(summary = "获取OPAC信息")
@@ -34,23 +42,39 @@ public class OpacController {
     @PostMapping("/batch")
     @Operation(summary = "批量获取OPAC信息")
     public BaseResponse<String> batchGetOpacInfo() {
-        String taskId = UUID.randomUUID().toString();
-        CompletableFuture.runAsync(() -> {
-            String result = bookService.batchGetAndSaveOpacInfo();
-            taskStatusMap.put(taskId, result);
-        });
-        return ResultUtils.success(taskId);
+        // 与图书管理中的批量OPAC任务共用线程池和去重键，同一时间只有一个批量任务
+        TaskProgress task = taskService.submit(TaskType.OPAC_BATCH, "all", "批量获取OPAC信息",
+                opacHarvestService::harvest);
+        return ResultUtils.success(task.getTaskId());
+    }
+
+    @GetMapping("/cache/stats")
+    @Operation(summary = "OPAC缓存命中统计", description = "本节点启动以来的命中、未找到命中和未命中次数")
+    public BaseResponse<Map<String, Long>> getCacheStats() {
+        return ResultUtils.success(opacCacheService.getStats());
+    }
+
+    @DeleteMapping("/cache/{isbn}")
+    @Operation(summary = "删除ISBN的OPAC缓存", description = "下次获取时重新请求OPAC")
+    public BaseResponse<Boolean> evictCache(@PathVariable String isbn) {
+        opacCacheService.evict(isbn);
+        return ResultUtils.success(true);
+    }
+
+    @DeleteMapping("/batch/checkpoint")
+    @Operation(summary = "清除批量采集检查点", description = "下次批量获取时从第一本图书开始")
+    public BaseResponse<Boolean> resetBatchCheckpoint() {
+        opacHarvestService.resetCheckpoint();
+        return ResultUtils.success(true);
     }
 
     @GetMapping("/batch/status/{taskId}")
     @Operation(summary = "获取批量任务状态")
     public BaseResponse<String> getBatchStatus(@PathVariable String taskId) {
-        String status = taskStatusMap.get(taskId);
-        if (status == null) {
+        TaskProgress task = taskService.getTask(taskId);
+        if (task == null || task.getStatus() == 0) {
             return ResultUtils.success("任务正在处理中...");
         }
-        // 任务完成后，从Map中移除状态
-        taskStatusMap.remove(taskId);
-        return ResultUtils.success(status);
+        return ResultUtils.success(task.getStatus() == 1 ? task.getResult() : task.getErrorMessage());
     }
 } 
\ No newline at end of file
@@ -4,7 +4,12 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import top.lvpi.model.entity.BookSection;
 import top.lvpi.model.vo.BookSectionVO;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -18,4 +23,18 @@ public interface BookSectionMapper extends BaseMapper<BookSection> {
     List<BookSectionVO> selectSectionWithBookByBookId(@Param("bookId") Long bookId);
     
     void updateIsIndexedById(@Param("bookId") Long bookId, @Param("isIndexed") Integer isIndexed);
+
+    /**
+     * 流式读取图书的全部章节，按页码排序
+     * <p>
+     * fetchSize=Integer.MIN_VALUE 使 MySQL 驱动逐行返回结果，不会一次性把整本书的 section_text 读入内存。
+     * 流式读取期间当前连接不能执行其他查询，handler 中不要访问数据库。
+     *
+     * @param bookId  图书ID
+     * @param handler 逐行处理回调
+     */
+    @Select("SELECT id, book_id, page_num, title, section_text AS content FROM lp_book_section WHERE book_id = #{bookId} ORDER BY page_num")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(BookSection.class)
+    void streamByBookId(@Param("bookId") Long bookId, ResultHandler<BookSection> handler);
 } 
\ No newline at end of file
@@ -2,8 +2,23 @@ package top.lvpi.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import top.lvpi.model.entity.BookTopic;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface BookTopicMapper extends BaseMapper<BookTopic> {
-} 
\ No newline at end of file
+
+    /**
+     * 批量写入书籍与主题的关联，ID由调用方生成
+     */
+    @Insert("<script>" +
+            "INSERT INTO lp_book_topic (id, book_id, topic_id) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.id}, #{item.bookId}, #{item.topicId})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<BookTopic> bookTopics);
+}
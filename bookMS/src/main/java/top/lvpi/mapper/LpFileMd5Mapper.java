@@ -0,0 +1,32 @@
+package top.lvpi.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import top.lvpi.model.entity.LpFileMd5;
+
+import java.util.List;
+
+@Mapper
+public interface LpFileMd5Mapper extends BaseMapper<LpFileMd5> {
+
+    /**
+     * 写入MD5索引，MD5已存在时忽略
+     *
+     * @return 实际写入的行数，0表示已被其他文件占用
+     */
+    @Insert("INSERT IGNORE INTO lp_file_md5 (file_md5, file_name, file_size) VALUES (#{fileMd5}, #{fileName}, #{fileSize})")
+    int insertIgnore(LpFileMd5 entry);
+
+    /**
+     * 批量写入MD5索引，已存在的MD5忽略
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO lp_file_md5 (file_md5, file_name, file_size) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.fileMd5}, #{item.fileName}, #{item.fileSize})" +
+            "</foreach>" +
+            "</script>")
+    int insertIgnoreBatch(@Param("list") List<LpFileMd5> entries);
+}
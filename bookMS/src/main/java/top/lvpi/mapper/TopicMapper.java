@@ -1,13 +1,32 @@
 package top.lvpi.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import top.lvpi.model.dto.topic.BookTopicTagDTO;
 import top.lvpi.model.entity.Topic;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface TopicMapper extends BaseMapper<Topic> {
     List<Topic> getBookTopicTags(@Param("bookId") Long bookId);
+
+    /**
+     * 一次查询多本图书的标签
+     */
+    List<BookTopicTagDTO> getBooksTopicTags(@Param("bookIds") Collection<Long> bookIds);
+
+    /**
+     * 批量写入主题，ID由调用方生成
+     */
+    @Insert("<script>" +
+            "INSERT INTO lp_topic (id, name, parent_id, level) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.id}, #{item.name}, #{item.parentId}, #{item.level})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<Topic> topics);
 } 
\ No newline at end of file
@@ -0,0 +1,32 @@
+package top.lvpi.model.dto.book;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "图书分面搜索请求")
+public class BookFacetSearchRequest {
+    @Schema(description = "当前页码", defaultValue = "1")
+    private int current = 1;
+
+    @Schema(description = "每页大小", defaultValue = "10")
+    private int size = 10;
+
+    @Schema(description = "关键词，匹配书名、副书名、作者、摘要和关键词")
+    private String keyword;
+
+    @Schema(description = "分类")
+    private String category;
+
+    @Schema(description = "出版社")
+    private String publisher;
+
+    @Schema(description = "起始出版年份")
+    private Integer yearFrom;
+
+    @Schema(description = "结束出版年份")
+    private Integer yearTo;
+
+    @Schema(description = "主题路径，取自主题分面的key，如：法律 > 民法")
+    private String topic;
+}
@@ -0,0 +1,48 @@
+package top.lvpi.model.dto.book;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import top.lvpi.model.entity.Book;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Schema(description = "图书分面搜索结果")
+public class BookFacetSearchResult {
+
+    @Schema(description = "当前页的图书")
+    private List<Book> records = new ArrayList<>();
+
+    @Schema(description = "当前页码")
+    private int current;
+
+    @Schema(description = "每页大小")
+    private int size;
+
+    @Schema(description = "命中总数，totalExact为false时表示至少有这么多")
+    private long total;
+
+    @Schema(description = "命中总数是否精确")
+    private boolean totalExact;
+
+    @Schema(description = "分面统计，键为category、publisher、publication_year、topic_lvl0 ~ topic_lvl4")
+    private Map<String, List<FacetBucket>> facets = new LinkedHashMap<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "分面统计项")
+    public static class FacetBucket {
+
+        @Schema(description = "取值，出版年份分面为区间起始年份")
+        private String key;
+
+        @Schema(description = "命中的图书数")
+        private long count;
+    }
+}
@@ -0,0 +1,46 @@
+package top.lvpi.model.dto.es;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Schema(description = "ES批量索引结果")
+public class BulkIndexResult {
+
+    @Schema(description = "提交的文档数")
+    private long total;
+
+    @Schema(description = "成功索引的文档数")
+    private long succeeded;
+
+    @Schema(description = "重试次数（轮）")
+    private int retryRounds;
+
+    @Schema(description = "最终失败的文档")
+    private List<Failure> failures = new ArrayList<>();
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "单个文档的索引失败信息")
+    public static class Failure {
+
+        @Schema(description = "文档ID")
+        private String id;
+
+        @Schema(description = "HTTP状态码，请求整体失败时为0")
+        private int status;
+
+        @Schema(description = "失败原因")
+        private String reason;
+    }
+}
@@ -0,0 +1,25 @@
+package top.lvpi.model.dto.es;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import top.lvpi.model.es.BookSectionDocument;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Schema(description = "章节游标分页结果")
+public class SectionCursorPage {
+
+    @Schema(description = "当前页的章节")
+    private List<BookSectionDocument> records = new ArrayList<>();
+
+    @Schema(description = "命中总数，首次查询时统计，后续页沿用")
+    private long total;
+
+    @Schema(description = "每页记录数")
+    private int size;
+
+    @Schema(description = "下一页游标，为空表示没有更多结果")
+    private String nextCursor;
+}
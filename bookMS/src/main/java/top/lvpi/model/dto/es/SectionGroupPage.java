@@ -0,0 +1,76 @@
+package top.lvpi.model.dto.es;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Schema(description = "按图书分组的章节搜索结果")
+public class SectionGroupPage {
+
+    @Schema(description = "当前页的图书，按最佳章节的相关度排序")
+    private List<BookGroup> records = new ArrayList<>();
+
+    @Schema(description = "页码，从0开始")
+    private int page;
+
+    @Schema(description = "每页图书数")
+    private int size;
+
+    @Schema(description = "命中的图书数（近似值）")
+    private long totalBooks;
+
+    @Schema(description = "命中的章节总数")
+    private long totalSections;
+
+    @Data
+    @Schema(description = "单本图书的命中情况")
+    public static class BookGroup {
+
+        @Schema(description = "书籍ID")
+        private String bookId;
+
+        @Schema(description = "书名")
+        private String bookTitle;
+
+        @Schema(description = "作者")
+        private String author;
+
+        @Schema(description = "出版社")
+        private String publisher;
+
+        @Schema(description = "ISBN")
+        private String isbn;
+
+        @Schema(description = "封面地址")
+        private String picUrl;
+
+        @Schema(description = "最佳章节的相关度得分")
+        private Double score;
+
+        @Schema(description = "该书命中的章节数")
+        private long hitCount;
+
+        @Schema(description = "该书相关度最高的若干页")
+        private List<PageHit> pages = new ArrayList<>();
+    }
+
+    @Data
+    @Schema(description = "命中的章节页")
+    public static class PageHit {
+
+        @Schema(description = "章节ID")
+        private String id;
+
+        @Schema(description = "页码")
+        private Integer pageNum;
+
+        @Schema(description = "相关度得分")
+        private Double score;
+
+        @Schema(description = "章节内容的高亮片段")
+        private List<String> highlights = new ArrayList<>();
+    }
+}
@@ -0,0 +1,19 @@
+package top.lvpi.model.dto.file;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 存储对象的元信息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileStat {
+    private String fileName;
+    private long size; // 文件大小（字节）
+    private String etag; // 对象ETag，不含引号
+    private long lastModified; // 最后修改时间（毫秒）
+    private String contentType;
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 public class FileUploadResult {
     private String fileName;
     private int pageCount;
+    private String md5; // 文件MD5值
     private boolean isDuplicate;  // 是否是重复文件
     private Long duplicateBookId; // 重复文件对应的图书ID
     private String duplicateBookTitle; // 重复文件对应的图书标题
@@ -35,4 +35,19 @@ public class TaskProgress {
      * 错误信息
      */
     private String errorMessage;
+
+    /**
+     * 任务类型代码，见 TaskType
+     */
+    private String type;
+
+    /**
+     * 创建时间（毫秒时间戳）
+     */
+    private Long createTime;
+
+    /**
+     * 最近一次保存进度的时间（毫秒时间戳）
+     */
+    private Long updateTime;
 } 
\ No newline at end of file
@@ -0,0 +1,14 @@
+package top.lvpi.model.dto.topic;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import top.lvpi.model.entity.Topic;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Schema(description = "批量查询图书标签的结果行，标签字段之外带上所属图书ID")
+public class BookTopicTagDTO extends Topic {
+    @Schema(description = "书籍ID")
+    private Long bookId;
+}
@@ -22,10 +22,35 @@ public class Img {
     @Schema(description = "图片id", name = "id", type = "Long")
     private Long id;
   
-    //图片base64数据        
+    //图片base64数据（旧数据），新图片以二进制存放在MinIO中
     @Schema(description = "图片base64数据", name = "imgData", type = "String")
     @TableField(value = "img_data")
     private String imgData;
+
+    //图片在MinIO中的对象名称，为空表示旧数据仍存放在imgData中
+    @Schema(description = "图片对象名称", name = "imgPath", type = "String")
+    @TableField(value = "img_path")
+    private String imgPath;
+
+    //图片MIME类型
+    @Schema(description = "图片类型", name = "contentType", type = "String")
+    @TableField(value = "content_type")
+    private String contentType;
+
+    //图片内容MD5，用作ETag
+    @Schema(description = "图片ETag", name = "imgEtag", type = "String")
+    @TableField(value = "img_etag")
+    private String imgEtag;
+
+    //图片大小（字节）
+    @Schema(description = "图片大小", name = "imgSize", type = "Long")
+    @TableField(value = "img_size")
+    private Long imgSize;
+
+    //除默认尺寸外已生成的封面尺寸代码，逗号分隔
+    @Schema(description = "封面尺寸", name = "imgVariants", type = "String")
+    @TableField(value = "img_variants")
+    private String imgVariants;
     
     //创建时间        
     @TableField(value = "create_time", fill = FieldFill.INSERT)
@@ -0,0 +1,33 @@
+package top.lvpi.model.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Schema(name = "FileMd5", description = "文件MD5去重索引表")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("lp_file_md5")
+public class LpFileMd5 {
+
+    @TableId(value = "file_md5", type = IdType.INPUT)
+    @Schema(description = "文件MD5值")
+    private String fileMd5;
+
+    @Schema(description = "MinIO对象名称")
+    @TableField("file_name")
+    private String fileName;
+
+    @Schema(description = "文件大小")
+    @TableField("file_size")
+    private Long fileSize;
+
+    @Schema(description = "创建时间")
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    private Date createTime;
+}
@@ -0,0 +1,127 @@
+package top.lvpi.model.es;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
+import top.lvpi.model.dto.topic.TopicPathDTO;
+import top.lvpi.model.entity.Book;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 图书目录索引文档，每本未删除的图书一条，映射见 es/book-catalog-mapping.json
+ */
+@Data
+public class BookCatalogDocument {
+
+    private static final Pattern YEAR = Pattern.compile("\\d{4}");
+
+    private Long id;
+
+    private String title;
+
+    @JsonProperty("sub_title")
+    private String subTitle;
+
+    private String summary;
+
+    @JsonProperty("key_word")
+    private String keyWord;
+
+    private String author;
+
+    private String publisher;
+
+    private String isbn;
+
+    private String category;
+
+    private String source;
+
+    private Integer type;
+
+    @JsonProperty("publication_year")
+    private Integer publicationYear;
+
+    @JsonProperty("modified_time")
+    private Date modifiedTime;
+
+    @JsonProperty("topic_levels")
+    private TopicLevels topicLevels;
+
+    /**
+     * @param book       图书
+     * @param topicPaths 图书的主题路径，按层级写入 topic_levels.lvl0 ~ lvl4 用于分面统计
+     */
+    public static BookCatalogDocument of(Book book, List<TopicPathDTO> topicPaths) {
+        BookCatalogDocument document = new BookCatalogDocument();
+        document.setId(book.getId());
+        document.setTitle(book.getTitle());
+        document.setSubTitle(book.getSubTitle());
+        document.setSummary(book.getSummary());
+        document.setKeyWord(book.getKeyWord());
+        document.setAuthor(book.getAuthor());
+        document.setPublisher(book.getPublisher());
+        document.setIsbn(book.getIsbn());
+        document.setCategory(book.getCategory());
+        document.setSource(book.getSource());
+        document.setType(book.getType());
+        document.setPublicationYear(parseYear(book.getPublicationYear()));
+        document.setModifiedTime(book.getModifiedTime());
+        document.setTopicLevels(TopicLevels.of(topicPaths));
+        return document;
+    }
+
+    /**
+     * 出版年份在库中是字符串，可能是"2019"、"2019.05"等形式，取第一个四位数字
+     */
+    private static Integer parseYear(String publicationYear) {
+        if (StringUtils.isBlank(publicationYear)) {
+            return null;
+        }
+        Matcher matcher = YEAR.matcher(publicationYear);
+        return matcher.find() ? Integer.valueOf(matcher.group()) : null;
+    }
+
+    /**
+     * 各层级的主题路径，与章节索引的 topicLevels 相同，路径用" > "连接
+     */
+    @Data
+    public static class TopicLevels {
+
+        private List<String> lvl0 = new ArrayList<>();
+
+        private List<String> lvl1 = new ArrayList<>();
+
+        private List<String> lvl2 = new ArrayList<>();
+
+        private List<String> lvl3 = new ArrayList<>();
+
+        private List<String> lvl4 = new ArrayList<>();
+
+        static TopicLevels of(List<TopicPathDTO> topicPaths) {
+            TopicLevels levels = new TopicLevels();
+            if (topicPaths == null) {
+                return levels;
+            }
+            for (TopicPathDTO topicPath : topicPaths) {
+                List<String> level = switch (topicPath.getLevelSize()) {
+                    case 0 -> levels.lvl0;
+                    case 1 -> levels.lvl1;
+                    case 2 -> levels.lvl2;
+                    case 3 -> levels.lvl3;
+                    case 4 -> levels.lvl4;
+                    default -> null;
+                };
+                if (level != null && !level.contains(topicPath.getPath())) {
+                    level.add(topicPath.getPath());
+                }
+            }
+            return levels;
+        }
+    }
+}
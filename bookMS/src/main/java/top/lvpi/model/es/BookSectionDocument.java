@@ -9,7 +9,8 @@ import org.springframework.data.elasticsearch.annotations.FieldType;
 import java.util.Date;
 
 @Data
-@Document(indexName = "books")
+// books 是指向版本索引的别名，索引由 ElasticsearchInitializer 创建
+@Document(indexName = "books", createIndex = false)
 public class BookSectionDocument {
     @Id
     private String id;
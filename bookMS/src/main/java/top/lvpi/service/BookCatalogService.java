@@ -0,0 +1,71 @@
+package top.lvpi.service;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import top.lvpi.model.dto.book.BookFacetSearchRequest;
+import top.lvpi.model.dto.book.BookFacetSearchResult;
+import top.lvpi.model.dto.task.TaskProgress;
+import top.lvpi.model.entity.Book;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * 图书目录ES索引服务
+ * <p>
+ * 与章节索引 books 分开，每本图书一条文档，用于图书级别的检索。对外通过别名 book_catalog 读写，
+ * 实际数据存放在带版本号的索引中，重建时写入新版本索引后切换别名。
+ * 搜索只从ES取当前页的图书ID，图书内容仍从MySQL读取；ES不可用时搜索方法抛出 IOException 或 ElasticsearchException。
+ */
+public interface BookCatalogService {
+
+    /**
+     * 对外使用的索引别名
+     */
+    String CATALOG_ALIAS = "book_catalog";
+
+    /**
+     * 别名不存在时创建第一个版本索引并从MySQL全量写入，启动时调用
+     */
+    void initIndex() throws IOException;
+
+    /**
+     * 按MySQL中的当前数据同步图书，未删除的写入索引，已删除或不存在的从索引中删除。
+     * 处于事务中时在提交后同步，同步失败只记录日志，可通过重建修复
+     *
+     * @param bookIds 图书ID
+     */
+    void sync(Collection<Long> bookIds);
+
+    /**
+     * 提交后台重建任务，写入新版本索引后切换别名
+     *
+     * @return 任务进度
+     */
+    TaskProgress startRebuild();
+
+    /**
+     * 关键词搜索书名、作者、摘要
+     */
+    IPage<Book> search(String keyword, int page, int size) throws IOException;
+
+    /**
+     * 多条件组合搜索
+     */
+    IPage<Book> advancedSearch(String keyword, String category, String author,
+                               Integer yearFrom, Integer yearTo, int page, int size) throws IOException;
+
+    /**
+     * 按指定字段搜索，支持 title、author、category、isbn
+     */
+    IPage<Book> templateSearch(String field, String value, int page, int size) throws IOException;
+
+    /**
+     * 关键词和最大出版年份组合搜索
+     */
+    IPage<Book> nestedSearch(String keyword, Integer maxYear, int page, int size) throws IOException;
+
+    /**
+     * 分面搜索，一次请求返回当前页图书、命中总数以及分类、出版社、出版年份和各级主题的分面统计
+     */
+    BookFacetSearchResult facetSearch(BookFacetSearchRequest request) throws IOException;
+}
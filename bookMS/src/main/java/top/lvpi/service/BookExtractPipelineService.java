@@ -0,0 +1,25 @@
+package top.lvpi.service;
+
+import top.lvpi.model.dto.task.TaskProgress;
+import top.lvpi.model.entity.Book;
+
+import java.util.List;
+
+/**
+ * 图书批量提取和索引流水线
+ * <p>
+ * 按"从MinIO下载 → 提取文本 → 写入章节 → 写入ES"四个阶段处理图书，各阶段使用独立的线程池，
+ * 阶段之间通过有界队列衔接，下游处理不过来时上游提交被阻塞，形成逐级反压。
+ * 每本图书的章节全部写入后立即进入索引阶段，不必等待其他图书提取完成。
+ */
+public interface BookExtractPipelineService {
+
+    /**
+     * 提取并索引一批图书，阻塞直到所有图书处理完成
+     *
+     * @param books    待处理的图书
+     * @param progress 任务进度，处理过程中持续更新
+     * @return 每本图书的处理结果汇总
+     */
+    String extractAndIndex(List<Book> books, TaskProgress progress) throws InterruptedException;
+}
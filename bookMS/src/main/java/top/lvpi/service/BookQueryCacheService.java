@@ -0,0 +1,47 @@
+package top.lvpi.service;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 图书查询结果缓存，写入图书时整体失效
+ */
+public interface BookQueryCacheService {
+
+    /**
+     * 获取缓存的分页查询结果，未命中时执行查询并写入缓存
+     * @param name 查询名称，用于区分不同查询和统计命中率
+     * @param params 规范化后的查询参数，序列化后作为缓存键的一部分
+     * @param recordType 分页记录的类型
+     * @param loader 实际执行查询
+     * @return 查询结果
+     */
+    <T> IPage<T> getPage(String name, Object params, Class<T> recordType, Supplier<IPage<T>> loader);
+
+    /**
+     * 获取缓存的列表查询结果，未命中时执行查询并写入缓存
+     * @param name 查询名称
+     * @param params 规范化后的查询参数
+     * @param elementType 列表元素的类型
+     * @param loader 实际执行查询
+     * @return 查询结果
+     */
+    <T> List<T> getList(String name, Object params, Class<T> elementType, Supplier<List<T>> loader);
+
+    /**
+     * 获取缓存的单值查询结果，未命中时执行查询并写入缓存
+     * @param name 查询名称
+     * @param params 规范化后的查询参数
+     * @param type 结果类型
+     * @param loader 实际执行查询
+     * @return 查询结果
+     */
+    <T> T getValue(String name, Object params, Class<T> type, Supplier<T> loader);
+
+    /**
+     * 使所有已缓存的查询结果失效。处于事务中时在事务结束后失效
+     */
+    void invalidate();
+}
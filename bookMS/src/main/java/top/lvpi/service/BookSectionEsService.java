@@ -1,5 +1,8 @@
 package top.lvpi.service;
 
+import top.lvpi.model.dto.es.BulkIndexResult;
+import top.lvpi.model.dto.es.SectionCursorPage;
+import top.lvpi.model.dto.es.SectionGroupPage;
 import top.lvpi.model.es.BookSectionDocument;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -34,10 +37,46 @@ public interface BookSectionEsService {
      */
     Page<BookSectionDocument> search(String keyword, String isbn, String bookId,String bookTitle,
             String author, String publisher, Integer pageNum, Pageable pageable);
+
+    /**
+     * 基于point-in-time和search_after的游标分页搜索章节，任意页的代价与第一页相同
+     *
+     * @param keyword    关键词
+     * @param isbn       ISBN
+     * @param bookId     书籍ID
+     * @param author     作者
+     * @param publisher  出版社
+     * @param pageNum    页码
+     * @param size       每页记录数
+     * @param cursor     上一页返回的游标，为空时开始新的搜索；翻页时其余条件需与首次查询一致
+     * @return 当前页结果及下一页游标
+     */
+    SectionCursorPage searchByCursor(String keyword, String isbn, String bookId, String bookTitle,
+            String author, String publisher, Integer pageNum, int size, String cursor);
+
+    /**
+     * 按图书分组搜索章节，每本书只占一条结果，附带该书得分最高的若干页和命中的章节数
+     *
+     * @param page         页码，从0开始，按图书计
+     * @param size         每页图书数
+     * @param pagesPerBook 每本书返回的页数
+     * @return 按最佳章节相关度排序的图书
+     */
+    SectionGroupPage searchGroupedByBook(String keyword, String isbn, String bookId, String bookTitle,
+            String author, String publisher, Integer pageNum, int page, int size, int pagesPerBook);
     
     /**
      * 导入图书章节到ES
      * @param bookId 图书ID
+     * @return 批量索引结果，包含最终失败的章节
+     */
+    BulkIndexResult importBookSections(Long bookId);
+
+    /**
+     * 导入图书章节到指定索引，用于重建索引时写入新版本索引
+     * @param bookId    图书ID
+     * @param indexName 目标索引名或别名
+     * @return 批量索引结果，包含最终失败的章节
      */
-    void importBookSections(Long bookId);
+    BulkIndexResult importBookSections(Long bookId, String indexName);
 } 
\ No newline at end of file
@@ -2,10 +2,13 @@ package top.lvpi.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import top.lvpi.model.dto.book.BookFacetSearchRequest;
+import top.lvpi.model.dto.book.BookFacetSearchResult;
 import top.lvpi.model.dto.book.BookAddRequest;
 import top.lvpi.model.dto.book.BookQueryRequest;
 import top.lvpi.model.dto.book.BookUpdateRequest;
 import top.lvpi.model.entity.Book;
+import top.lvpi.model.entity.OpacBookInfo;
 import top.lvpi.model.vo.BookVO;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -63,6 +66,11 @@ public interface BookService extends IService<Book> {
      */
     IPage<Book> nestedSearch(String keyword, Integer maxYear, int page, int size);
 
+    /**
+     * 分面搜索，返回当前页图书、命中总数和各维度的分面统计
+     */
+    BookFacetSearchResult facetSearch(BookFacetSearchRequest request);
+
     /**
      * 检查图书是否已有章节
      */
@@ -91,10 +99,12 @@ public interface BookService extends IService<Book> {
     String getAndSaveOpacInfo(Long id);
 
     /**
-     * 批量获取并保存图书OPAC信息
-     * @return 处理结果信息
+     * 将OPAC信息写入图书，并标记为已获取OPAC信息
+     * @param id 图书ID
+     * @param opacInfo OPAC信息
+     * @return 是否更新成功
      */
-    String batchGetAndSaveOpacInfo();
+    boolean saveOpacInfo(Long id, OpacBookInfo opacInfo);
 
     /**
      * 获取所有没有封面的图书列表
@@ -144,6 +154,13 @@ public interface BookService extends IService<Book> {
      * @return 是否解析成功
      */
     boolean parseBookOPACTopics(Long bookId);
+
+    /**
+     * 批量解析一批图书的OPAC主题标签，并批量更新这些图书的主题解析状态
+     * @param books 图书列表，需包含ID和主题字段
+     * @return 解析成功的图书数
+     */
+    int parseBooksOPACTopics(List<Book> books);
     
     /**
      * 标记图书的主题解析状态
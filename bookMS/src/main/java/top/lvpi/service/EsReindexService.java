@@ -0,0 +1,38 @@
+package top.lvpi.service;
+
+import top.lvpi.model.dto.task.TaskProgress;
+
+import java.io.IOException;
+
+/**
+ * ES章节索引重建服务
+ * <p>
+ * 对外始终通过别名 books 读写，实际数据存放在带版本号的索引（books_v1、books_v2 …）中。
+ * 重建时在后台从MySQL全量写入新版本索引，完成后原子切换别名，切换前搜索始终由旧索引提供。
+ */
+public interface EsReindexService {
+
+    /**
+     * 对外使用的索引别名
+     */
+    String BOOKS_ALIAS = "books";
+
+    /**
+     * 提交后台重建任务，进度通过任务ID查询
+     *
+     * @param reason 重建原因，用于日志和进度描述
+     * @return 重建任务进度
+     * @throws top.lvpi.common.BusinessException 已有重建任务在执行时抛出
+     */
+    TaskProgress startReindex(String reason);
+
+    /**
+     * 获取别名当前指向的索引，别名不存在时返回null
+     */
+    String getCurrentIndex() throws IOException;
+
+    /**
+     * 创建第一个版本索引并挂上别名，用于全新部署
+     */
+    void createInitialIndex() throws IOException;
+}
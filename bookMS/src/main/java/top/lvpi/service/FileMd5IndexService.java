@@ -0,0 +1,47 @@
+package top.lvpi.service;
+
+import top.lvpi.model.dto.task.TaskProgress;
+
+/**
+ * 文件MD5去重索引服务
+ * <p>
+ * 以文件MD5为主键记录已上传到MinIO的对象，上传前按MD5直接查找，不再遍历存储桶。
+ */
+public interface FileMd5IndexService {
+
+    /**
+     * 根据MD5查找已存在的对象
+     *
+     * @param md5 文件MD5值
+     * @return 对象名称，不存在时返回null
+     */
+    String findFileName(String md5);
+
+    /**
+     * 登记新上传的对象
+     * <p>
+     * 并发上传相同内容时只有一个对象能登记成功，返回值为最终生效的对象名称，
+     * 与传入的名称不同时调用方应删除自己上传的对象并改用返回值。
+     *
+     * @param md5      文件MD5值
+     * @param fileName 对象名称
+     * @param fileSize 文件大小
+     * @return 该MD5最终对应的对象名称
+     */
+    String register(String md5, String fileName, long fileSize);
+
+    /**
+     * 删除指向某个对象的索引，对象被删除或不再使用时调用，避免之后的上传复用不存在的对象
+     *
+     * @param fileName 对象名称
+     */
+    void remove(String fileName);
+
+    /**
+     * 提交后台回填任务，从存储桶对象的md5元数据重建索引，进度通过任务ID查询
+     *
+     * @return 回填任务进度
+     * @throws top.lvpi.common.BusinessException 已有回填任务在执行时抛出
+     */
+    TaskProgress startBackfill();
+}
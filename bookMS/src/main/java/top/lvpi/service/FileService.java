@@ -1,5 +1,6 @@
 package top.lvpi.service;
 
+import top.lvpi.model.dto.file.FileStat;
 import top.lvpi.model.dto.file.FileUploadResult;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.OutputStream;
@@ -23,6 +24,24 @@ public interface FileService {
      */
     void downloadFile(String filePath, OutputStream outputStream);
 
+    /**
+     * 下载文件的指定字节区间
+     * @param fileName 文件名
+     * @param offset 起始偏移量
+     * @param length 读取长度
+     * @param outputStream 输出流
+     * @throws IOException IO异常
+     */
+    void downloadFile(String fileName, long offset, long length, OutputStream outputStream) throws IOException;
+
+    /**
+     * 获取文件元信息
+     * @param fileName 文件名
+     * @return 文件大小、ETag等信息
+     * @throws IOException IO异常
+     */
+    FileStat statFile(String fileName) throws IOException;
+
     /**
      * 获取文件预览地址
      */
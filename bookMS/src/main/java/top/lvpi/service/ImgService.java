@@ -1,8 +1,13 @@
 package top.lvpi.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import top.lvpi.common.CoverSize;
+import top.lvpi.model.dto.task.TaskProgress;
 import top.lvpi.model.entity.Img;
 
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
 public interface ImgService extends IService<Img> {
     /**
      * 保存图片
@@ -12,6 +17,22 @@ public interface ImgService extends IService<Img> {
      */
     Long saveImage(String base64Data, Long bookId);
 
+    /**
+     * 保存图片
+     * @param imageBytes 图片二进制数据
+     * @param bookId 书籍ID
+     * @return 图片ID
+     */
+    Long saveImage(byte[] imageBytes, Long bookId);
+
+    /**
+     * 保存封面，生成并保存各尺寸的图片
+     * @param image 封面原图（如PDF首页渲染结果）
+     * @param bookId 书籍ID
+     * @return 图片ID
+     */
+    Long saveCover(BufferedImage image, Long bookId);
+
     /**
      * 获取图片
      * @param bookId 书籍ID
@@ -25,4 +46,48 @@ public interface ImgService extends IService<Img> {
      * @return 图片base64数据
      */
     String getImageById(Long imgId);
-} 
\ No newline at end of file
+
+    /**
+     * 获取图片元信息（不含图片数据）
+     * @param imgId 图片ID
+     * @return 图片元信息，不存在时返回null
+     */
+    Img getImageMeta(Long imgId);
+
+    /**
+     * 获取书籍封面的元信息（不含图片数据）
+     * @param bookId 书籍ID
+     * @return 图片元信息，不存在时返回null
+     */
+    Img getImageMetaByBookId(Long bookId);
+
+    /**
+     * 读取默认尺寸的图片二进制数据，兼容尚未迁移的base64数据
+     * @param img 图片元信息
+     * @return 图片二进制数据
+     */
+    byte[] getImageBytes(Img img) throws IOException;
+
+    /**
+     * 读取指定尺寸的图片二进制数据，该尺寸未生成时返回默认尺寸
+     * @param img 图片元信息
+     * @param size 封面尺寸
+     * @return 图片二进制数据
+     */
+    byte[] getImageBytes(Img img, CoverSize size) throws IOException;
+
+    /**
+     * 实际可提供的尺寸，请求的尺寸未生成时返回默认尺寸
+     * @param img 图片元信息
+     * @param size 请求的封面尺寸
+     * @return 实际尺寸
+     */
+    CoverSize resolveSize(Img img, CoverSize size);
+
+    /**
+     * 提交后台迁移任务，将lp_img中的base64数据分批转存到MinIO，进度通过任务ID查询
+     * @return 迁移任务进度
+     * @throws top.lvpi.common.BusinessException 已有迁移任务在执行时抛出
+     */
+    TaskProgress startMigration();
+}
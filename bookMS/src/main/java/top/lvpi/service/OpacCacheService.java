@@ -0,0 +1,86 @@
+package top.lvpi.service;
+
+import top.lvpi.model.entity.OpacBookInfo;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * OPAC查询结果缓存
+ * <p>
+ * 以规范化的13位ISBN为键，把解析后的OpacBookInfo存入Redis，"没有记录"的结果也会缓存，
+ * 两者使用不同的过期时间。服务暂不可用等暂时性失败不缓存。
+ */
+public interface OpacCacheService {
+
+    /**
+     * 获取图书OPAC信息，优先读取缓存，未命中时请求OPAC并写入缓存
+     *
+     * @param isbn ISBN，10位或13位，可带分隔符
+     * @return 图书信息，OPAC中没有该ISBN的记录时返回null
+     * @throws top.lvpi.utils.BookUtils.OpacUnavailableException OPAC暂不可用，可稍后重试
+     * @throws IOException 网络异常
+     */
+    OpacBookInfo getBookInfo(String isbn) throws IOException;
+
+    /**
+     * 只读取缓存，不请求OPAC
+     *
+     * @param isbn ISBN，10位或13位，可带分隔符
+     * @return 查询结果，未命中时 {@link Lookup#isCached()} 为false
+     */
+    Lookup lookup(String isbn);
+
+    /**
+     * 请求OPAC并写入缓存，不读取缓存
+     *
+     * @param isbn ISBN，10位或13位，可带分隔符
+     * @return 图书信息，OPAC中没有该ISBN的记录时返回null
+     * @throws top.lvpi.utils.BookUtils.OpacUnavailableException OPAC暂不可用，可稍后重试
+     * @throws IOException 网络异常
+     */
+    OpacBookInfo fetchAndCache(String isbn) throws IOException;
+
+    /**
+     * 删除某个ISBN的缓存
+     */
+    void evict(String isbn);
+
+    /**
+     * 缓存命中统计：hit 命中有效记录，negativeHit 命中"没有记录"，miss 未命中
+     */
+    Map<String, Long> getStats();
+
+    /**
+     * 缓存读取结果，命中"没有记录"时 cached 为true、info 为null
+     */
+    final class Lookup {
+
+        private static final Lookup MISS = new Lookup(false, null);
+
+        private final boolean cached;
+
+        private final OpacBookInfo info;
+
+        private Lookup(boolean cached, OpacBookInfo info) {
+            this.cached = cached;
+            this.info = info;
+        }
+
+        public static Lookup miss() {
+            return MISS;
+        }
+
+        public static Lookup of(OpacBookInfo info) {
+            return new Lookup(true, info);
+        }
+
+        public boolean isCached() {
+            return cached;
+        }
+
+        public OpacBookInfo getInfo() {
+            return info;
+        }
+    }
+}
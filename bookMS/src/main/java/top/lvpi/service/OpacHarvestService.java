@@ -0,0 +1,26 @@
+package top.lvpi.service;
+
+import top.lvpi.model.dto.task.TaskProgress;
+
+/**
+ * OPAC信息批量采集服务
+ * <p>
+ * 按图书ID顺序分页读取未获取OPAC信息的图书，多个请求并发执行，整体请求速率由令牌桶限制。
+ * 暂时性失败按带随机抖动的指数退避重试。每处理完一页就把最后的图书ID作为检查点写入Redis，
+ * 中断后再次执行时从检查点继续，完整执行结束后清除检查点。
+ */
+public interface OpacHarvestService {
+
+    /**
+     * 采集所有未获取OPAC信息的图书，阻塞直到完成
+     *
+     * @param progress 任务进度，处理过程中持续更新
+     * @return 处理结果汇总
+     */
+    String harvest(TaskProgress progress) throws InterruptedException;
+
+    /**
+     * 清除检查点，下次从头开始采集
+     */
+    void resetCheckpoint();
+}
@@ -0,0 +1,46 @@
+package top.lvpi.service;
+
+import top.lvpi.common.TaskType;
+import top.lvpi.model.dto.task.TaskProgress;
+
+/**
+ * 后台任务服务
+ * <p>
+ * 每种任务类型在独立的有界线程池中执行，队列已满时拒绝提交。
+ * 任务进度定期写入Redis，任意节点都能查询；任务结束后进度按配置的时间保留，到期自动清除。
+ */
+public interface TaskService {
+
+    /**
+     * 提交后台任务
+     *
+     * @param type        任务类型
+     * @param key         去重键，同类型同键的任务同时只能有一个在执行，为null时不去重
+     * @param initialStep 初始步骤描述
+     * @param handler     任务逻辑，可通过传入的进度对象更新进度
+     * @return 任务进度
+     * @throws top.lvpi.common.BusinessException 同键任务正在执行或队列已满时抛出
+     */
+    TaskProgress submit(TaskType type, String key, String initialStep, TaskHandler handler);
+
+    /**
+     * 查询任务进度，任务不存在或已过期时返回null
+     */
+    TaskProgress getTask(String taskId);
+
+    /**
+     * 任务逻辑
+     */
+    @FunctionalInterface
+    interface TaskHandler {
+
+        /**
+         * 执行任务。正常返回且未自行设置状态时视为成功，返回值作为结果；
+         * 抛出异常时任务标记为失败，异常信息作为错误信息
+         *
+         * @param progress 任务进度，执行过程中直接修改
+         * @return 任务结果
+         */
+        String run(TaskProgress progress) throws Exception;
+    }
+}
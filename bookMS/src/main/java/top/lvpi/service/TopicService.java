@@ -5,7 +5,10 @@ import top.lvpi.model.dto.topic.TopicImportDTO;
 import top.lvpi.model.dto.topic.TopicPathDTO;
 import top.lvpi.model.dto.topic.TopicTreeDTO;
 import top.lvpi.model.entity.Topic;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface TopicService extends IService<Topic> {
     /**
@@ -29,6 +32,13 @@ public interface TopicService extends IService<Topic> {
      */
     List<Topic> getTopicWithParents(Long topicId);
 
+    /**
+     * 批量获取主题路径，不访问数据库
+     * @param topicIds 主题ID
+     * @return 主题ID到路径的映射，路径按层级排序（从顶级主题到当前主题），主题不存在时为空列表
+     */
+    Map<Long, List<Topic>> getTopicPaths(Collection<Long> topicIds);
+
     /**
      * 获取书籍的所有主题路径（格式化）
      * @param bookId 书籍ID
@@ -36,6 +46,13 @@ public interface TopicService extends IService<Topic> {
      */
     List<TopicPathDTO> getBookTopicPaths(Long bookId);
 
+    /**
+     * 批量获取多本书籍的主题路径（格式化），一次查询取出所有关联
+     * @param bookIds 书籍ID
+     * @return 书籍ID到主题路径列表的映射，没有主题的书籍不在结果中
+     */
+    Map<Long, List<TopicPathDTO>> getBooksTopicPaths(Collection<Long> bookIds);
+
     /**
      * 批量导入主题
      * @param topicImportDTO 主题导入数据
@@ -44,6 +61,19 @@ public interface TopicService extends IService<Topic> {
     Long importTopics(TopicImportDTO topicImportDTO);
 
     List<Topic> getBookTopicTags(Long bookId);
+
+    /**
+     * 批量获取多本图书的标签，用一条关联查询代替逐本查询
+     * @param bookIds 图书ID
+     * @return 图书ID到标签列表的映射，没有标签的图书对应空列表
+     */
+    Map<Long, List<Topic>> getBookTopicTags(Collection<Long> bookIds);
+
+    /**
+     * 图书标签变更后清除该书的标签缓存
+     * @param bookId 图书ID
+     */
+    void evictBookTopicTags(Long bookId);
         
     /**
      * 解析书籍OPAC主题词并建立关联
@@ -52,4 +82,11 @@ public interface TopicService extends IService<Topic> {
      * @return 是否处理成功
      */
     boolean parseBookOPACTopics(Long bookId, String topicContent);
+
+    /**
+     * 批量解析多本书籍的OPAC主题词并建立关联，已有主题按层级用IN查询匹配，缺少的主题和关联批量写入
+     * @param topicContents 书籍ID到主题词内容的映射
+     * @return 处理成功的书籍ID，主题词为空的书籍不在其中
+     */
+    Set<Long> parseBooksOPACTopics(Map<Long, String> topicContents);
 } 
\ No newline at end of file
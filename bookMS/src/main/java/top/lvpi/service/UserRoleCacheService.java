@@ -0,0 +1,24 @@
+package top.lvpi.service;
+
+import java.util.List;
+
+/**
+ * 用户角色缓存，Sa-Token鉴权时按登录ID读取角色，避免每次请求查询用户表
+ */
+public interface UserRoleCacheService {
+
+    /**
+     * 获取用户的角色标识列表，未缓存或已过期时从数据库加载
+     *
+     * @param userId 用户ID
+     * @return 角色标识列表，用户不存在时为空列表
+     */
+    List<String> getRoleList(Long userId);
+
+    /**
+     * 清除用户的角色缓存，用户角色变更、删除或登出时调用
+     *
+     * @param userId 用户ID
+     */
+    void evict(Long userId);
+}
@@ -0,0 +1,543 @@
+package top.lvpi.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.RangeQuery;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
+import co.elastic.clients.json.JsonData;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import top.lvpi.common.BusinessException;
+import top.lvpi.common.ErrorCode;
+import top.lvpi.common.TaskType;
+import top.lvpi.mapper.BookMapper;
+import top.lvpi.model.dto.book.BookFacetSearchRequest;
+import top.lvpi.model.dto.book.BookFacetSearchResult;
+import top.lvpi.model.dto.es.BulkIndexResult;
+import top.lvpi.model.dto.task.TaskProgress;
+import top.lvpi.model.dto.topic.TopicPathDTO;
+import top.lvpi.model.entity.Book;
+import top.lvpi.model.es.BookCatalogDocument;
+import top.lvpi.service.BookCatalogService;
+import top.lvpi.service.TaskService;
+import top.lvpi.service.TopicService;
+import top.lvpi.utils.EsBulkIndexer;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class BookCatalogServiceImpl implements BookCatalogService {
+
+    private static final String VERSION_PREFIX = CATALOG_ALIAS + "_v";
+
+    private static final String MAPPING_FILE = "classpath:es/book-catalog-mapping.json";
+
+    /**
+     * ES默认的最大分页深度（from + size）
+     */
+    private static final int MAX_RESULT_WINDOW = 10000;
+
+    /**
+     * 同步时每个bulk请求的最大图书数
+     */
+    private static final int SYNC_BATCH_SIZE = 500;
+
+    /**
+     * 主题分面的层级数，对应 topic_levels.lvl0 ~ lvl4
+     */
+    private static final int TOPIC_LEVELS = 5;
+
+    private static final String TOPIC_PATH_SEPARATOR = " > ";
+
+    @Autowired
+    private ElasticsearchClient esClient;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private EsBulkIndexer esBulkIndexer;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TopicService topicService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 全量写入时每次从MySQL读取的图书数
+     */
+    @Value("${es.catalog.rebuild-page-size:1000}")
+    private int rebuildPageSize;
+
+    /**
+     * 分面搜索统计命中总数的上限，超过后只返回下限；小于0时精确统计
+     */
+    @Value("${es.catalog.track-total-hits-up-to:10000}")
+    private int trackTotalHitsUpTo;
+
+    /**
+     * 分类、出版社、主题分面返回的取值数
+     */
+    @Value("${es.catalog.facet-size:20}")
+    private int facetSize;
+
+    /**
+     * 出版年份分面的区间跨度（年）
+     */
+    @Value("${es.catalog.year-interval:1}")
+    private int yearInterval;
+
+    @Override
+    public void initIndex() throws IOException {
+        if (!resolveAlias().isEmpty()) {
+            // 映射只会新增字段，同步到已有索引；已有文档在下次重建或修改时补全新字段
+            esClient.indices().putMapping(p -> p
+                    .index(CATALOG_ALIAS)
+                    .withJson(new StringReader(objectMapper.readTree(readMapping()).get("mappings").toString())));
+            return;
+        }
+        String indexName = VERSION_PREFIX + nextVersion();
+        createIndex(indexName);
+        esClient.indices().updateAliases(u -> u
+                .actions(a -> a.add(add -> add.index(indexName).alias(CATALOG_ALIAS))));
+        log.info("已创建图书目录索引{}并指向别名{}，后台写入全部图书", indexName, CATALOG_ALIAS);
+        // 新索引在写入完成前搜索结果不完整
+        taskService.submit(TaskType.CATALOG_REBUILD, "all", "写入图书目录索引" + indexName, task -> {
+            long count = fill(CATALOG_ALIAS, task);
+            return String.format("图书目录索引%s已写入%d本图书", indexName, count);
+        });
+    }
+
+    @Override
+    public void sync(Collection<Long> bookIds) {
+        if (bookIds == null || bookIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(bookIds));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 提交后再读取MySQL，保证写入索引的是已提交的数据
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    // 在请求线程上执行，不等待刷新，新数据在下一次刷新（默认1秒）后可搜索
+                    doSync(ids, Refresh.False);
+                }
+            });
+        } else {
+            doSync(ids, Refresh.False);
+        }
+    }
+
+    @Override
+    public TaskProgress startRebuild() {
+        return taskService.submit(TaskType.CATALOG_REBUILD, "all", "准备重建图书目录索引", this::rebuild);
+    }
+
+    @Override
+    public IPage<Book> search(String keyword, int page, int size) throws IOException {
+        // ISBN精确匹配或书名、作者、摘要全文匹配
+        Query query = BoolQuery.of(b -> b
+                .should(keywordQuery(keyword, "title^3", "author.text^2", "summary"))
+                .should(s -> s.term(t -> t.field("isbn").value(keyword.trim())))
+                .minimumShouldMatch("1"))._toQuery();
+        return searchPage(query, page, size);
+    }
+
+    @Override
+    public IPage<Book> advancedSearch(String keyword, String category, String author,
+                                      Integer yearFrom, Integer yearTo, int page, int size) throws IOException {
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+        if (StringUtils.isNotBlank(keyword)) {
+            bool.must(keywordQuery(keyword, "title^3", "summary"));
+        }
+        if (StringUtils.isNotBlank(category)) {
+            bool.filter(f -> f.term(t -> t.field("category").value(category)));
+        }
+        if (StringUtils.isNotBlank(author)) {
+            bool.must(authorQuery(author));
+        }
+        if (yearFrom != null || yearTo != null) {
+            RangeQuery.Builder range = new RangeQuery.Builder().field("publication_year");
+            if (yearFrom != null) {
+                range.gte(JsonData.of(yearFrom));
+            }
+            if (yearTo != null) {
+                range.lte(JsonData.of(yearTo));
+            }
+            bool.filter(range.build()._toQuery());
+        }
+        return searchPage(bool.build()._toQuery(), page, size);
+    }
+
+    @Override
+    public IPage<Book> templateSearch(String field, String value, int page, int size) throws IOException {
+        Query query = switch (field) {
+            case "title" -> keywordQuery(value, "title");
+            case "author" -> authorQuery(value);
+            case "category" -> Query.of(q -> q.term(t -> t.field("category").value(value)));
+            case "isbn" -> Query.of(q -> q.term(t -> t.field("isbn").value(value)));
+            default -> throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的搜索字段");
+        };
+        return searchPage(query, page, size);
+    }
+
+    @Override
+    public IPage<Book> nestedSearch(String keyword, Integer maxYear, int page, int size) throws IOException {
+        BoolQuery.Builder bool = new BoolQuery.Builder()
+                .must(keywordQuery(keyword, "title^3", "author.text^2", "summary"));
+        if (maxYear != null) {
+            bool.filter(RangeQuery.of(r -> r.field("publication_year").lte(JsonData.of(maxYear)))._toQuery());
+        }
+        return searchPage(bool.build()._toQuery(), page, size);
+    }
+
+    @Override
+    public BookFacetSearchResult facetSearch(BookFacetSearchRequest request) throws IOException {
+        int from = (request.getCurrent() - 1) * request.getSize();
+        if (from + request.getSize() > MAX_RESULT_WINDOW) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "最多只能查看前" + MAX_RESULT_WINDOW + "条结果");
+        }
+
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+        if (StringUtils.isNotBlank(request.getKeyword())) {
+            bool.must(keywordQuery(request.getKeyword(), "title^3", "sub_title", "author.text^2", "summary", "key_word"));
+        }
+        if (StringUtils.isNotBlank(request.getCategory())) {
+            bool.filter(f -> f.term(t -> t.field("category").value(request.getCategory())));
+        }
+        if (StringUtils.isNotBlank(request.getPublisher())) {
+            bool.filter(f -> f.term(t -> t.field("publisher").value(request.getPublisher())));
+        }
+        if (request.getYearFrom() != null || request.getYearTo() != null) {
+            RangeQuery.Builder range = new RangeQuery.Builder().field("publication_year");
+            if (request.getYearFrom() != null) {
+                range.gte(JsonData.of(request.getYearFrom()));
+            }
+            if (request.getYearTo() != null) {
+                range.lte(JsonData.of(request.getYearTo()));
+            }
+            bool.filter(range.build()._toQuery());
+        }
+        if (StringUtils.isNotBlank(request.getTopic())) {
+            // 路径中" > "的个数即层级
+            String topic = request.getTopic().trim();
+            int level = StringUtils.countMatches(topic, TOPIC_PATH_SEPARATOR);
+            if (level >= TOPIC_LEVELS) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "主题层级超出范围");
+            }
+            bool.filter(f -> f.term(t -> t.field("topic_levels.lvl" + level).value(topic)));
+        }
+
+        // 命中、总数和全部分面在同一个请求中返回
+        SearchResponse<Void> response = esClient.search(s -> {
+            s.index(CATALOG_ALIAS)
+                    .query(bool.build()._toQuery())
+                    .from(from)
+                    .size(request.getSize())
+                    .source(src -> src.fetch(false))
+                    .trackTotalHits(t -> trackTotalHitsUpTo < 0 ? t.enabled(true) : t.count(trackTotalHitsUpTo))
+                    .aggregations("category", a -> a.terms(t -> t.field("category").size(facetSize)))
+                    .aggregations("publisher", a -> a.terms(t -> t.field("publisher").size(facetSize)))
+                    .aggregations("publication_year", a -> a.histogram(h -> h
+                            .field("publication_year")
+                            .interval((double) yearInterval)
+                            .minDocCount(1)));
+            for (int i = 0; i < TOPIC_LEVELS; i++) {
+                String field = "topic_levels.lvl" + i;
+                s.aggregations("topic_lvl" + i, a -> a.terms(t -> t.field(field).size(facetSize)));
+            }
+            return s;
+        }, Void.class);
+
+        BookFacetSearchResult result = new BookFacetSearchResult();
+        result.setCurrent(request.getCurrent());
+        result.setSize(request.getSize());
+        result.setRecords(loadBooks(response));
+        TotalHits total = response.hits().total();
+        result.setTotal(total != null ? total.value() : result.getRecords().size());
+        result.setTotalExact(total == null || total.relation() == TotalHitsRelation.Eq);
+
+        Map<String, List<BookFacetSearchResult.FacetBucket>> facets = result.getFacets();
+        facets.put("category", termsBuckets(response.aggregations().get("category")));
+        facets.put("publisher", termsBuckets(response.aggregations().get("publisher")));
+        facets.put("publication_year", response.aggregations().get("publication_year").histogram().buckets().array()
+                .stream()
+                .map(b -> new BookFacetSearchResult.FacetBucket(String.valueOf((long) b.key()), b.docCount()))
+                .collect(Collectors.toList()));
+        for (int i = 0; i < TOPIC_LEVELS; i++) {
+            facets.put("topic_lvl" + i, termsBuckets(response.aggregations().get("topic_lvl" + i)));
+        }
+        return result;
+    }
+
+    private static List<BookFacetSearchResult.FacetBucket> termsBuckets(Aggregate aggregate) {
+        return aggregate.sterms().buckets().array().stream()
+                .map(b -> new BookFacetSearchResult.FacetBucket(b.key().stringValue(), b.docCount()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 全文匹配，所有词都需出现，接近原来 LIKE '%kw%' 的结果
+     */
+    private Query keywordQuery(String keyword, String... fields) {
+        return Query.of(q -> q.multiMatch(m -> m
+                .query(keyword)
+                .fields(List.of(fields))
+                .operator(Operator.And)));
+    }
+
+    /**
+     * 作者完全相同，或作者中包含该短语
+     */
+    private Query authorQuery(String author) {
+        return BoolQuery.of(b -> b
+                .should(s -> s.term(t -> t.field("author").value(author)))
+                .should(s -> s.matchPhrase(m -> m.field("author.text").query(author)))
+                .minimumShouldMatch("1"))._toQuery();
+    }
+
+    /**
+     * 从ES取当前页的图书ID，再从MySQL按ID读取图书，保持ES的排序
+     */
+    private IPage<Book> searchPage(Query query, int page, int size) throws IOException {
+        int from = (page - 1) * size;
+        if (from + size > MAX_RESULT_WINDOW) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "最多只能查看前" + MAX_RESULT_WINDOW + "条结果");
+        }
+        SearchResponse<Void> response = esClient.search(s -> s
+                .index(CATALOG_ALIAS)
+                .query(query)
+                .from(from)
+                .size(size)
+                .source(src -> src.fetch(false))
+                .trackTotalHits(t -> t.enabled(true)),
+            Void.class);
+
+        List<Book> records = loadBooks(response);
+        long total = response.hits().total() != null ? response.hits().total().value() : records.size();
+        Page<Book> result = new Page<>(page, size, total);
+        result.setRecords(records);
+        return result;
+    }
+
+    /**
+     * 按命中顺序从MySQL读取图书，已从MySQL删除但索引尚未同步的跳过
+     */
+    private List<Book> loadBooks(SearchResponse<Void> response) {
+        List<Long> ids = new ArrayList<>();
+        for (Hit<Void> hit : response.hits().hits()) {
+            ids.add(Long.valueOf(hit.id()));
+        }
+        List<Book> records = new ArrayList<>(ids.size());
+        if (!ids.isEmpty()) {
+            Map<Long, Book> books = bookMapper.selectBatchIds(ids).stream()
+                    .collect(Collectors.toMap(Book::getId, Function.identity()));
+            for (Long id : ids) {
+                Book book = books.get(id);
+                if (book != null) {
+                    records.add(book);
+                }
+            }
+        }
+        return records;
+    }
+
+    private void doSync(List<Long> bookIds, Refresh refresh) {
+        for (List<Long> ids : CollUtil.split(bookIds, SYNC_BATCH_SIZE)) {
+            syncBatch(ids, refresh);
+        }
+    }
+
+    private void syncBatch(List<Long> ids, Refresh refresh) {
+        try {
+            Map<Long, Book> books = bookMapper.selectBatchIds(ids).stream()
+                    .collect(Collectors.toMap(Book::getId, Function.identity()));
+            Map<Long, List<TopicPathDTO>> topicPaths = topicService.getBooksTopicPaths(ids);
+            BulkRequest.Builder bulk = new BulkRequest.Builder();
+            for (Long id : ids) {
+                Book book = books.get(id);
+                if (book != null && !isDeleted(book)) {
+                    bulk.operations(op -> op.index(i -> i
+                            .index(CATALOG_ALIAS)
+                            .id(String.valueOf(id))
+                            .document(BookCatalogDocument.of(book, topicPaths.get(id)))));
+                } else {
+                    bulk.operations(op -> op.delete(d -> d
+                            .index(CATALOG_ALIAS)
+                            .id(String.valueOf(id))));
+                }
+            }
+            BulkResponse response = esClient.bulk(bulk.refresh(refresh).build());
+            for (BulkResponseItem item : response.items()) {
+                if (item.error() != null) {
+                    log.warn("同步图书{}到目录索引失败: {}", item.id(), item.error().reason());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("同步图书到目录索引失败，图书ID:{}，可重建目录索引修复", ids, e);
+        }
+    }
+
+    private String rebuild(TaskProgress task) throws IOException {
+        List<String> oldIndices = resolveAlias();
+        String newIndex = VERSION_PREFIX + nextVersion();
+        task.setCurrentStep("创建索引" + newIndex);
+        createIndex(newIndex);
+        // 重建期间的修改写入旧索引，切换后补写
+        Date startedAt = new Date();
+        try {
+            long count = fill(newIndex, task);
+            esClient.indices().refresh(r -> r.index(newIndex));
+
+            task.setCurrentStep("切换别名到" + newIndex).setProgress(95);
+            esClient.indices().updateAliases(u -> {
+                u.actions(a -> a.add(add -> add.index(newIndex).alias(CATALOG_ALIAS)));
+                for (String oldIndex : oldIndices) {
+                    u.actions(a -> a.remove(remove -> remove.index(oldIndex).alias(CATALOG_ALIAS)));
+                }
+                return u;
+            });
+            if (!oldIndices.isEmpty()) {
+                esClient.indices().delete(d -> d.index(oldIndices));
+            }
+            log.info("图书目录别名{}已从{}切换到{}，共写入{}本图书", CATALOG_ALIAS, oldIndices, newIndex, count);
+        } catch (Exception e) {
+            // 别名尚未切换，删除半成品索引，搜索仍由旧索引提供
+            try {
+                esClient.indices().delete(d -> d.index(newIndex));
+            } catch (Exception ex) {
+                log.warn("删除未完成的索引{}失败", newIndex, ex);
+            }
+            throw e;
+        }
+
+        List<Long> changed = bookMapper.selectList(new LambdaQueryWrapper<Book>()
+                        .select(Book::getId)
+                        .ge(Book::getModifiedTime, startedAt))
+                .stream().map(Book::getId).collect(Collectors.toList());
+        if (!changed.isEmpty()) {
+            // 后台任务中执行，等待刷新后再返回
+            doSync(changed, Refresh.WaitFor);
+        }
+        return String.format("图书目录索引%s重建完成，重建期间修改的%d本图书已补写", newIndex, changed.size());
+    }
+
+    /**
+     * 按ID顺序分页读取所有未删除的图书写入指定索引
+     *
+     * @return 写入的图书数
+     */
+    private long fill(String index, TaskProgress task) throws IOException {
+        long total = bookMapper.selectCount(notDeleted());
+        EsBulkIndexer.Session<BookCatalogDocument> session = esBulkIndexer.openSession(
+                index, document -> String.valueOf(document.getId()), document -> document);
+        long lastId = 0;
+        long written = 0;
+        while (true) {
+            List<Book> books = bookMapper.selectList(notDeleted()
+                    .gt(Book::getId, lastId)
+                    .orderByAsc(Book::getId)
+                    .last("LIMIT " + rebuildPageSize));
+            if (books.isEmpty()) {
+                break;
+            }
+            Map<Long, List<TopicPathDTO>> topicPaths = topicService.getBooksTopicPaths(
+                    books.stream().map(Book::getId).collect(Collectors.toList()));
+            for (Book book : books) {
+                session.add(BookCatalogDocument.of(book, topicPaths.get(book.getId())));
+            }
+            lastId = books.get(books.size() - 1).getId();
+            written += books.size();
+            task.setCurrentStep(String.format("写入%s：%d/%d", index, written, total))
+                    .setProgress(total == 0 ? 90 : (int) Math.min(90, written * 90 / total));
+        }
+        BulkIndexResult result = session.finish();
+        if (result.hasFailures()) {
+            throw new IOException(String.format("%d本图书写入%s失败", result.getFailures().size(), index));
+        }
+        return written;
+    }
+
+    private static LambdaQueryWrapper<Book> notDeleted() {
+        return new LambdaQueryWrapper<Book>()
+                .and(w -> w.isNull(Book::getIsDeleted).or().ne(Book::getIsDeleted, 1));
+    }
+
+    private static boolean isDeleted(Book book) {
+        return book.getIsDeleted() != null && book.getIsDeleted() == 1;
+    }
+
+    private List<String> resolveAlias() throws IOException {
+        if (!esClient.indices().existsAlias(e -> e.name(CATALOG_ALIAS)).value()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(esClient.indices().getAlias(g -> g.name(CATALOG_ALIAS)).result().keySet());
+    }
+
+    private int nextVersion() throws IOException {
+        int max = 0;
+        for (String name : esClient.indices().get(g -> g.index(VERSION_PREFIX + "*")).result().keySet()) {
+            try {
+                max = Math.max(max, Integer.parseInt(name.substring(VERSION_PREFIX.length())));
+            } catch (NumberFormatException ignored) {
+                // 非版本号命名的索引
+            }
+        }
+        return max + 1;
+    }
+
+    private String readMapping() throws IOException {
+        return new String(resourceLoader.getResource(MAPPING_FILE).getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8);
+    }
+
+    private void createIndex(String indexName) throws IOException {
+        String mappingJson = readMapping();
+        CreateIndexResponse response = esClient.indices().create(c -> c
+                .index(indexName)
+                .withJson(new StringReader(mappingJson)));
+        if (!response.acknowledged()) {
+            throw new IOException("创建索引" + indexName + "失败");
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package top.lvpi.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import top.lvpi.model.dto.book.BookUpdateRequest;
+import top.lvpi.model.dto.es.BulkIndexResult;
+import top.lvpi.model.dto.file.LpBookFileDTO;
+import top.lvpi.model.dto.task.TaskProgress;
+import top.lvpi.model.entity.Book;
+import top.lvpi.model.entity.BookSection;
+import top.lvpi.model.entity.LpFile;
+import top.lvpi.service.BookExtractPipelineService;
+import top.lvpi.service.BookFileService;
+import top.lvpi.service.BookSectionEsService;
+import top.lvpi.service.BookSectionService;
+import top.lvpi.service.BookService;
+import top.lvpi.service.FileService;
+import top.lvpi.service.LpFileService;
+import top.lvpi.utils.ParallelPdfExtractor;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Service
+@Slf4j
+public class BookExtractPipelineServiceImpl implements BookExtractPipelineService {
+
+    /**
+     * 队列已满时阻塞提交线程，而不是丢弃任务或由提交线程执行，反压由此逐级传递到上游
+     */
+    private static final RejectedExecutionHandler BLOCK_WHEN_FULL = (task, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("流水线已停止");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("流水线提交被中断", e);
+        }
+    };
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookSectionService bookSectionService;
+
+    @Autowired
+    private BookFileService bookFileService;
+
+    @Autowired
+    private LpFileService lpFileService;
+
+    @Autowired
+    private BookSectionEsService bookSectionEsService;
+
+    @Autowired
+    private ParallelPdfExtractor parallelPdfExtractor;
+
+    // 章节批量写入的批次大小
+    @Value("${book.section.batch-size:500}")
+    private int sectionBatchSize;
+
+    // 同时从MinIO下载的图书数
+    @Value("${book.pipeline.fetch-concurrency:2}")
+    private int fetchConcurrency;
+
+    // 等待下载的图书队列容量
+    @Value("${book.pipeline.fetch-queue-capacity:4}")
+    private int fetchQueueCapacity;
+
+    // 同时提取文本的图书数，单本图书内部仍按页区间并行
+    @Value("${book.pipeline.extract-concurrency:1}")
+    private int extractConcurrency;
+
+    // 已下载、等待提取的图书队列容量，决定同时存在的临时文件数
+    @Value("${book.pipeline.extract-queue-capacity:2}")
+    private int extractQueueCapacity;
+
+    // 同时写入章节的线程数
+    @Value("${book.pipeline.persist-concurrency:2}")
+    private int persistConcurrency;
+
+    // 等待写入的章节批次队列容量
+    @Value("${book.pipeline.persist-queue-capacity:8}")
+    private int persistQueueCapacity;
+
+    // 同时写入ES的图书数
+    @Value("${book.pipeline.index-concurrency:1}")
+    private int indexConcurrency;
+
+    // 章节已写入、等待索引的图书队列容量
+    @Value("${book.pipeline.index-queue-capacity:4}")
+    private int indexQueueCapacity;
+
+    @Override
+    public String extractAndIndex(List<Book> books, TaskProgress progress) throws InterruptedException {
+        Pipeline pipeline = new Pipeline(books.size(), progress);
+        try {
+            for (Book book : books) {
+                pipeline.submitFetch(new BookJob(book));
+            }
+            pipeline.await();
+        } finally {
+            pipeline.shutdown();
+        }
+
+        StringBuilder resultBuilder = new StringBuilder();
+        for (Book book : books) {
+            resultBuilder.append(String.format("图书ID:%d，名称：%s - %s\n", book.getId(), book.getTitle(),
+                    pipeline.results.getOrDefault(book.getId(), "未处理")));
+        }
+        log.info("批量提取和索引完成，共{}本图书，成功{}本", books.size(), pipeline.succeeded.get());
+        return resultBuilder.toString();
+    }
+
+    private static ThreadPoolExecutor stagePool(String name, int threads, int queueCapacity) {
+        int size = Math.max(1, threads);
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                new CustomizableThreadFactory(name), BLOCK_WHEN_FULL);
+    }
+
+    /**
+     * 一次批量处理的流水线，各阶段线程池随本次处理创建和关闭
+     */
+    private class Pipeline {
+
+        private final ThreadPoolExecutor fetchPool = stagePool("pipeline-fetch-", fetchConcurrency, fetchQueueCapacity);
+
+        private final ThreadPoolExecutor extractPool = stagePool("pipeline-extract-", extractConcurrency, extractQueueCapacity);
+
+        private final ThreadPoolExecutor persistPool = stagePool("pipeline-persist-", persistConcurrency, persistQueueCapacity);
+
+        private final ThreadPoolExecutor indexPool = stagePool("pipeline-index-", indexConcurrency, indexQueueCapacity);
+
+        private final int total;
+
+        private final TaskProgress progress;
+
+        private final CountDownLatch remaining;
+
+        private final AtomicInteger extracted = new AtomicInteger();
+
+        private final AtomicInteger finished = new AtomicInteger();
+
+        private final AtomicInteger succeeded = new AtomicInteger();
+
+        private final Map<Long, String> results = new ConcurrentHashMap<>();
+
+        private Pipeline(int total, TaskProgress progress) {
+            this.total = total;
+            this.progress = progress;
+            this.remaining = new CountDownLatch(total);
+        }
+
+        void submitFetch(BookJob job) {
+            try {
+                fetchPool.execute(() -> fetch(job));
+            } catch (RejectedExecutionException e) {
+                finish(job, false, "提交失败: " + e.getMessage());
+            }
+        }
+
+        void await() throws InterruptedException {
+            remaining.await();
+        }
+
+        void shutdown() {
+            fetchPool.shutdownNow();
+            extractPool.shutdownNow();
+            persistPool.shutdownNow();
+            indexPool.shutdownNow();
+        }
+
+        /**
+         * 阶段一：下载PDF到临时文件，已有章节的图书直接进入索引阶段
+         */
+        private void fetch(BookJob job) {
+            Long bookId = job.book.getId();
+            try {
+                if (bookService.hasBookSections(bookId)) {
+                    job.message = "章节已存在，跳过提取";
+                    onExtracted(job);
+                    return;
+                }
+                LpBookFileDTO lpBookFileDTO = bookFileService.getBookFilesNoDeleteByBookId(bookId);
+                if (lpBookFileDTO == null) {
+                    finish(job, false, "提取失败: 图书文件不存在");
+                    return;
+                }
+                LpFile lpFile = lpFileService.getById(lpBookFileDTO.getFileId());
+                if (lpFile == null) {
+                    finish(job, false, "提取失败: 文件不存在");
+                    return;
+                }
+                job.tempFile = File.createTempFile("pdf-pipeline-", ".pdf");
+                try (InputStream pdfStream = fileService.getFileInputStream(lpFile.getFileName())) {
+                    Files.copy(pdfStream, job.tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                extractPool.execute(() -> extract(job));
+            } catch (Exception e) {
+                log.error("下载图书{}的PDF文件失败", bookId, e);
+                job.deleteTempFile();
+                finish(job, false, "提取失败: " + e.getMessage());
+            }
+        }
+
+        /**
+         * 阶段二：提取文本，章节按批次交给写入阶段
+         */
+        private void extract(BookJob job) {
+            Long bookId = job.book.getId();
+            try {
+                SectionBatcher batcher = new SectionBatcher(job);
+                job.pageCount = parallelPdfExtractor.extractTextToSections(job.tempFile, bookId, job.book.getTitle(), batcher);
+                batcher.flush();
+            } catch (Exception e) {
+                log.error("提取图书{}的文本失败", bookId, e);
+                job.fail("提取失败: " + e.getMessage());
+            } finally {
+                job.deleteTempFile();
+                // 释放提取阶段持有的计数，最后一批章节写入后进入下一阶段
+                release(job);
+            }
+        }
+
+        /**
+         * 阶段三：写入一批章节
+         */
+        private void persist(BookJob job, List<BookSection> batch) {
+            try {
+                if (!job.failed.get()) {
+                    bookSectionService.saveBatch(batch, sectionBatchSize);
+                    job.sections.addAndGet(batch.size());
+                }
+            } catch (Exception e) {
+                log.error("写入图书{}的章节失败", job.book.getId(), e);
+                job.fail("写入章节失败: " + e.getMessage());
+            } finally {
+                release(job);
+            }
+        }
+
+        /**
+         * 阶段四：写入ES并标记为已索引
+         */
+        private void index(BookJob job) {
+            Long bookId = job.book.getId();
+            try {
+                BulkIndexResult indexResult = bookSectionEsService.importBookSections(bookId);
+                if (indexResult.hasFailures()) {
+                    finish(job, false, String.format("%s，导入ES失败: %d个章节未能索引",
+                            job.message, indexResult.getFailures().size()));
+                    return;
+                }
+                BookUpdateRequest updateRequest = new BookUpdateRequest();
+                updateRequest.setId(bookId);
+                updateRequest.setIsIndexed(1);
+                bookService.updateBook(updateRequest);
+                finish(job, true, job.message + "，导入ES成功");
+            } catch (Exception e) {
+                log.error("图书{}导入ES失败", bookId, e);
+                finish(job, false, job.message + "，导入ES失败: " + e.getMessage());
+            }
+        }
+
+        private void submitPersist(BookJob job, List<BookSection> batch) {
+            job.pending.incrementAndGet();
+            try {
+                persistPool.execute(() -> persist(job, batch));
+            } catch (RejectedExecutionException e) {
+                job.fail("写入章节失败: " + e.getMessage());
+                release(job);
+            }
+        }
+
+        private void release(BookJob job) {
+            if (job.pending.decrementAndGet() == 0) {
+                onExtracted(job);
+            }
+        }
+
+        /**
+         * 图书的提取和所有章节写入都已结束
+         */
+        private void onExtracted(BookJob job) {
+            Long bookId = job.book.getId();
+            if (job.failed.get()) {
+                // 删除已写入的部分章节，下次批量处理时重新提取
+                try {
+                    bookSectionService.remove(new LambdaQueryWrapper<BookSection>().eq(BookSection::getBookId, bookId));
+                } catch (Exception e) {
+                    log.error("清理图书{}的部分章节失败", bookId, e);
+                }
+                finish(job, false, job.message);
+                return;
+            }
+            try {
+                if (job.message == null) {
+                    BookUpdateRequest updateRequest = new BookUpdateRequest();
+                    updateRequest.setId(bookId);
+                    updateRequest.setPageSize(job.pageCount);
+                    updateRequest.setIsExtracted(1);
+                    bookService.updateBook(updateRequest);
+                    job.message = "文本提取成功，共提取 " + job.sections.get() + " 个章节";
+                }
+                extracted.incrementAndGet();
+                updateProgress();
+                indexPool.execute(() -> index(job));
+            } catch (Exception e) {
+                log.error("图书{}进入索引阶段失败", bookId, e);
+                finish(job, false, "提取失败: " + e.getMessage());
+            }
+        }
+
+        private void finish(BookJob job, boolean success, String message) {
+            if (!job.finished.compareAndSet(false, true)) {
+                return;
+            }
+            results.put(job.book.getId(), message);
+            if (success) {
+                succeeded.incrementAndGet();
+            }
+            finished.incrementAndGet();
+            updateProgress();
+            remaining.countDown();
+        }
+
+        private synchronized void updateProgress() {
+            // 提取和索引各占一半进度
+            int done = extracted.get() + finished.get();
+            progress.setProgress(total == 0 ? 99 : Math.min(99, done * 100 / (total * 2)))
+                    .setCurrentStep(String.format("已提取%d/%d本，已完成%d/%d本", extracted.get(), total, finished.get(), total));
+        }
+
+        /**
+         * 把提取出的章节攒成批次提交到写入阶段，写入队列已满时阻塞提取线程
+         */
+        private class SectionBatcher implements Consumer<BookSection> {
+
+            private final BookJob job;
+
+            private List<BookSection> buffer = new ArrayList<>(sectionBatchSize);
+
+            private SectionBatcher(BookJob job) {
+                this.job = job;
+            }
+
+            @Override
+            public void accept(BookSection section) {
+                buffer.add(section);
+                if (buffer.size() >= sectionBatchSize) {
+                    flush();
+                }
+            }
+
+            void flush() {
+                if (buffer.isEmpty() || job.failed.get()) {
+                    buffer.clear();
+                    return;
+                }
+                submitPersist(job, buffer);
+                buffer = new ArrayList<>(sectionBatchSize);
+            }
+        }
+    }
+
+    /**
+     * 单本图书在流水线中的状态
+     */
+    private static class BookJob {
+
+        private final Book book;
+
+        /**
+         * 提取阶段持有1个计数，每个在途的章节批次持有1个计数，归零时提取和写入都已结束
+         */
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        private final AtomicLong sections = new AtomicLong();
+
+        private final AtomicBoolean failed = new AtomicBoolean(false);
+
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        private volatile File tempFile;
+
+        private volatile int pageCount;
+
+        private volatile String message;
+
+        private BookJob(Book book) {
+            this.book = book;
+        }
+
+        void fail(String reason) {
+            if (failed.compareAndSet(false, true)) {
+                message = reason;
+            }
+        }
+
+        void deleteTempFile() {
+            File file = tempFile;
+            if (file != null && !file.delete()) {
+                file.deleteOnExit();
+            }
+            tempFile = null;
+        }
+    }
+}
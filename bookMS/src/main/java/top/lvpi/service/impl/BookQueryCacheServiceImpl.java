@@ -0,0 +1,215 @@
+package top.lvpi.service.impl;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+import top.lvpi.service.BookQueryCacheService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+@Service
+@Slf4j
+public class BookQueryCacheServiceImpl implements BookQueryCacheService {
+
+    private static final String KEY_PREFIX = "book:query:";
+
+    /**
+     * 缓存代数，每次写入图书加一，缓存键中带上代数，旧代数的缓存到期自动清除
+     */
+    private static final String GENERATION_KEY = KEY_PREFIX + "generation";
+
+    private static final String METRIC_NAME = "book.query.cache.requests";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 是否启用查询缓存
+     */
+    @Value("${book.query-cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 查询结果的缓存时间（秒），未经本服务的写入最迟在此时间后可见
+     */
+    @Value("${book.query-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    /**
+     * 图书写入ES时不等待刷新，失效后延迟此时间（毫秒）再失效一次，
+     * 避免刷新前查询到的旧结果被缓存；应大于ES的refresh_interval，小于等于0时不延迟失效
+     */
+    @Value("${book.query-cache.refresh-delay-ms:2000}")
+    private long refreshDelayMs;
+
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("query-cache-invalidate-"));
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("book.query.cache.hit.ratio", this, BookQueryCacheServiceImpl::hitRatio)
+                .description("图书查询缓存命中率")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public <T> IPage<T> getPage(String name, Object params, Class<T> recordType, Supplier<IPage<T>> loader) {
+        JavaType type = objectMapper.getTypeFactory().constructParametricType(PageSnapshot.class, recordType);
+        PageSnapshot<T> snapshot = get(name, params, type, () -> {
+            IPage<T> page = loader.get();
+            return new PageSnapshot<>(page.getCurrent(), page.getSize(), page.getTotal(), page.getRecords());
+        });
+        Page<T> page = new Page<>(snapshot.getCurrent(), snapshot.getSize(), snapshot.getTotal());
+        page.setRecords(snapshot.getRecords());
+        return page;
+    }
+
+    @Override
+    public <T> List<T> getList(String name, Object params, Class<T> elementType, Supplier<List<T>> loader) {
+        return get(name, params, objectMapper.getTypeFactory().constructCollectionType(List.class, elementType), loader);
+    }
+
+    @Override
+    public <T> T getValue(String name, Object params, Class<T> type, Supplier<T> loader) {
+        return get(name, params, objectMapper.constructType(type), loader);
+    }
+
+    @Override
+    public void invalidate() {
+        if (!enabled) {
+            return;
+        }
+        incrementGeneration();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 提交前其他请求可能已用旧数据重新写入缓存，事务结束后再失效一次
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    incrementGeneration();
+                    scheduleIncrement();
+                }
+            });
+        } else {
+            scheduleIncrement();
+        }
+    }
+
+    private <T> T get(String name, Object params, JavaType type, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String key;
+        try {
+            Object generation = redisTemplate.opsForValue().get(GENERATION_KEY);
+            key = KEY_PREFIX + name + ":" + (generation == null ? "0" : generation) + ":"
+                    + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(params));
+            Object cached = redisTemplate.opsForValue().get(key);
+            if (cached != null) {
+                T value = objectMapper.readValue(((String) cached).getBytes(StandardCharsets.UTF_8), type);
+                record(name, true);
+                return value;
+            }
+        } catch (Exception e) {
+            // Redis不可用或缓存内容无法解析时直接查库
+            log.warn("读取图书查询缓存失败: {}", name, e);
+            return loader.get();
+        }
+
+        record(name, false);
+        T value = loader.get();
+        try {
+            redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(value), ttlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入图书查询缓存失败: {}", name, e);
+        }
+        return value;
+    }
+
+    private void incrementGeneration() {
+        try {
+            redisTemplate.opsForValue().increment(GENERATION_KEY);
+        } catch (Exception e) {
+            log.warn("更新图书查询缓存代数失败，已缓存的结果将在到期后失效", e);
+        }
+    }
+
+    /**
+     * ES刷新前的搜索仍返回旧结果并写入新代数的缓存，刷新后再失效一次
+     */
+    private void scheduleIncrement() {
+        if (refreshDelayMs <= 0) {
+            return;
+        }
+        try {
+            scheduler.schedule(this::incrementGeneration, refreshDelayMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("延迟失效图书查询缓存失败，已缓存的结果将在到期后失效", e);
+        }
+    }
+
+    private void record(String name, boolean hit) {
+        (hit ? hits : misses).incrementAndGet();
+        meterRegistry.counter(METRIC_NAME, "query", name, "result", hit ? "hit" : "miss").increment();
+    }
+
+    private double hitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * 缓存中的分页结果，只保留分页信息和记录
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class PageSnapshot<T> {
+
+        private long current;
+
+        private long size;
+
+        private long total;
+
+        private List<T> records;
+    }
+}
@@ -6,6 +6,9 @@ import top.lvpi.common.BusinessException;
 import top.lvpi.common.ErrorCode;
 import top.lvpi.mapper.BookMapper;
 import top.lvpi.mapper.BookSectionMapper;
+import top.lvpi.model.dto.es.BulkIndexResult;
+import top.lvpi.model.dto.es.SectionCursorPage;
+import top.lvpi.model.dto.es.SectionGroupPage;
 import top.lvpi.model.dto.topic.TopicPathDTO;
 import top.lvpi.model.entity.Book;
 import top.lvpi.model.entity.BookSection;
@@ -14,26 +17,48 @@ import top.lvpi.model.es.BookSectionDocument;
 import top.lvpi.model.es.TopicLevel;
 import top.lvpi.repository.es.BookSectionRepository;
 import top.lvpi.service.BookSectionEsService;
+import top.lvpi.service.EsReindexService;
 import top.lvpi.service.TopicService;
+import top.lvpi.utils.EsBulkIndexer;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
-import org.springframework.data.elasticsearch.core.query.Criteria;
-import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.query.Query.PointInTime;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.client.RestTemplate;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import co.elastic.clients.elasticsearch.core.search.InnerHitsResult;
+import co.elastic.clients.json.JsonData;
 import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -65,6 +90,47 @@ public class BookSectionEsServiceImpl implements BookSectionEsService {
     @Autowired
     private TopicService topicService;
 
+    @Autowired
+    private EsBulkIndexer esBulkIndexer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 游标分页的point-in-time保活时间，两次翻页的间隔超过该时间游标失效
+     */
+    @Value("${es.search.pit-keep-alive-seconds:60}")
+    private long pitKeepAliveSeconds;
+
+    /**
+     * 偏移分页允许的最大深度，与索引的max_result_window一致
+     */
+    private static final int MAX_RESULT_WINDOW = 10000;
+
+    /**
+     * 游标分页每页的最大记录数
+     */
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    /**
+     * 按图书分组搜索每页的最大图书数
+     */
+    private static final int MAX_GROUP_PAGE_SIZE = 50;
+
+    /**
+     * 按图书分组搜索每本书最多返回的页数
+     */
+    private static final int MAX_PAGES_PER_BOOK = 10;
+
+    private static final int HIGHLIGHT_FRAGMENT_SIZE = 150;
+
+    private static final String PAGES_INNER_HITS = "pages";
+
+    private static final String BOOK_COUNT_AGG = "book_count";
+
+    private static final List<String> GROUP_SOURCE_FIELDS =
+            List.of("book_id", "book_title", "author", "publisher", "isbn", "pic_url");
+
     @Override
     public void importById(String id) {
         // 实现导入单个文档的逻辑
@@ -87,12 +153,13 @@ public class BookSectionEsServiceImpl implements BookSectionEsService {
         }
 
         // 导入图书章节
-        importBookSections(book.getId());
+        checkBulkResult(importBookSections(book.getId()));
 
         // 更新图书的索引状态
         LambdaUpdateWrapper<Book> updateWrapper = new LambdaUpdateWrapper<>();
         updateWrapper.eq(Book::getIsbn, isbn)
-                .set(Book::getIsIndexed, 1);
+                .set(Book::getIsIndexed, 1)
+                .set(Book::getModifiedTime, new Date());
         bookMapper.update(null, updateWrapper);
 
         log.info("ISBN：{}的图书索引已创建", isbn);
@@ -112,12 +179,13 @@ public class BookSectionEsServiceImpl implements BookSectionEsService {
         }
 
         // 导入图书章节
-        importBookSections(bookId);
+        checkBulkResult(importBookSections(bookId));
 
         // 更新图书的索引状态
         LambdaUpdateWrapper<Book> updateWrapper = new LambdaUpdateWrapper<>();
         updateWrapper.eq(Book::getId, bookId)
-                .set(Book::getIsIndexed, 1);
+                .set(Book::getIsIndexed, 1)
+                .set(Book::getModifiedTime, new Date());
         bookMapper.update(null, updateWrapper);
 
         log.info("ID：{}的图书索引已创建", bookId);
@@ -144,7 +212,7 @@ public class BookSectionEsServiceImpl implements BookSectionEsService {
         try {
             // 删除ES中的索引
             DeleteByQueryResponse response = esClient.deleteByQuery(d -> d
-                .index("books")
+                .index(EsReindexService.BOOKS_ALIAS)
                 .query(q -> q
                     .match(m -> m
                         .field("isbn")
@@ -159,7 +227,8 @@ public class BookSectionEsServiceImpl implements BookSectionEsService {
             // 更新book表的is_indexed字段为0
             LambdaUpdateWrapper<Book> updateWrapper = new LambdaUpdateWrapper<>();
             updateWrapper.eq(Book::getIsbn, isbn)
-                    .set(Book::getIsIndexed, 0);
+                    .set(Book::getIsIndexed, 0)
+                .set(Book::getModifiedTime, new Date());
             bookMapper.update(null, updateWrapper);
 
             log.info("ISBN：{}的索引已删除，并更新is_indexed状态", isbn);
@@ -175,7 +244,7 @@ public class BookSectionEsServiceImpl implements BookSectionEsService {
         try {
             // 1. 删除ES中的索引
             DeleteByQueryResponse response = esClient.deleteByQuery(d -> d
-                .index("books")
+                .index(EsReindexService.BOOKS_ALIAS)
                 .query(q -> q
                     .match(m -> m
                         .field("book_id")
@@ -190,7 +259,8 @@ public class BookSectionEsServiceImpl implements BookSectionEsService {
             // 2. 更新book表的is_indexed字段为0
             LambdaUpdateWrapper<Book> updateWrapper = new LambdaUpdateWrapper<>();
             updateWrapper.eq(Book::getId, bookId)
-                    .set(Book::getIsIndexed, 0);
+                    .set(Book::getIsIndexed, 0)
+                .set(Book::getModifiedTime, new Date());
             bookMapper.update(null, updateWrapper);
 
             log.info("书籍ID：{}的索引已删除，并更新is_indexed状态", bookId);
@@ -203,68 +273,308 @@ public class BookSectionEsServiceImpl implements BookSectionEsService {
     @Override
     public Page<BookSectionDocument> search(String keyword, String isbn, String bookId, String bookTitle,
             String author, String publisher, Integer pageNum, Pageable pageable) {
-        // 构建查询条件
-        Criteria criteria = new Criteria();
+        // from+size分页越深每个分片的开销越大，超过max_result_window时ES直接报错
+        if (pageable.getOffset() + pageable.getPageSize() > MAX_RESULT_WINDOW) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR,
+                "分页深度超过" + MAX_RESULT_WINDOW + "条，请使用游标分页接口/es/books/search/cursor");
+        }
+
+        // 创建查询对象
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(buildSearchQuery(keyword, isbn, bookId, bookTitle, author, publisher, pageNum))
+                .withPageable(pageable)
+                .build();
+
+        // 执行查询
+        SearchHits<BookSectionDocument> searchHits = elasticsearchOperations.search(query, BookSectionDocument.class);
+
+        // 转换结果
+        List<BookSectionDocument> content = searchHits.stream()
+                .map(SearchHit::getContent)
+                .collect(Collectors.toList());
+
+        // 返回分页结果
+        return new PageImpl<>(content, pageable, searchHits.getTotalHits());
+    }
+
+    @Override
+    public SectionCursorPage searchByCursor(String keyword, String isbn, String bookId, String bookTitle,
+            String author, String publisher, Integer pageNum, int size, String cursor) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "每页记录数需在1到" + MAX_CURSOR_PAGE_SIZE + "之间");
+        }
+        // 游标绑定查询条件，翻页时条件变化会让search_after的位置失去意义
+        String fingerprint = DigestUtils.md5DigestAsHex(String.join("|",
+                String.valueOf(keyword), String.valueOf(isbn), String.valueOf(bookId), String.valueOf(bookTitle),
+                String.valueOf(author), String.valueOf(publisher), String.valueOf(pageNum))
+                .getBytes(StandardCharsets.UTF_8));
+
+        Duration pitKeepAlive = Duration.ofSeconds(pitKeepAliveSeconds);
+        CursorState state;
+        if (StringUtils.isBlank(cursor)) {
+            // 新的搜索：打开point-in-time，后续所有页都在同一个索引快照上排序，重建索引切换别名也不影响
+            state = new CursorState();
+            state.setPitId(elasticsearchOperations.openPointInTime(
+                    IndexCoordinates.of(EsReindexService.BOOKS_ALIAS), pitKeepAlive, false));
+            state.setFingerprint(fingerprint);
+        } else {
+            state = decodeCursor(cursor);
+            if (!fingerprint.equals(state.getFingerprint())) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标与查询条件不匹配，请重新搜索");
+            }
+        }
+
+        // 按相关度排序，_shard_doc作为PIT内唯一的次序保证翻页不重复不遗漏
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(buildSearchQuery(keyword, isbn, bookId, bookTitle, author, publisher, pageNum))
+                .withPageable(PageRequest.of(0, size, Sort.by(Sort.Order.desc("_score"), Sort.Order.asc("_shard_doc"))))
+                .build();
+        query.setPointInTime(new PointInTime(state.getPitId(), pitKeepAlive));
+        if (state.getSearchAfter() != null) {
+            query.setSearchAfter(state.getSearchAfter());
+            // 总数只在第一页统计，后续页不再计数
+            query.setTrackTotalHits(false);
+        } else {
+            query.setTrackTotalHits(true);
+        }
+
+        SearchHits<BookSectionDocument> searchHits;
+        try {
+            searchHits = elasticsearchOperations.search(query, BookSectionDocument.class);
+        } catch (RuntimeException e) {
+            if (state.getSearchAfter() == null) {
+                closePointInTime(state.getPitId());
+                throw e;
+            }
+            // PIT超过keep-alive未使用会被ES释放
+            log.warn("游标搜索失败，PIT可能已过期", e);
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标已过期，请重新搜索");
+        }
+
+        SectionCursorPage page = new SectionCursorPage();
+        page.setSize(size);
+        page.setRecords(searchHits.stream()
+                .map(SearchHit::getContent)
+                .collect(Collectors.toList()));
+        if (state.getSearchAfter() == null) {
+            state.setTotal(searchHits.getTotalHits());
+        }
+        page.setTotal(state.getTotal());
+
+        if (searchHits.getSearchHits().size() < size) {
+            // 最后一页，及时释放PIT占用的分片资源
+            closePointInTime(state.getPitId());
+            return page;
+        }
+
+        // ES每次请求可能返回新的PIT ID，下一页需使用最新的
+        if (searchHits.getPointInTimeId() != null) {
+            state.setPitId(searchHits.getPointInTimeId());
+        }
+        List<SearchHit<BookSectionDocument>> hits = searchHits.getSearchHits();
+        state.setSearchAfter(hits.get(hits.size() - 1).getSortValues());
+        page.setNextCursor(encodeCursor(state));
+        return page;
+    }
+
+    @Override
+    public SectionGroupPage searchGroupedByBook(String keyword, String isbn, String bookId, String bookTitle,
+            String author, String publisher, Integer pageNum, int page, int size, int pagesPerBook) {
+        if (page < 0 || size < 1 || size > MAX_GROUP_PAGE_SIZE) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "分页参数错误，每页图书数需在1到" + MAX_GROUP_PAGE_SIZE + "之间");
+        }
+        if (pagesPerBook < 1 || pagesPerBook > MAX_PAGES_PER_BOOK) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "每本书返回的页数需在1到" + MAX_PAGES_PER_BOOK + "之间");
+        }
+        int from = page * size;
+        if (from + size > MAX_RESULT_WINDOW) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "分页深度超过" + MAX_RESULT_WINDOW + "本图书");
+        }
+
+        Query query = buildSearchQuery(keyword, isbn, bookId, bookTitle, author, publisher, pageNum);
+        SearchResponse<GroupSource> response;
+        try {
+            // 按book_id折叠，每本书只占一条结果，inner_hits带回该书得分最高的几页及命中总数
+            response = esClient.search(s -> s
+                    .index(EsReindexService.BOOKS_ALIAS)
+                    .query(query)
+                    .from(from)
+                    .size(size)
+                    .source(src -> src.filter(f -> f.includes(GROUP_SOURCE_FIELDS)))
+                    .collapse(c -> c
+                            .field("book_id")
+                            .innerHits(ih -> ih
+                                    .name(PAGES_INNER_HITS)
+                                    .size(pagesPerBook)
+                                    .sort(so -> so.score(sc -> sc.order(SortOrder.Desc)))
+                                    .sort(so -> so.field(f -> f.field("page_num").order(SortOrder.Asc)))
+                                    .source(src -> src.filter(f -> f.includes("page_num")))
+                                    .highlight(h -> h.fields("section_text", hf -> hf
+                                            .fragmentSize(HIGHLIGHT_FRAGMENT_SIZE)
+                                            .numberOfFragments(1)))))
+                    .aggregations(BOOK_COUNT_AGG, a -> a.cardinality(c -> c.field("book_id")))
+                    .trackTotalHits(t -> t.enabled(true)),
+                GroupSource.class);
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "章节搜索失败：" + e.getMessage());
+        }
+
+        SectionGroupPage result = new SectionGroupPage();
+        result.setPage(page);
+        result.setSize(size);
+        result.setTotalSections(response.hits().total() != null ? response.hits().total().value() : 0);
+        result.setTotalBooks(response.aggregations().get(BOOK_COUNT_AGG).cardinality().value());
+        for (Hit<GroupSource> hit : response.hits().hits()) {
+            GroupSource source = hit.source();
+            SectionGroupPage.BookGroup group = new SectionGroupPage.BookGroup();
+            if (source != null) {
+                group.setBookId(source.getBookId());
+                group.setBookTitle(source.getBookTitle());
+                group.setAuthor(source.getAuthor());
+                group.setPublisher(source.getPublisher());
+                group.setIsbn(source.getIsbn());
+                group.setPicUrl(source.getPicUrl());
+            }
+            group.setScore(hit.score());
+
+            InnerHitsResult innerHits = hit.innerHits().get(PAGES_INNER_HITS);
+            if (innerHits != null) {
+                HitsMetadata<JsonData> pages = innerHits.hits();
+                for (Hit<JsonData> pageHit : pages.hits()) {
+                    SectionGroupPage.PageHit pageResult = new SectionGroupPage.PageHit();
+                    pageResult.setId(pageHit.id());
+                    pageResult.setScore(pageHit.score());
+                    if (pageHit.source() != null) {
+                        pageResult.setPageNum(pageHit.source().to(PageSource.class).getPageNum());
+                    }
+                    List<String> highlights = pageHit.highlight().get("section_text");
+                    if (highlights != null) {
+                        pageResult.setHighlights(highlights);
+                    }
+                    group.getPages().add(pageResult);
+                }
+                group.setHitCount(pages.total() != null ? pages.total().value() : group.getPages().size());
+            }
+            result.getRecords().add(group);
+        }
+        return result;
+    }
+
+    // 构建章节搜索条件，偏移分页、游标分页和按图书分组共用
+    private Query buildSearchQuery(String keyword, String isbn, String bookId, String bookTitle,
+            String author, String publisher, Integer pageNum) {
+        BoolQuery.Builder bool = new BoolQuery.Builder();
 
         // 添加各个字段的查询条件
         if (StringUtils.isNotBlank(keyword)) {
             // 在文本和主题名称中搜索关键词
-            Criteria keywordCriteria = new Criteria();
-            keywordCriteria.or(new Criteria("section_text").matches(keyword))
-                          .or(new Criteria("topics.name").matches(keyword));
-            criteria.and(keywordCriteria);
+            bool.must(m -> m.bool(b -> b
+                    .should(s -> s.match(t -> t.field("section_text").query(keyword)))
+                    .should(s -> s.match(t -> t.field("topics.name").query(keyword)))
+                    .minimumShouldMatch("1")));
         }
 
         if (StringUtils.isNotBlank(isbn)) {
-            criteria.and(new Criteria("isbn").is(isbn));
+            bool.filter(f -> f.term(t -> t.field("isbn").value(isbn)));
         }
 
         if (StringUtils.isNotBlank(bookId)) {
-            criteria.and(new Criteria("book_id").is(bookId));
+            bool.filter(f -> f.term(t -> t.field("book_id").value(bookId)));
         }
 
         if (StringUtils.isNotBlank(bookTitle)) {
-            criteria.and(new Criteria("book_title").matches(bookTitle));
+            bool.must(m -> m.match(t -> t.field("book_title").query(bookTitle)));
         }
 
         if (StringUtils.isNotBlank(author)) {
-            criteria.and(new Criteria("author").matches(author));
+            bool.must(m -> m.match(t -> t.field("author").query(author)));
         }
 
         if (StringUtils.isNotBlank(publisher)) {
-            criteria.and(new Criteria("publisher").matches(publisher));
+            bool.must(m -> m.match(t -> t.field("publisher").query(publisher)));
         }
 
         if (pageNum != null) {
-            criteria.and(new Criteria("page_num").is(pageNum.toString()));
+            bool.filter(f -> f.term(t -> t.field("page_num").value(pageNum)));
         }
 
-        // 创建查询对象
-        CriteriaQuery query = new CriteriaQuery(criteria).setPageable(pageable);
+        return bool.build()._toQuery();
+    }
 
-        // 执行查询
-        SearchHits<BookSectionDocument> searchHits = elasticsearchOperations.search(query, BookSectionDocument.class);
+    private String encodeCursor(CursorState state) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(state));
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成游标失败");
+        }
+    }
 
-        // 转换结果
-        List<BookSectionDocument> content = searchHits.stream()
-                .map(SearchHit::getContent)
-                .collect(Collectors.toList());
+    private CursorState decodeCursor(String cursor) {
+        CursorState state;
+        try {
+            state = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), CursorState.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标不合法");
+        }
+        if (state.getPitId() == null || state.getSearchAfter() == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标不合法");
+        }
+        return state;
+    }
 
-        // 返回分页结果
-        return new PageImpl<>(content, pageable, searchHits.getTotalHits());
+    private void closePointInTime(String pitId) {
+        try {
+            elasticsearchOperations.closePointInTime(pitId);
+        } catch (RuntimeException e) {
+            // 关闭失败时PIT会在keep-alive到期后自动释放
+            log.warn("关闭PIT失败", e);
+        }
+    }
+
+    /**
+     * 分组结果中每本书取自最佳章节的字段
+     */
+    @Data
+    static class GroupSource {
+        @JsonProperty("book_id")
+        private String bookId;
+        @JsonProperty("book_title")
+        private String bookTitle;
+        private String author;
+        private String publisher;
+        private String isbn;
+        @JsonProperty("pic_url")
+        private String picUrl;
+    }
+
+    @Data
+    static class PageSource {
+        @JsonProperty("page_num")
+        private Integer pageNum;
+    }
+
+    /**
+     * 游标内容：PIT ID、上一页最后一条的排序值、首页统计的总数和查询条件指纹
+     */
+    @Data
+    static class CursorState {
+        @JsonProperty("p")
+        private String pitId;
+        @JsonProperty("a")
+        private List<Object> searchAfter;
+        @JsonProperty("t")
+        private long total;
+        @JsonProperty("f")
+        private String fingerprint;
     }
 
     @Override
-    public void importBookSections(Long bookId) {
-        // 查询图书的所有章节
-        LambdaQueryWrapper<BookSection> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(BookSection::getBookId, bookId);
-        List<BookSection> sections = bookSectionMapper.selectList(queryWrapper);
-        
-        if (sections.isEmpty()) {
-            return;
-        }
+    public BulkIndexResult importBookSections(Long bookId) {
+        return importBookSections(bookId, EsReindexService.BOOKS_ALIAS);
+    }
 
+    @Override
+    public BulkIndexResult importBookSections(Long bookId, String indexName) {
         // 获取图书信息
         Book book = bookMapper.selectById(bookId);
         if (book == null) {
@@ -279,35 +589,47 @@ public class BookSectionEsServiceImpl implements BookSectionEsService {
             .map(Topic::getName)
             .toArray(String[]::new);
 
-        // 批量转换并保存到ES
-        List<BookSectionDocument> documents = sections.stream()
-            .map(section -> {
-                BookSectionDocument document = new BookSectionDocument();
-                document.setId(section.getId().toString());
-                document.setBookId(bookId.toString());
-                document.setBookTitle(book.getTitle());
-                document.setIsbn(book.getIsbn());
-                document.setAuthor(book.getAuthor());
-                document.setPublisher(book.getPublisher());
-                document.setPageNum(section.getPageNum());
-                document.setSectionText(section.getContent());
-                document.setFileName(book.getFileName());
-                document.setPicUrl(book.getPicUrl());
-                //将字符串转化为Integer
-                document.setPublicationYear(book.getPublicationYear() != null ? Integer.parseInt(book.getPublicationYear()) : null);
-                document.setTimestamp(new Date());
-                document.setVersion("1");
-                document.setTopicLevels(topicLevels);  // 设置主题标签
-                document.setTags(tags);
-                document.setOpacSeries(book.getOpacSeries());
-                document.setSeries(book.getSeries());
-                document.setCategory(book.getCategory());
-                document.setType(book.getType());
-                return document;
-            })
-            .collect(Collectors.toList());
-
-        bookSectionRepository.saveAll(documents);
+        // 分块批量写入ES，单个请求受文档数和字节数限制
+        EsBulkIndexer.Session<BookSectionDocument> session = esBulkIndexer.openSession(
+            indexName, BookSectionDocument::getId,
+            document -> elasticsearchOperations.getElasticsearchConverter().mapObject(document));
+        // 流式读取章节并直接交给索引器，内存占用与章节数无关
+        bookSectionMapper.streamByBookId(bookId, context -> {
+            BookSection section = context.getResultObject();
+            BookSectionDocument document = new BookSectionDocument();
+            document.setId(section.getId().toString());
+            document.setBookId(bookId.toString());
+            document.setBookTitle(book.getTitle());
+            document.setIsbn(book.getIsbn());
+            document.setAuthor(book.getAuthor());
+            document.setPublisher(book.getPublisher());
+            document.setPageNum(section.getPageNum());
+            document.setSectionText(section.getContent());
+            document.setFileName(book.getFileName());
+            document.setPicUrl(book.getPicUrl());
+            //将字符串转化为Integer
+            document.setPublicationYear(book.getPublicationYear() != null ? Integer.parseInt(book.getPublicationYear()) : null);
+            document.setTimestamp(new Date());
+            document.setVersion("1");
+            document.setTopicLevels(topicLevels);  // 设置主题标签
+            document.setTags(tags);
+            document.setOpacSeries(book.getOpacSeries());
+            document.setSeries(book.getSeries());
+            document.setCategory(book.getCategory());
+            document.setType(book.getType());
+            session.add(document);
+        });
+
+        return session.finish();
+    }
+
+    // 存在最终失败的章节时中止，避免把图书标记为已索引
+    private void checkBulkResult(BulkIndexResult result) {
+        if (result.hasFailures()) {
+            BulkIndexResult.Failure first = result.getFailures().get(0);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, String.format("%d个章节索引失败，章节ID:%s，原因：%s",
+                result.getFailures().size(), first.getId(), first.getReason()));
+        }
     }
 
     // 获取图书的主题标签
@@ -1,5 +1,6 @@
 package top.lvpi.service.impl;
 
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -9,6 +10,8 @@ import top.lvpi.common.BusinessException;
 import top.lvpi.common.ErrorCode;
 import top.lvpi.mapper.BookMapper;
 import top.lvpi.mapper.BookSectionMapper;
+import top.lvpi.model.dto.book.BookFacetSearchRequest;
+import top.lvpi.model.dto.book.BookFacetSearchResult;
 import top.lvpi.model.dto.book.BookAddRequest;
 import top.lvpi.model.dto.book.BookQueryRequest;
 import top.lvpi.model.dto.book.BookUpdateRequest;
@@ -20,14 +23,18 @@ import top.lvpi.model.entity.BookSection;
 import top.lvpi.model.entity.BookTopic;
 import top.lvpi.model.entity.LpFile;
 import top.lvpi.model.entity.OpacBookInfo;
+import top.lvpi.model.entity.Topic;
 import top.lvpi.model.vo.BookVO;
+import top.lvpi.service.BookCatalogService;
 import top.lvpi.service.BookFileService;
 import top.lvpi.service.BookSectionEsService;
+import top.lvpi.service.BookQueryCacheService;
 import top.lvpi.service.BookSectionService;
 import top.lvpi.service.BookService;
 import top.lvpi.service.BookTopicService;
 import top.lvpi.service.ImgService;
 import top.lvpi.service.LpFileService;
+import top.lvpi.service.OpacCacheService;
 import top.lvpi.service.TopicService;
 import top.lvpi.utils.BookUtils;
 import top.lvpi.utils.MinioUtils;
@@ -46,7 +53,13 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -68,7 +81,7 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
     private BookSectionMapper bookSectionMapper;
 
     @Autowired
-    private BookUtils bookUtils;
+    private OpacCacheService opacCacheService;
 
     @Autowired
     private ImgService imgService;
@@ -91,6 +104,12 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
     @Autowired
     private BookSectionService bookSectionService;
 
+    @Autowired
+    private BookQueryCacheService bookQueryCacheService;
+
+    @Autowired
+    private BookCatalogService bookCatalogService;
+
     @Value("${file.upload-dir:/app/filedata}")
     private String uploadDir;
 
@@ -122,6 +141,8 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
                     throw new BusinessException(ErrorCode.SYSTEM_ERROR, "关联图书与文件失败");
                 }
             }
+            bookCatalogService.sync(List.of(book.getId()));
+            bookQueryCacheService.invalidate();
             return result;
         } catch (Exception e) {
             log.error("新增图书失败", e);
@@ -141,6 +162,8 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
             if (!bookResult) {
                 return false;
             }
+            bookCatalogService.sync(List.of(id));
+            bookQueryCacheService.invalidate();
             //检查是否存在关联图片
             Book bookData = this.getBookById(id);
             if (bookData.getPicUrl() != null) {
@@ -256,6 +279,8 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
             if (!updateResult) {
                 return false;
             }
+            bookCatalogService.sync(List.of(book.getId()));
+            bookQueryCacheService.invalidate();
 
             // 2. 处理文件关联关系
             if (bookUpdateRequest.getFileId() != null) {
@@ -357,7 +382,12 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
         if (StringUtils.isBlank(keyword)) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "搜索关键词不能为空");
         }
+        return bookQueryCacheService.getPage("search", queryParams("keyword", keyword, "page", page, "size", size),
+                Book.class, () -> searchCatalog(() -> bookCatalogService.search(keyword, page, size),
+                        () -> doSearchBooks(keyword, page, size)));
+    }
 
+    private IPage<Book> doSearchBooks(String keyword, int page, int size) {
         Page<Book> pageParam = new Page<>(page, size);
         LambdaQueryWrapper<Book> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.like(Book::getTitle, keyword)
@@ -372,6 +402,16 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
     @Override
     public IPage<Book> advancedSearch(String keyword, String category, String author, 
             Integer yearFrom, Integer yearTo, int page, int size) {
+        return bookQueryCacheService.getPage("advanced-search",
+                queryParams("keyword", keyword, "category", category, "author", author,
+                        "yearFrom", yearFrom, "yearTo", yearTo, "page", page, "size", size),
+                Book.class, () -> searchCatalog(
+                        () -> bookCatalogService.advancedSearch(keyword, category, author, yearFrom, yearTo, page, size),
+                        () -> doAdvancedSearch(keyword, category, author, yearFrom, yearTo, page, size)));
+    }
+
+    private IPage<Book> doAdvancedSearch(String keyword, String category, String author,
+            Integer yearFrom, Integer yearTo, int page, int size) {
         Page<Book> pageParam = new Page<>(page, size);
         LambdaQueryWrapper<Book> queryWrapper = new LambdaQueryWrapper<>();
         
@@ -403,7 +443,13 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
         if (StringUtils.isAnyBlank(field, value)) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "搜索字段和值不能为空");
         }
+        return bookQueryCacheService.getPage("template-search",
+                queryParams("field", field, "value", value, "page", page, "size", size),
+                Book.class, () -> searchCatalog(() -> bookCatalogService.templateSearch(field, value, page, size),
+                        () -> doTemplateSearch(field, value, page, size)));
+    }
 
+    private IPage<Book> doTemplateSearch(String field, String value, int page, int size) {
         Page<Book> pageParam = new Page<>(page, size);
         LambdaQueryWrapper<Book> queryWrapper = new LambdaQueryWrapper<>();
         
@@ -424,7 +470,49 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
         if (StringUtils.isBlank(keyword)) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "搜索关键词不能为空");
         }
+        return bookQueryCacheService.getPage("nested-search",
+                queryParams("keyword", keyword, "maxYear", maxYear, "page", page, "size", size),
+                Book.class, () -> searchCatalog(() -> bookCatalogService.nestedSearch(keyword, maxYear, page, size),
+                        () -> doNestedSearch(keyword, maxYear, page, size)));
+    }
+
+    @Override
+    public BookFacetSearchResult facetSearch(BookFacetSearchRequest request) {
+        if (request.getCurrent() <= 0 || request.getSize() <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "分页参数错误");
+        }
+        if (request.getYearFrom() != null && request.getYearTo() != null && request.getYearFrom() > request.getYearTo()) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "年份范围错误");
+        }
+        return bookQueryCacheService.getValue("facet-search", request, BookFacetSearchResult.class, () -> {
+            try {
+                return bookCatalogService.facetSearch(request);
+            } catch (IOException | ElasticsearchException e) {
+                // 分面统计只能由ES提供，不退回MySQL
+                log.error("图书目录索引不可用，分面搜索失败", e);
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "搜索服务暂不可用");
+            }
+        });
+    }
+
+    /**
+     * 从图书目录索引搜索，索引不可用时退回MySQL的LIKE查询
+     */
+    private IPage<Book> searchCatalog(CatalogSearch search, Supplier<IPage<Book>> fallback) {
+        try {
+            return search.run();
+        } catch (IOException | ElasticsearchException e) {
+            log.warn("图书目录索引不可用，改为查询MySQL", e);
+            return fallback.get();
+        }
+    }
 
+    @FunctionalInterface
+    private interface CatalogSearch {
+        IPage<Book> run() throws IOException;
+    }
+
+    private IPage<Book> doNestedSearch(String keyword, Integer maxYear, int page, int size) {
         Page<Book> pageParam = new Page<>(page, size);
         LambdaQueryWrapper<Book> queryWrapper = new LambdaQueryWrapper<>();
         
@@ -632,6 +720,8 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
                 for (Book book : books) {
                     bookMapper.insert(book);
                 }
+                bookCatalogService.sync(books.stream().map(Book::getId).collect(Collectors.toList()));
+                bookQueryCacheService.invalidate();
             }
 
             // 构建返回消息
@@ -699,27 +789,20 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
 
         try {
             // 获取OPAC信息
-            OpacBookInfo opacInfo = bookUtils.getBookInfoByISBN(book.getIsbn());
+            // 优先读取缓存，同一ISBN的复本和重复导入不再请求OPAC
+            OpacBookInfo opacInfo;
+            try {
+                opacInfo = opacCacheService.getBookInfo(book.getIsbn());
+            } catch (BookUtils.OpacUnavailableException e) {
+                log.info(e.getMessage());
+                opacInfo = null;
+            }
             if (opacInfo == null) {
                 return "未找到相关OPAC信息，请检查网络连接";
             }
 
-            // 更新图书信息
-            BookUpdateRequest updateRequest = new BookUpdateRequest();
-            updateRequest.setId(id);
-            updateRequest.setTitle(opacInfo.getTitle().replaceAll("[：:]", " "));
-            updateRequest.setPublisher(opacInfo.getPress());
-            updateRequest.setPageSize(Integer.valueOf(opacInfo.getPageSize()));
-            updateRequest.setPublicationYear(opacInfo.getYear());
-            updateRequest.setSummary(opacInfo.getSummary());
-            updateRequest.setCn(opacInfo.getCn());
-            updateRequest.setAuthor(opacInfo.getAuthor());
-            updateRequest.setTopic(opacInfo.getTopic());
-            updateRequest.setOpacSeries(opacInfo.getSeries());
-            updateRequest.setIsOpaced(1);
-
             // 保存更新
-            boolean success = updateBook(updateRequest);
+            boolean success = saveOpacInfo(id, opacInfo);
             if (!success) {
                 throw new BusinessException(ErrorCode.SYSTEM_ERROR, "更新图书信息失败");
             }
@@ -732,87 +815,25 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
     }
 
     @Override
-    public String batchGetAndSaveOpacInfo() {
-        // 查询未获取OPAC信息的图书
-        LambdaQueryWrapper<Book> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.isNull(Book::getIsOpaced)
-                   .or()
-                   .ne(Book::getIsOpaced, 1);
-        List<Book> books = bookMapper.selectList(queryWrapper);
-        
-        if (books.isEmpty()) {
-            return "没有需要获取OPAC信息的图书";
-        }
-
-        int totalCount = books.size();
-        int successCount = 0;
-        int failCount = 0;
-        StringBuilder errorMsg = new StringBuilder();
-
-        // 遍历处理每本图书
-        for (Book book : books) {
-            try {
-                if (StringUtils.isBlank(book.getIsbn())) {
-                    errorMsg.append("图书ID: ").append(book.getId()).append(" - ISBN为空\n");
-                    failCount++;
-                    continue;
-                }
-
-                // 获取OPAC信息
-                OpacBookInfo opacInfo = bookUtils.getBookInfoByISBN(book.getIsbn());
-                if (opacInfo == null) {
-                    errorMsg.append("图书ID: ").append(book.getId()).append("图书名称: ").append(book.getTitle()).append(" - 未找到OPAC信息\n");
-                    //更新图书状态为未获取OPAC信息
-                    book.setIsOpaced(2);
-                    bookMapper.updateById(book);
-                    failCount++;
-                    continue;
-                }
-
-                // 更新图书信息
-                BookUpdateRequest updateRequest = new BookUpdateRequest();
-                updateRequest.setId(book.getId());
-                updateRequest.setTitle(opacInfo.getTitle());
-                updateRequest.setPublisher(opacInfo.getPress());
-                updateRequest.setPageSize(Integer.valueOf(opacInfo.getPageSize()));
-                updateRequest.setPublicationYear(opacInfo.getYear());
-                updateRequest.setSummary(opacInfo.getSummary());
-                updateRequest.setCn(opacInfo.getCn());
-                updateRequest.setAuthor(opacInfo.getAuthor());
-                updateRequest.setTopic(opacInfo.getTopic());
-                updateRequest.setOpacSeries(opacInfo.getSeries());
-                updateRequest.setIsOpaced(1);
-
-                // 保存更新
-                boolean success = updateBook(updateRequest);
-                if (!success) {
-                    errorMsg.append("图书ID: ").append(book.getId()).append("图书名称: ").append(book.getTitle()).append(" - 更新失败\n");
-                    failCount++;
-                    continue;
-                }
-
-                successCount++;
-                // 添加延时，避免请求过于频繁
-                Thread.sleep(1000);
-            } catch (Exception e) {
-                log.error("处理图书ID: " + book.getId() + " 失败", e);
-                errorMsg.append("图书ID: ").append(book.getId()).append("图书名称: ").append(book.getTitle()).append(" - 处理失败: ").append(e.getMessage()).append("\n");
-                failCount++;
-            }
+    public boolean saveOpacInfo(Long id, OpacBookInfo opacInfo) {
+        BookUpdateRequest updateRequest = new BookUpdateRequest();
+        updateRequest.setId(id);
+        if (opacInfo.getTitle() != null) {
+            updateRequest.setTitle(opacInfo.getTitle().replaceAll("[：:]", " "));
         }
-
-        // 构建返回消息
-        StringBuilder resultMsg = new StringBuilder();
-        resultMsg.append("批量获取OPAC信息完成\n")
-                .append("总数: ").append(totalCount).append("\n")
-                .append("成功: ").append(successCount).append("\n")
-                .append("失败: ").append(failCount);
-
-        if (errorMsg.length() > 0) {
-            resultMsg.append("<br>错误信息:<br>").append(errorMsg.toString().replace("\n", "<br>"));
+        updateRequest.setPublisher(opacInfo.getPress());
+        // 载体形态项中没有页数时为空字符串
+        if (StringUtils.isNotBlank(opacInfo.getPageSize())) {
+            updateRequest.setPageSize(Integer.valueOf(opacInfo.getPageSize()));
         }
-
-        return resultMsg.toString();
+        updateRequest.setPublicationYear(opacInfo.getYear());
+        updateRequest.setSummary(opacInfo.getSummary());
+        updateRequest.setCn(opacInfo.getCn());
+        updateRequest.setAuthor(opacInfo.getAuthor());
+        updateRequest.setTopic(opacInfo.getTopic());
+        updateRequest.setOpacSeries(opacInfo.getSeries());
+        updateRequest.setIsOpaced(1);
+        return updateBook(updateRequest);
     }
 
     @Override
@@ -840,6 +861,32 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
 
     @Override
     public IPage<BookVO> listBooksWithTags(BookQueryRequest bookQueryRequest) {
+        return bookQueryCacheService.getPage("list", normalizeQuery(bookQueryRequest),
+                BookVO.class, () -> doListBooksWithTags(bookQueryRequest));
+    }
+
+    /**
+     * 规范化列表查询条件作为缓存键：空白条件视为未设置，多选类目去重排序
+     */
+    private Map<String, Object> normalizeQuery(BookQueryRequest request) {
+        List<String> categoryList = null;
+        if (request.getCategoryList() != null && !request.getCategoryList().isEmpty()) {
+            categoryList = request.getCategoryList().stream().distinct().sorted().collect(Collectors.toList());
+        }
+        return queryParams("current", request.getCurrent(), "size", request.getSize(),
+                "title", blankToNull(request.getTitle()),
+                "isbn", blankToNull(request.getIsbn()),
+                "author", blankToNull(request.getAuthor()),
+                "publisher", blankToNull(request.getPublisher()),
+                "source", blankToNull(request.getSource()),
+                "publicationYear", blankToNull(request.getPublicationYear()),
+                // 有多选类目时单个类目不参与查询
+                "categoryList", categoryList,
+                "category", categoryList == null ? blankToNull(request.getCategory()) : null,
+                "type", request.getType());
+    }
+
+    private IPage<BookVO> doListBooksWithTags(BookQueryRequest bookQueryRequest) {
         // 1. 获取原始图书分页数据
         Page<Book> page = new Page<>(bookQueryRequest.getCurrent(), bookQueryRequest.getSize());
         LambdaQueryWrapper<Book> queryWrapper = new LambdaQueryWrapper<>();
@@ -886,23 +933,15 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
         IPage<Book> bookPage = bookMapper.selectPage(page, queryWrapper);
         
         // 2. 转换为BookVO并添加标签信息
-        List<BookVO> bookVOList = bookPage.getRecords().stream().map(book -> {
-            BookVO bookVO = new BookVO();
-            BeanUtils.copyProperties(book, bookVO);
-            // 获取图书标签
-            bookVO.setTags(topicService.getBookTopicTags(book.getId()));
-            return bookVO;
-        }).collect(Collectors.toList());
-        
-        // 3. 构建BookVO的分页对象
-        Page<BookVO> bookVOPage = new Page<>(bookPage.getCurrent(), bookPage.getSize(), bookPage.getTotal());
-        bookVOPage.setRecords(bookVOList);
-        
-        return bookVOPage;
+        return convertToBookVOPage(bookPage);
     }
 
     @Override
     public List<String> getAllNonEmptyCategories() {
+        return bookQueryCacheService.getList("categories", queryParams(), String.class, this::doGetAllNonEmptyCategories);
+    }
+
+    private List<String> doGetAllNonEmptyCategories() {
         LambdaQueryWrapper<Book> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.select(Book::getCategory)
                 .isNotNull(Book::getCategory)
@@ -919,16 +958,20 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
 
     @Override
     public IPage<BookVO> convertToBookVOPage(IPage<Book> bookPage) {
-        // 1. 首先，将LpBook转换为BookVO
+        // 1. 一次查出本页所有图书的标签
+        Map<Long, List<Topic>> tags = topicService.getBookTopicTags(bookPage.getRecords().stream()
+                .map(Book::getId)
+                .collect(Collectors.toList()));
+
+        // 2. 将LpBook转换为BookVO
         List<BookVO> bookVOList = bookPage.getRecords().stream().map(book -> {
             BookVO bookVO = new BookVO();
             BeanUtils.copyProperties(book, bookVO);
-            // 获取图书标签
-            bookVO.setTags(topicService.getBookTopicTags(book.getId()));
+            bookVO.setTags(tags.getOrDefault(book.getId(), new ArrayList<>()));
             return bookVO;
         }).collect(Collectors.toList());
         
-        // 2. 构建BookVO的分页对象
+        // 3. 构建BookVO的分页对象
         Page<BookVO> bookVOPage = new Page<>(bookPage.getCurrent(), bookPage.getSize(), bookPage.getTotal());
         bookVOPage.setRecords(bookVOList);
         
@@ -938,7 +981,9 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
     @Override
     public List<Book> listBooksForTopicParsing() {
         LambdaQueryWrapper<Book> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.isNotNull(Book::getTopic)
+        // 解析只需要ID和主题字段
+        queryWrapper.select(Book::getId, Book::getTopic)
+                .isNotNull(Book::getTopic)
                 .ne(Book::getTopic, "")
                 .and(w -> w.isNull(Book::getHasParseOPACTopic)
                         .or()
@@ -963,6 +1008,7 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
             
             // 3. 更新图书的主题解析状态
             if (result) {
+                bookCatalogService.sync(List.of(bookId));
                 return markTopicParseStatus(bookId, true);
             } else {
                 log.warn("解析图书主题失败，bookId={}", bookId);
@@ -975,6 +1021,36 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
         }
     }
     
+    @Override
+    public int parseBooksOPACTopics(List<Book> books) {
+        Map<Long, String> topicContents = new LinkedHashMap<>();
+        for (Book book : books) {
+            topicContents.put(book.getId(), book.getTopic());
+        }
+        Set<Long> succeeded = topicService.parseBooksOPACTopics(topicContents);
+
+        List<Long> failed = topicContents.keySet().stream()
+                .filter(id -> !succeeded.contains(id))
+                .collect(Collectors.toList());
+        updateTopicParseStatus(succeeded, 1);
+        updateTopicParseStatus(failed, 2);
+        // 主题分面依赖目录索引中的主题路径
+        bookCatalogService.sync(succeeded);
+        return succeeded.size();
+    }
+
+    /**
+     * 一条语句更新多本图书的主题解析状态
+     */
+    private void updateTopicParseStatus(Collection<Long> bookIds, int status) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        update(new LambdaUpdateWrapper<Book>()
+                .set(Book::getHasParseOPACTopic, status)
+                .in(Book::getId, bookIds));
+    }
+
     @Override
     public boolean markTopicParseStatus(Long bookId, boolean success) {
         // 更新图书的主题解析状态
@@ -984,4 +1060,21 @@ public class BookServiceImpl extends ServiceImpl<BookMapper, Book> implements Bo
         
         return updateById(updateBook);
     }
-}
\ No newline at end of file
+
+    /**
+     * 按键值对构建查询参数，值为空的参数不参与缓存键，键按字母排序
+     */
+    private static Map<String, Object> queryParams(Object... keyValues) {
+        Map<String, Object> params = new TreeMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            if (keyValues[i + 1] != null) {
+                params.put((String) keyValues[i], keyValues[i + 1]);
+            }
+        }
+        return params;
+    }
+
+    private static String blankToNull(String value) {
+        return StringUtils.isBlank(value) ? null : value;
+    }
+}
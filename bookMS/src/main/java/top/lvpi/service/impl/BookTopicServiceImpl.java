@@ -5,12 +5,23 @@ import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import top.lvpi.mapper.BookTopicMapper;
 import top.lvpi.model.entity.BookTopic;
+import top.lvpi.service.BookCatalogService;
 import top.lvpi.service.BookTopicService;
+import top.lvpi.service.TopicService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class BookTopicServiceImpl extends ServiceImpl<BookTopicMapper, BookTopic> implements BookTopicService {
 
+    @Autowired
+    private TopicService topicService;
+
+    @Autowired
+    private BookCatalogService bookCatalogService;
+
     @Override
     public Long addBookTopic(Long bookId, Long topicId) {
         // 检查是否已存在该关联
@@ -30,6 +41,8 @@ public class BookTopicServiceImpl extends ServiceImpl<BookTopicMapper, BookTopic
         bookTopic.setTopicId(topicId);
         
         this.save(bookTopic);
+        topicService.evictBookTopicTags(bookId);
+        bookCatalogService.sync(List.of(bookId));
         return bookTopic.getId();
     }
 
@@ -40,7 +53,10 @@ public class BookTopicServiceImpl extends ServiceImpl<BookTopicMapper, BookTopic
                 .eq(BookTopic::getTopicId, topicId)
                 .eq(BookTopic::getIsDeleted, 0);
         
-        return this.remove(wrapper);
+        boolean result = this.remove(wrapper);
+        topicService.evictBookTopicTags(bookId);
+        bookCatalogService.sync(List.of(bookId));
+        return result;
     }
 
     @Override
@@ -49,6 +65,9 @@ public class BookTopicServiceImpl extends ServiceImpl<BookTopicMapper, BookTopic
         wrapper.eq(BookTopic::getBookId, bookId)
                 .eq(BookTopic::getIsDeleted, 0);
         
-        return this.remove(wrapper);
+        boolean result = this.remove(wrapper);
+        topicService.evictBookTopicTags(bookId);
+        bookCatalogService.sync(List.of(bookId));
+        return result;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,283 @@
+package top.lvpi.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+import top.lvpi.common.TaskType;
+import top.lvpi.mapper.BookMapper;
+import top.lvpi.mapper.BookSectionMapper;
+import top.lvpi.model.dto.es.BulkIndexResult;
+import top.lvpi.model.dto.task.TaskProgress;
+import top.lvpi.model.entity.Book;
+import top.lvpi.model.entity.BookSection;
+import top.lvpi.service.BookSectionEsService;
+import top.lvpi.service.EsReindexService;
+import top.lvpi.service.TaskService;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class EsReindexServiceImpl implements EsReindexService {
+
+    private static final String VERSION_PREFIX = BOOKS_ALIAS + "_v";
+
+    private static final String MAPPING_FILE = "classpath:es/books-mapping.json";
+
+    private static final long CATCH_UP_MARGIN_MS = 2000;
+
+    @Autowired
+    private ElasticsearchClient esClient;
+
+    @Autowired
+    private BookSectionEsService bookSectionEsService;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private BookSectionMapper bookSectionMapper;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private TaskService taskService;
+
+    /**
+     * 写入完成后恢复的副本数
+     */
+    @Value("${es.reindex.number-of-replicas:1}")
+    private String numberOfReplicas;
+
+    /**
+     * 写入完成后恢复的刷新间隔
+     */
+    @Value("${es.reindex.refresh-interval:1s}")
+    private String refreshInterval;
+
+    /**
+     * 切换别名后是否删除旧版本索引
+     */
+    @Value("${es.reindex.delete-old-index:true}")
+    private boolean deleteOldIndex;
+
+    @Override
+    public TaskProgress startReindex(String reason) {
+        TaskProgress task = taskService.submit(TaskType.ES_REINDEX, "all", "准备重建索引：" + reason, this::reindex);
+        log.info("开始后台重建索引，原因：{}，任务ID:{}", reason, task.getTaskId());
+        return task;
+    }
+
+    @Override
+    public String getCurrentIndex() throws IOException {
+        List<String> indices = resolveAlias();
+        return indices.isEmpty() ? null : indices.get(0);
+    }
+
+    @Override
+    public void createInitialIndex() throws IOException {
+        String indexName = VERSION_PREFIX + nextVersion();
+        createIndex(indexName);
+        esClient.indices().updateAliases(u -> u
+                .actions(a -> a.add(add -> add.index(indexName).alias(BOOKS_ALIAS))));
+        log.info("已创建索引{}并指向别名{}", indexName, BOOKS_ALIAS);
+    }
+
+    private String reindex(TaskProgress task) throws IOException {
+        List<String> oldIndices = resolveAlias();
+        // 旧版本部署中 books 是实体索引而不是别名，切换时需要一并删除
+        boolean legacyIndex = oldIndices.isEmpty()
+                && esClient.indices().exists(e -> e.index(BOOKS_ALIAS)).value();
+
+        String newIndex = VERSION_PREFIX + nextVersion();
+        task.setCurrentStep("创建索引" + newIndex);
+        createIndex(newIndex);
+
+        boolean switched = false;
+        try {
+            // 批量写入期间关闭刷新并去掉副本，减少段合并和副本同步开销
+            updateSettings(newIndex, "0", "-1");
+
+            // 重建期间的导入和删除仍写入旧索引，记录开始时间，切换前后补写这段时间修改的图书
+            Date since = catchUpStart();
+
+            // 只重建当前已索引的图书，旧索引在切换前继续提供搜索
+            List<Book> books = bookMapper.selectList(new LambdaQueryWrapper<Book>()
+                    .select(Book::getId)
+                    .eq(Book::getIsIndexed, 1));
+            long sections = 0;
+            List<String> failedBooks = new ArrayList<>();
+            for (int i = 0; i < books.size(); i++) {
+                Long bookId = books.get(i).getId();
+                task.setCurrentStep(String.format("写入%s：%d/%d", newIndex, i + 1, books.size()))
+                        .setProgress(books.isEmpty() ? 90 : (i + 1) * 90 / books.size());
+                BulkIndexResult result = bookSectionEsService.importBookSections(bookId, newIndex);
+                sections += result.getSucceeded();
+                if (result.hasFailures()) {
+                    failedBooks.add(bookId.toString());
+                }
+            }
+            if (!failedBooks.isEmpty()) {
+                throw new IOException(String.format("%d本图书写入%s失败，图书ID:%s",
+                        failedBooks.size(), newIndex, String.join(",", failedBooks)));
+            }
+
+            // 补写全量写入期间修改的图书，缩小切换前需要补写的范围
+            task.setCurrentStep("补写重建期间修改的图书").setProgress(92);
+            Date next = catchUpStart();
+            catchUp(newIndex, since);
+            since = next;
+
+            task.setCurrentStep("恢复索引设置").setProgress(95);
+            updateSettings(newIndex, numberOfReplicas, refreshInterval);
+            esClient.indices().refresh(r -> r.index(newIndex));
+
+            // 在同一个请求中移除旧索引上的别名并指向新索引，搜索不会出现空档
+            task.setCurrentStep("切换别名到" + newIndex);
+            esClient.indices().updateAliases(u -> {
+                u.actions(a -> a.add(add -> add.index(newIndex).alias(BOOKS_ALIAS)));
+                for (String oldIndex : oldIndices) {
+                    u.actions(a -> a.remove(remove -> remove.index(oldIndex).alias(BOOKS_ALIAS)));
+                }
+                if (legacyIndex) {
+                    u.actions(a -> a.removeIndex(remove -> remove.index(BOOKS_ALIAS)));
+                }
+                return u;
+            });
+            switched = true;
+            log.info("别名{}已从{}切换到{}，共写入{}本图书{}个章节", BOOKS_ALIAS,
+                    legacyIndex ? BOOKS_ALIAS : oldIndices, newIndex, books.size(), sections);
+
+            // 切换前最后一次补写到切换之间的修改仍写在旧索引，切换后经别名补写到新索引
+            task.setCurrentStep("补写切换期间修改的图书").setProgress(98);
+            catchUp(BOOKS_ALIAS, since);
+
+            // 补写成功后才删除旧索引，失败时保留旧索引以便排查和重试
+            if (deleteOldIndex && !oldIndices.isEmpty()) {
+                esClient.indices().delete(d -> d.index(oldIndices));
+                log.info("已删除旧索引{}", oldIndices);
+            }
+
+            task.setCurrentStep("重建完成");
+            return String.format("索引%s重建完成，共%d本图书%d个章节", newIndex, books.size(), sections);
+        } catch (Exception e) {
+            if (switched) {
+                // 别名已指向新索引，保留新旧两个索引，重新执行重建即可修复
+                log.error("别名已切换到{}，但补写切换期间修改的图书失败，旧索引{}未删除", newIndex, oldIndices);
+                throw e;
+            }
+            // 别名尚未切换，删除半成品索引，搜索仍由旧索引提供
+            try {
+                esClient.indices().delete(d -> d.index(newIndex));
+            } catch (Exception ex) {
+                log.warn("删除未完成的索引{}失败", newIndex, ex);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 补写的起始时间。modified_time 为秒级且写入时会四舍五入，往前留出余量，重复补写不影响结果
+     */
+    private static Date catchUpStart() {
+        return new Date(System.currentTimeMillis() - CATCH_UP_MARGIN_MS);
+    }
+
+    /**
+     * 将指定时间之后图书或章节有修改的图书按MySQL中的当前状态重新写入目标索引：
+     * 已索引的图书先删除旧章节再导入，未索引或已删除的图书只删除章节
+     */
+    private void catchUp(String index, Date since) throws IOException {
+        Set<Long> bookIds = new LinkedHashSet<>();
+        bookMapper.selectList(new LambdaQueryWrapper<Book>()
+                        .select(Book::getId)
+                        .ge(Book::getModifiedTime, since))
+                .forEach(book -> bookIds.add(book.getId()));
+        // 章节表没有逻辑删除注解，已删除的章节也会被查到；按 idx_modified_time 索引查找
+        bookSectionMapper.selectObjs(new QueryWrapper<BookSection>()
+                        .select("DISTINCT book_id")
+                        .ge("modified_time", since))
+                .forEach(bookId -> bookIds.add(((Number) bookId).longValue()));
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        // delete_by_query只能看到已刷新的文档，重建中的新索引关闭了自动刷新，先刷新再删除旧章节
+        esClient.indices().refresh(r -> r.index(index));
+
+        Map<Long, Book> books = bookMapper.selectBatchIds(bookIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<String> failedBooks = new ArrayList<>();
+        for (Long bookId : bookIds) {
+            esClient.deleteByQuery(d -> d
+                    .index(index)
+                    .query(q -> q.term(t -> t.field("book_id").value(bookId.toString())))
+                    .refresh(true));
+            Book book = books.get(bookId);
+            boolean indexed = book != null && Integer.valueOf(1).equals(book.getIsIndexed())
+                    && !Integer.valueOf(1).equals(book.getIsDeleted());
+            if (indexed && bookSectionEsService.importBookSections(bookId, index).hasFailures()) {
+                failedBooks.add(bookId.toString());
+            }
+        }
+        if (!failedBooks.isEmpty()) {
+            throw new IOException(String.format("%d本图书补写到%s失败，图书ID:%s",
+                    failedBooks.size(), index, String.join(",", failedBooks)));
+        }
+        log.info("已将{}本重建期间修改的图书补写到{}", bookIds.size(), index);
+    }
+
+    private List<String> resolveAlias() throws IOException {
+        if (!esClient.indices().existsAlias(e -> e.name(BOOKS_ALIAS)).value()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(esClient.indices().getAlias(g -> g.name(BOOKS_ALIAS)).result().keySet());
+    }
+
+    private int nextVersion() throws IOException {
+        int max = 0;
+        for (String name : esClient.indices().get(g -> g.index(VERSION_PREFIX + "*")).result().keySet()) {
+            try {
+                max = Math.max(max, Integer.parseInt(name.substring(VERSION_PREFIX.length())));
+            } catch (NumberFormatException ignored) {
+                // 非版本号命名的索引
+            }
+        }
+        return max + 1;
+    }
+
+    private void createIndex(String indexName) throws IOException {
+        String mappingJson = new String(resourceLoader.getResource(MAPPING_FILE).getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8);
+        CreateIndexResponse response = esClient.indices().create(c -> c
+                .index(indexName)
+                .withJson(new StringReader(mappingJson)));
+        if (!response.acknowledged()) {
+            throw new IOException("创建索引" + indexName + "失败");
+        }
+    }
+
+    private void updateSettings(String indexName, String replicas, String interval) throws IOException {
+        esClient.indices().putSettings(p -> p
+                .index(indexName)
+                .settings(s -> s
+                        .numberOfReplicas(replicas)
+                        .refreshInterval(t -> t.time(interval))));
+    }
+}
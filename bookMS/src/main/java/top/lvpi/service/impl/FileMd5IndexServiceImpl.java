@@ -0,0 +1,174 @@
+package top.lvpi.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import top.lvpi.common.TaskType;
+import top.lvpi.mapper.LpFileMd5Mapper;
+import top.lvpi.model.dto.task.TaskProgress;
+import top.lvpi.model.entity.LpFileMd5;
+import top.lvpi.service.FileMd5IndexService;
+import top.lvpi.service.TaskService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class FileMd5IndexServiceImpl implements FileMd5IndexService {
+
+    private static final String CACHE_KEY_PREFIX = "file:md5:";
+
+    @Autowired
+    private LpFileMd5Mapper lpFileMd5Mapper;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Value("${minio.bucketName}")
+    private String bucketName;
+
+    /**
+     * MD5索引在Redis中的缓存时间（小时）
+     */
+    @Value("${file.md5-index.cache-ttl-hours:168}")
+    private long cacheTtlHours;
+
+    /**
+     * 回填时每批写入的条数
+     */
+    @Value("${file.md5-index.backfill-batch-size:500}")
+    private int backfillBatchSize;
+
+    @Override
+    public String findFileName(String md5) {
+        if (StringUtils.isBlank(md5)) {
+            return null;
+        }
+        String cacheKey = CACHE_KEY_PREFIX + md5;
+        try {
+            Object cached = redisTemplate.opsForValue().get(cacheKey);
+            if (cached != null) {
+                return (String) cached;
+            }
+        } catch (Exception e) {
+            // Redis不可用时直接查库
+            log.warn("读取MD5索引缓存失败: {}", md5, e);
+        }
+
+        LpFileMd5 entry = lpFileMd5Mapper.selectById(md5);
+        if (entry == null) {
+            return null;
+        }
+        cache(md5, entry.getFileName());
+        return entry.getFileName();
+    }
+
+    @Override
+    public String register(String md5, String fileName, long fileSize) {
+        int inserted = lpFileMd5Mapper.insertIgnore(new LpFileMd5(md5, fileName, fileSize, null));
+        String canonical = fileName;
+        if (inserted == 0) {
+            // 相同内容已由其他上传登记
+            LpFileMd5 existing = lpFileMd5Mapper.selectById(md5);
+            if (existing != null) {
+                canonical = existing.getFileName();
+                log.info("MD5:{} 已登记为文件{}，忽略{}", md5, canonical, fileName);
+            }
+        }
+        cache(md5, canonical);
+        return canonical;
+    }
+
+    @Override
+    public void remove(String fileName) {
+        if (StringUtils.isBlank(fileName)) {
+            return;
+        }
+        List<LpFileMd5> entries = lpFileMd5Mapper.selectList(new LambdaQueryWrapper<LpFileMd5>()
+                .eq(LpFileMd5::getFileName, fileName));
+        for (LpFileMd5 entry : entries) {
+            lpFileMd5Mapper.deleteById(entry.getFileMd5());
+            try {
+                redisTemplate.delete(CACHE_KEY_PREFIX + entry.getFileMd5());
+            } catch (Exception e) {
+                log.warn("删除MD5索引缓存失败: {}", entry.getFileMd5(), e);
+            }
+        }
+        if (!entries.isEmpty()) {
+            log.info("已删除文件{}的MD5索引", fileName);
+        }
+    }
+
+    @Override
+    public TaskProgress startBackfill() {
+        return taskService.submit(TaskType.MD5_BACKFILL, "all", "开始扫描存储桶" + bucketName, this::backfill);
+    }
+
+    private String backfill(TaskProgress task) throws Exception {
+        Iterable<Result<Item>> results = minioClient.listObjects(
+            ListObjectsArgs.builder()
+                .bucket(bucketName)
+                .recursive(true)
+                .build()
+        );
+
+        long scanned = 0;
+        long written = 0;
+        List<LpFileMd5> batch = new ArrayList<>(backfillBatchSize);
+        for (Result<Item> result : results) {
+            Item item = result.get();
+            if (item.isDir()) {
+                continue;
+            }
+            scanned++;
+            Map<String, String> userMetadata = minioClient.statObject(
+                StatObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(item.objectName())
+                    .build()
+            ).userMetadata();
+            String md5 = userMetadata != null ? userMetadata.get("md5") : null;
+            if (StringUtils.isNotBlank(md5)) {
+                batch.add(new LpFileMd5(md5, item.objectName(), item.size(), null));
+            }
+            if (batch.size() >= backfillBatchSize) {
+                written += lpFileMd5Mapper.insertIgnoreBatch(batch);
+                batch.clear();
+                task.setCurrentStep(String.format("已扫描%d个对象，新增%d条索引", scanned, written));
+            }
+        }
+        if (!batch.isEmpty()) {
+            written += lpFileMd5Mapper.insertIgnoreBatch(batch);
+        }
+
+        log.info("MD5索引回填完成，共扫描{}个对象，新增{}条索引", scanned, written);
+        task.setCurrentStep("回填完成");
+        return String.format("共扫描%d个对象，新增%d条索引", scanned, written);
+    }
+
+    private void cache(String md5, String fileName) {
+        try {
+            redisTemplate.opsForValue().set(CACHE_KEY_PREFIX + md5, fileName, cacheTtlHours, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.warn("写入MD5索引缓存失败: {}", md5, e);
+        }
+    }
+}
@@ -5,16 +5,17 @@ import top.lvpi.common.BusinessException;
 import top.lvpi.common.ErrorCode;
 import top.lvpi.config.MinioConfig;
 import top.lvpi.model.dto.file.LpBookFileDTO;
+import top.lvpi.model.dto.file.FileStat;
 import top.lvpi.model.dto.file.FileUploadResult;
 import top.lvpi.model.entity.Book;
 import top.lvpi.model.entity.LpFile;
+import top.lvpi.service.FileMd5IndexService;
 import top.lvpi.service.FileService;
 import top.lvpi.service.LpFileService;
 import top.lvpi.service.BookFileService;
 import top.lvpi.service.BookService;
 import top.lvpi.utils.FileUtils;
 import io.minio.*;
-import io.minio.messages.Item;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -22,10 +23,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -33,6 +41,8 @@ import java.util.UUID;
 @Slf4j
 public class FileServiceImpl implements FileService {
 
+    private static final int DOWNLOAD_BUFFER_SIZE = 8192;
+
     @Autowired
     private MinioClient minioClient;
 
@@ -48,6 +58,9 @@ public class FileServiceImpl implements FileService {
     @Autowired
     private BookFileService bookFileService;
 
+    @Autowired
+    private FileMd5IndexService fileMd5IndexService;
+
     @Value("${minio.bucketName}")
     private String bucketName;
 
@@ -65,37 +78,22 @@ public class FileServiceImpl implements FileService {
     }
 
     /**
-     * 根据MD5值查找已存在的文件
-     * @param md5 文件的MD5值
-     * @return 如果找到，返回文件名；否则返回null
+     * 登记新上传的文件，相同内容已被并发上传登记时删除本次上传的对象
+     * @return 该内容最终对应的文件名
      */
-    private String findExistingFile(String md5) {
-        try {
-            Iterable<Result<Item>> results = minioClient.listObjects(
-                ListObjectsArgs.builder()
+    private String registerUploaded(String md5, String fileName, long fileSize) {
+        String canonicalName = fileMd5IndexService.register(md5, fileName, fileSize);
+        if (!canonicalName.equals(fileName)) {
+            try {
+                minioClient.removeObject(RemoveObjectArgs.builder()
                     .bucket(bucketName)
-                    .prefix("")
-                    .recursive(true)
-                    .build()
-            );
-
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                Map<String, String> userMetadata = minioClient.statObject(
-                    StatObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(item.objectName())
-                        .build()
-                ).userMetadata();
-                
-                if (userMetadata != null && md5.equals(userMetadata.get("md5"))) {
-                    return item.objectName();
-                }
+                    .object(fileName)
+                    .build());
+            } catch (Exception e) {
+                log.warn("删除重复上传的文件失败: {}", fileName, e);
             }
-        } catch (Exception e) {
-            log.error("查找已存在文件失败", e);
         }
-        return null;
+        return canonicalName;
     }
 
     /**
@@ -105,22 +103,23 @@ public class FileServiceImpl implements FileService {
      */
     private Book getDuplicateBookInfo(String fileName) {
         try {
-            //根据文件名获取文件信息
-            LpFile lpFile = lpFileService.getOne(new LambdaQueryWrapper<LpFile>().eq(LpFile::getFileName, fileName));
-            if (lpFile == null) {
-                return null;
-            }   
-            //根据文件id获取图书id
-            Long  fileId = lpFile.getFileId();
-            LpBookFileDTO lpBookFileDTO = bookFileService.getBookFilesNoDeleteByBookId(fileId);
-            if (lpBookFileDTO == null) {
-                return null;
-            }
-            Book lpBook = bookService.getById(lpBookFileDTO.getBookId());
-            if (lpBook == null) {
-                return null;
+            //根据文件名获取文件信息，相同内容复用同一对象时可能对应多条文件记录
+            List<LpFile> lpFiles = lpFileService.list(new LambdaQueryWrapper<LpFile>()
+                    .select(LpFile::getFileId)
+                    .eq(LpFile::getFileName, fileName));
+            //根据文件id获取关联的图书，返回第一本存在的图书
+            for (LpFile lpFile : lpFiles) {
+                for (LpBookFileDTO lpBookFileDTO : bookFileService.getBookFilesByFileId(lpFile.getFileId())) {
+                    if (lpBookFileDTO.getIsDeleted() == 1) {
+                        continue;
+                    }
+                    Book lpBook = bookService.getById(lpBookFileDTO.getBookId());
+                    if (lpBook != null) {
+                        return lpBook;
+                    }
+                }
             }
-            return lpBook;
+            return null;
         } catch (Exception e) {
             log.error("查询重复文件图书信息失败", e);
             return null;
@@ -128,63 +127,24 @@ public class FileServiceImpl implements FileService {
     }
     @Override
     public FileUploadResult uploadFile(MultipartFile file) {
+        File tempFile = null;
         try {
-            // 计算文件MD5
-            String md5 = calculateMD5(file.getInputStream());
-            log.info("文件MD5: {}", md5);
-
-            // 查找是否已存在相同文件
-            String existingFileName = findExistingFile(md5);
-            if (existingFileName != null) {
-                log.info("找到已存在的文件: {}", existingFileName);
-                // 获取重复文件对应的图书信息
-                Book duplicateBook = getDuplicateBookInfo(existingFileName);
-                if (duplicateBook != null) {
-                    log.info("找到重复文件对应的图书: ID={}, 标题={}", duplicateBook.getId(), duplicateBook.getTitle());
-                    // 如果是PDF文件，获取页数
-                    int pageCount = 0;
-                    if (existingFileName.toLowerCase().endsWith(".pdf")) {
-                        try (InputStream inputStream = getFileInputStream(existingFileName);
-                             PDDocument document = PDDocument.load(inputStream)) {
-                            pageCount = document.getNumberOfPages();
-                        }
-                    }
-                    return new FileUploadResult(existingFileName, pageCount, 
-                        duplicateBook.getId(), duplicateBook.getTitle(), duplicateBook.getPicUrl());
-                }
-            }
-
-            // 如果文件不存在，则上传新文件
+            // 只读取一遍上传内容：写入临时文件的同时计算MD5，页数统计和上传都基于临时文件
             String extension = FileUtils.getFileExtension(file.getOriginalFilename());
-            String fileName = UUID.randomUUID().toString() + extension;
-            
-            // 如果是PDF文件，获取页数
-            int pageCount = 0;
-            if ("application/pdf".equals(file.getContentType())) {
-                try (InputStream inputStream = file.getInputStream();
-                     PDDocument document = PDDocument.load(inputStream)) {
-                    pageCount = document.getNumberOfPages();
-                }
+            tempFile = File.createTempFile("upload-", extension);
+            String md5;
+            try (InputStream inputStream = file.getInputStream()) {
+                md5 = spool(inputStream, tempFile);
             }
-            
-            // 设置自定义元数据
-            Map<String, String> userMetadata = new HashMap<>();
-            userMetadata.put("md5", md5);
-            
-            // 上传文件到MinIO
-            minioClient.putObject(PutObjectArgs.builder()
-                .bucket(bucketName)
-                .object(fileName)
-                .stream(file.getInputStream(), file.getSize(), -1)
-                .contentType(file.getContentType())
-                .userMetadata(userMetadata)
-                .build());
-            
-            log.info("文件上传成功: {}", fileName);
-            return new FileUploadResult(fileName, pageCount);
+            boolean isPdf = "application/pdf".equals(file.getContentType());
+            return upload(tempFile, md5, extension, file.getContentType(), isPdf);
         } catch (Exception e) {
             log.error("文件上传失败", e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件上传失败");
+        } finally {
+            if (tempFile != null && !tempFile.delete()) {
+                log.warn("临时文件删除失败: {}", tempFile.getAbsolutePath());
+            }
         }
     }
 
@@ -196,63 +156,89 @@ public class FileServiceImpl implements FileService {
             try (FileInputStream fis = new FileInputStream(file)) {
                 md5 = calculateMD5(fis);
             }
-            log.info("文件MD5: {}", md5);
-
-            // 查找是否已存在相同文件
-            String existingFileName = findExistingFile(md5);
-            if (existingFileName != null) {
-                log.info("找到已存在的文件: {}", existingFileName);
-                // 获取重复文件对应的图书信息
-                Book duplicateBook = getDuplicateBookInfo(existingFileName);
-                if (duplicateBook != null) {
-                    log.info("找到重复文件对应的图书: ID={}, 标题={}", duplicateBook.getId(), duplicateBook.getTitle());
-                    // 如果是PDF文件，获取页数
-                    int pageCount = 0;
-                    if (existingFileName.toLowerCase().endsWith(".pdf")) {
-                        try (InputStream inputStream = getFileInputStream(existingFileName);
-                             PDDocument document = PDDocument.load(inputStream)) {
-                            pageCount = document.getNumberOfPages();
-                        }
-                    }
-                    return new FileUploadResult(existingFileName, pageCount, 
-                        duplicateBook.getId(), duplicateBook.getTitle(), duplicateBook.getPicUrl());
-                }
-            }
-
-            // 如果文件不存在，则上传新文件
             String extension = FileUtils.getFileExtension(file.getName());
-            String fileName = UUID.randomUUID().toString() + extension;
-            
-            // 如果是PDF文件，获取页数
-            int pageCount = 0;
-            if (file.getName().toLowerCase().endsWith(".pdf")) {
-                try (FileInputStream fis = new FileInputStream(file);
-                     PDDocument document = PDDocument.load(fis)) {
-                    pageCount = document.getNumberOfPages();
-                }
-            }
-            
-            // 设置自定义元数据
-            Map<String, String> userMetadata = new HashMap<>();
-            userMetadata.put("md5", md5);
-            
-            // 上传文件到MinIO
-            minioClient.putObject(PutObjectArgs.builder()
-                .bucket(bucketName)
-                .object(fileName)
-                .stream(new FileInputStream(file), file.length(), -1)
-                .contentType(FileUtils.getContentType(file.getName()))
-                .userMetadata(userMetadata)
-                .build());
-            
-            log.info("文件上传成功: {}", fileName);
-            return new FileUploadResult(fileName, pageCount);
+            boolean isPdf = file.getName().toLowerCase().endsWith(".pdf");
+            return upload(file, md5, extension, FileUtils.getContentType(file.getName()), isPdf);
         } catch (Exception e) {
             log.error("文件上传失败", e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件上传失败");
         }
     }
 
+    /**
+     * 将输入流写入目标文件，同时计算MD5
+     * @return MD5值
+     */
+    private String spool(InputStream inputStream, File target) throws IOException {
+        MessageDigest digest = DigestUtils.getMd5Digest();
+        try (DigestInputStream digestStream = new DigestInputStream(inputStream, digest)) {
+            Files.copy(digestStream, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * 按MD5去重后将本地文件上传到MinIO
+     * @param file 本地文件
+     * @param md5 文件MD5值
+     * @param extension 文件扩展名
+     * @param contentType 文件类型
+     * @param isPdf 是否为PDF文件，是则统计页数
+     * @return 上传结果
+     */
+    private FileUploadResult upload(File file, String md5, String extension, String contentType, boolean isPdf) throws Exception {
+        log.info("文件MD5: {}", md5);
+
+        // 如果是PDF文件，直接从本地文件获取页数；重复文件内容相同，也无需再从MinIO下载
+        int pageCount = 0;
+        if (isPdf) {
+            try (PDDocument document = PDDocument.load(file, MemoryUsageSetting.setupTempFileOnly())) {
+                pageCount = document.getNumberOfPages();
+            }
+        }
+
+        // 查找是否已存在相同文件
+        String existingFileName = fileMd5IndexService.findFileName(md5);
+        if (existingFileName != null) {
+            log.info("找到已存在的文件: {}", existingFileName);
+            FileUploadResult result;
+            // 获取重复文件对应的图书信息
+            Book duplicateBook = getDuplicateBookInfo(existingFileName);
+            if (duplicateBook != null) {
+                log.info("找到重复文件对应的图书: ID={}, 标题={}", duplicateBook.getId(), duplicateBook.getTitle());
+                result = new FileUploadResult(existingFileName, pageCount,
+                    duplicateBook.getId(), duplicateBook.getTitle(), duplicateBook.getPicUrl());
+            } else {
+                // 相同内容已在MinIO中，直接复用
+                result = new FileUploadResult(existingFileName, pageCount);
+            }
+            result.setMd5(md5);
+            return result;
+        }
+
+        // 如果文件不存在，则上传新文件
+        String fileName = UUID.randomUUID().toString() + extension;
+
+        // 设置自定义元数据
+        Map<String, String> userMetadata = new HashMap<>();
+        userMetadata.put("md5", md5);
+
+        // 上传文件到MinIO，大文件由客户端自动分片上传
+        minioClient.uploadObject(UploadObjectArgs.builder()
+            .bucket(bucketName)
+            .object(fileName)
+            .filename(file.getAbsolutePath())
+            .contentType(contentType)
+            .userMetadata(userMetadata)
+            .build());
+
+        String canonicalName = registerUploaded(md5, fileName, file.length());
+        log.info("文件上传成功: {}", canonicalName);
+        FileUploadResult result = new FileUploadResult(canonicalName, pageCount);
+        result.setMd5(md5);
+        return result;
+    }
+
     @Override
     public void downloadFile(String filePath, OutputStream outputStream) {
         try {
@@ -267,6 +253,46 @@ public class FileServiceImpl implements FileService {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件下载失败");
         }
     }
+    @Override
+    public void downloadFile(String fileName, long offset, long length, OutputStream outputStream) throws IOException {
+        GetObjectResponse response;
+        try {
+            response = minioClient.getObject(GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(fileName)
+                .offset(offset)
+                .length(length)
+                .build());
+        } catch (Exception e) {
+            log.error("获取文件区间失败: {} [{}, +{}]", fileName, offset, length, e);
+            throw new IOException("获取文件区间失败: " + e.getMessage(), e);
+        }
+        // 固定大小的缓冲区边读边写，内存占用与文件大小无关
+        try (InputStream inputStream = response) {
+            byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            outputStream.flush();
+        }
+    }
+
+    @Override
+    public FileStat statFile(String fileName) throws IOException {
+        try {
+            StatObjectResponse stat = minioClient.statObject(StatObjectArgs.builder()
+                .bucket(bucketName)
+                .object(fileName)
+                .build());
+            return new FileStat(fileName, stat.size(), stat.etag(),
+                stat.lastModified().toInstant().toEpochMilli(), stat.contentType());
+        } catch (Exception e) {
+            log.error("获取文件信息失败: {}", fileName, e);
+            throw new IOException("获取文件信息失败: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public String getPreviewUrl(String fileName) {
         return minioConfig.getPreviewUrl(fileName);
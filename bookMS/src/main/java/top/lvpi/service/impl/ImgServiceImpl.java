@@ -1,48 +1,307 @@
 package top.lvpi.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import top.lvpi.common.BusinessException;
+import top.lvpi.common.CoverSize;
+import top.lvpi.common.ErrorCode;
+import top.lvpi.common.TaskType;
 import top.lvpi.mapper.ImgMapper;
+import top.lvpi.model.dto.task.TaskProgress;
 import top.lvpi.model.entity.Img;
 import top.lvpi.service.ImgService;
+import top.lvpi.service.TaskService;
 import top.lvpi.utils.ImageUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 @Service
+@Slf4j
 public class ImgServiceImpl extends ServiceImpl<ImgMapper, Img> implements ImgService {
 
+    private static final String COVER_PREFIX = "covers/";
+
+    @Autowired
+    private MinioClient minioClient;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Value("${minio.bucketName}")
+    private String bucketName;
+
+    /**
+     * 迁移任务每批处理的图片数
+     */
+    @Value("${cover.migrate-batch-size:100}")
+    private int migrateBatchSize;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Long saveImage(String base64Data, Long bookId) {
+        byte[] imageBytes;
+        try {
+            imageBytes = ImageUtils.decodeBase64(base64Data);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "图片数据格式错误");
+        }
+        return saveImage(imageBytes, bookId);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Long saveImage(byte[] imageBytes, Long bookId) {
+        return replaceBookImage(bookId, img -> storeImage(img, imageBytes));
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Long saveCover(BufferedImage image, Long bookId) {
+        return replaceBookImage(bookId, img -> storeCover(img, image));
+    }
+
+    @Override
+    public String getImageByBookId(Long bookId) {
+        return toBase64(getImageMetaByBookId(bookId));
+    }
+
+    @Override
+    public String getImageById(Long imgId) {
+        return toBase64(getImageMeta(imgId));
+    }
+
+    @Override
+    public Img getImageMeta(Long imgId) {
+        return this.getOne(metaQuery().eq(Img::getId, imgId));
+    }
+
+    @Override
+    public Img getImageMetaByBookId(Long bookId) {
+        return this.getOne(metaQuery().eq(Img::getBookId, bookId).orderByDesc(Img::getId).last("LIMIT 1"));
+    }
+
+    @Override
+    public byte[] getImageBytes(Img img) throws IOException {
+        return getImageBytes(img, CoverSize.DETAIL);
+    }
+
+    @Override
+    public byte[] getImageBytes(Img img, CoverSize size) throws IOException {
+        if (img.getImgPath() != null) {
+            String objectName = resolveSize(img, size) == CoverSize.DETAIL
+                    ? img.getImgPath() : variantObjectName(img.getId(), size);
+            try (InputStream inputStream = minioClient.getObject(GetObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .build())) {
+                return inputStream.readAllBytes();
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("读取图片失败: " + objectName, e);
+            }
+        }
+        // 尚未迁移的旧数据
+        Img legacy = this.getOne(new LambdaQueryWrapper<Img>()
+                .select(Img::getId, Img::getImgData)
+                .eq(Img::getId, img.getId()));
+        if (legacy == null || legacy.getImgData() == null) {
+            return null;
+        }
+        return ImageUtils.decodeBase64(legacy.getImgData());
+    }
+
+    @Override
+    public CoverSize resolveSize(Img img, CoverSize size) {
+        if (size == CoverSize.DETAIL || img.getImgVariants() == null) {
+            return CoverSize.DETAIL;
+        }
+        for (String code : img.getImgVariants().split(",")) {
+            if (size.getCode().equals(code)) {
+                return size;
+            }
+        }
+        return CoverSize.DETAIL;
+    }
+
+    @Override
+    public TaskProgress startMigration() {
+        return taskService.submit(TaskType.COVER_MIGRATE, "all", "开始迁移封面图片", this::migrate);
+    }
+
+    /**
+     * 按ID顺序分批迁移，每批只加载一批base64数据；单张失败时跳过并记录，不影响后续批次
+     */
+    private String migrate(TaskProgress task) {
+        long total = this.count(new LambdaQueryWrapper<Img>().isNull(Img::getImgPath).isNotNull(Img::getImgData));
+        long lastId = 0;
+        long migrated = 0;
+        long failed = 0;
+        while (true) {
+            List<Img> batch = this.list(new LambdaQueryWrapper<Img>()
+                    .select(Img::getId, Img::getImgData)
+                    .isNull(Img::getImgPath)
+                    .isNotNull(Img::getImgData)
+                    .gt(Img::getId, lastId)
+                    .orderByAsc(Img::getId)
+                    .last("LIMIT " + migrateBatchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Img legacy : batch) {
+                lastId = legacy.getId();
+                try {
+                    Img img = new Img();
+                    img.setId(legacy.getId());
+                    storeImage(img, ImageUtils.decodeBase64(legacy.getImgData()));
+                    // 转存成功后清空base64数据
+                    this.update(new LambdaUpdateWrapper<Img>()
+                            .eq(Img::getId, img.getId())
+                            .set(Img::getImgPath, img.getImgPath())
+                            .set(Img::getContentType, img.getContentType())
+                            .set(Img::getImgEtag, img.getImgEtag())
+                            .set(Img::getImgSize, img.getImgSize())
+                            .set(Img::getImgVariants, img.getImgVariants())
+                            .set(Img::getImgData, null));
+                    migrated++;
+                } catch (Exception e) {
+                    failed++;
+                    log.error("封面图片{}迁移失败", legacy.getId(), e);
+                }
+            }
+            task.setCurrentStep(String.format("已迁移%d/%d张，失败%d张", migrated, total, failed))
+                    .setProgress(total == 0 ? 100 : (int) Math.min(99, (migrated + failed) * 100 / total));
+        }
+        log.info("封面迁移完成，成功{}张，失败{}张", migrated, failed);
+        task.setCurrentStep("迁移完成");
+        return String.format("成功迁移%d张，失败%d张", migrated, failed);
+    }
+
+    // 删除书籍的旧图片后保存新图片
+    private Long replaceBookImage(Long bookId, Consumer<Img> store) {
         // 先删除该书籍的旧图片
         LambdaQueryWrapper<Img> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(Img::getBookId, bookId);
         this.remove(queryWrapper);
 
-        // 优化图片
-        String optimizedBase64 = ImageUtils.optimizeImage(base64Data);
-
-        // 保存新图片
+        // 图片二进制存入MinIO，数据库只保存元信息
         Img img = new Img();
-        img.setImgData(optimizedBase64);
+        img.setId(IdWorker.getId());
         img.setBookId(bookId);
+        store.accept(img);
         this.save(img);
-        
+
         return img.getId();
     }
 
-    @Override
-    public String getImageByBookId(Long bookId) {
-        LambdaQueryWrapper<Img> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Img::getBookId, bookId);
-        Img img = this.getOne(queryWrapper);
-        return img != null ? img.getImgData() : null;
+    /**
+     * 保存任意格式的图片数据，能解码时按封面生成各尺寸，否则原样保存
+     */
+    private void storeImage(Img img, byte[] imageBytes) {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        } catch (IOException e) {
+            image = null;
+        }
+        if (image == null) {
+            log.warn("无法解码图片{}，按原格式保存", img.getId());
+            String contentType = ImageUtils.detectContentType(imageBytes);
+            String extension = "image/jpeg".equals(contentType) ? ".jpg" : "." + contentType.substring("image/".length());
+            putObject(COVER_PREFIX + img.getId() + extension, imageBytes, contentType);
+            img.setImgPath(COVER_PREFIX + img.getId() + extension);
+            img.setContentType(contentType);
+            img.setImgEtag(DigestUtils.md5Hex(imageBytes));
+            img.setImgSize((long) imageBytes.length);
+            return;
+        }
+        storeCover(img, image);
     }
 
-    @Override
-    public String getImageById(Long imgId) {
-        Img img = this.getById(imgId);
-        return img != null ? img.getImgData() : null;
+    /**
+     * 生成各尺寸的封面写入MinIO，并填充对象名称、类型、ETag、大小和已生成的尺寸
+     * <p>
+     * 默认尺寸保存为 covers/{id}.jpg，其余尺寸保存为 covers/{id}_{尺寸代码}.jpg
+     */
+    private void storeCover(Img img, BufferedImage image) {
+        Map<CoverSize, byte[]> ladder;
+        try {
+            ladder = ImageUtils.buildCoverLadder(image);
+        } catch (Exception e) {
+            log.error("生成封面失败: {}", img.getId(), e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片保存失败");
+        }
+        List<String> variants = new ArrayList<>();
+        for (Map.Entry<CoverSize, byte[]> entry : ladder.entrySet()) {
+            if (entry.getKey() != CoverSize.DETAIL) {
+                putObject(variantObjectName(img.getId(), entry.getKey()), entry.getValue(), "image/jpeg");
+                variants.add(entry.getKey().getCode());
+            }
+        }
+        byte[] detail = ladder.get(CoverSize.DETAIL);
+        String objectName = COVER_PREFIX + img.getId() + ".jpg";
+        putObject(objectName, detail, "image/jpeg");
+        img.setImgPath(objectName);
+        img.setContentType("image/jpeg");
+        img.setImgEtag(DigestUtils.md5Hex(detail));
+        img.setImgSize((long) detail.length);
+        img.setImgVariants(variants.isEmpty() ? null : String.join(",", variants));
+    }
+
+    private void putObject(String objectName, byte[] data, String contentType) {
+        try {
+            minioClient.putObject(PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .stream(new ByteArrayInputStream(data), data.length, -1)
+                    .contentType(contentType)
+                    .build());
+        } catch (Exception e) {
+            log.error("图片上传失败: {}", objectName, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片保存失败");
+        }
+    }
+
+    private static String variantObjectName(Long imgId, CoverSize size) {
+        return COVER_PREFIX + imgId + "_" + size.getCode() + ".jpg";
+    }
+
+    private String toBase64(Img img) {
+        if (img == null) {
+            return null;
+        }
+        try {
+            byte[] imageBytes = getImageBytes(img);
+            return imageBytes != null ? Base64.getEncoder().encodeToString(imageBytes) : null;
+        } catch (IOException e) {
+            log.error("读取图片失败: {}", img.getId(), e);
+            return null;
+        }
+    }
+
+    // 只查询元信息列，不加载base64数据
+    private LambdaQueryWrapper<Img> metaQuery() {
+        return new LambdaQueryWrapper<Img>()
+                .select(Img::getId, Img::getBookId, Img::getImgPath, Img::getContentType, Img::getImgEtag, Img::getImgSize, Img::getImgVariants);
     }
-} 
\ No newline at end of file
+}
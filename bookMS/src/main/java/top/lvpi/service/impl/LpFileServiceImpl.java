@@ -5,14 +5,19 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import top.lvpi.mapper.LpFileMapper;
 import top.lvpi.model.entity.LpFile;
 import top.lvpi.model.dto.file.LpFileDTO;
+import top.lvpi.service.FileMd5IndexService;
 import top.lvpi.service.LpFileService;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class LpFileServiceImpl extends ServiceImpl<LpFileMapper, LpFile> implements LpFileService {
 
+    @Autowired
+    private FileMd5IndexService fileMd5IndexService;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Long saveFile(LpFileDTO fileDTO) {
@@ -39,7 +44,14 @@ public class LpFileServiceImpl extends ServiceImpl<LpFileMapper, LpFile> impleme
         if (fileId == null) {
             return false;
         }
-        return removeById(fileId);
+        LpFile file = getById(fileId);
+        boolean removed = removeById(fileId);
+        // 相同内容可能被多条文件记录复用，没有其他记录引用该对象时才删除MD5索引
+        if (removed && file != null && file.getFileName() != null
+                && count(new LambdaQueryWrapper<LpFile>().eq(LpFile::getFileName, file.getFileName())) == 0) {
+            fileMd5IndexService.remove(file.getFileName());
+        }
+        return removed;
     }
 
     @Override
@@ -0,0 +1,155 @@
+package top.lvpi.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import top.lvpi.model.entity.OpacBookInfo;
+import top.lvpi.service.OpacCacheService;
+import top.lvpi.utils.BookUtils;
+import top.lvpi.utils.IsbnUtils;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class OpacCacheServiceImpl implements OpacCacheService {
+
+    private static final String INFO_KEY_PREFIX = "opac:isbn:";
+
+    private static final String HTML_KEY_PREFIX = "opac:html:";
+
+    /**
+     * "没有记录"的缓存值
+     */
+    private static final String NOT_FOUND = "NOT_FOUND";
+
+    @Autowired
+    private BookUtils bookUtils;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 有效记录的缓存时间（天）
+     */
+    @Value("${opac.cache.positive-ttl-days:30}")
+    private long positiveTtlDays;
+
+    /**
+     * "没有记录"的缓存时间（小时），OPAC可能稍后收录
+     */
+    @Value("${opac.cache.negative-ttl-hours:24}")
+    private long negativeTtlHours;
+
+    /**
+     * 是否同时缓存OPAC返回的原始页面，便于调整解析规则后重新解析
+     */
+    @Value("${opac.cache.store-html:false}")
+    private boolean storeHtml;
+
+    private Counter hitCounter;
+
+    private Counter negativeHitCounter;
+
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        hitCounter = meterRegistry.counter("opac.cache.requests", "result", "hit");
+        negativeHitCounter = meterRegistry.counter("opac.cache.requests", "result", "negative_hit");
+        missCounter = meterRegistry.counter("opac.cache.requests", "result", "miss");
+    }
+
+    @Override
+    public OpacBookInfo getBookInfo(String isbn) throws IOException {
+        Lookup lookup = lookup(isbn);
+        return lookup.isCached() ? lookup.getInfo() : fetchAndCache(isbn);
+    }
+
+    @Override
+    public Lookup lookup(String isbn) {
+        String isbn13 = IsbnUtils.toIsbn13(isbn);
+        if (isbn13 == null) {
+            // 无效ISBN不会有OPAC记录，也不需要请求
+            return Lookup.of(null);
+        }
+        try {
+            Object cached = redisTemplate.opsForValue().get(INFO_KEY_PREFIX + isbn13);
+            if (NOT_FOUND.equals(cached)) {
+                negativeHitCounter.increment();
+                return Lookup.of(null);
+            }
+            if (cached != null) {
+                hitCounter.increment();
+                return Lookup.of(objectMapper.readValue((String) cached, OpacBookInfo.class));
+            }
+        } catch (Exception e) {
+            // Redis不可用或缓存内容无法解析时按未命中处理
+            log.warn("读取OPAC缓存失败: {}", isbn13, e);
+        }
+        missCounter.increment();
+        return Lookup.miss();
+    }
+
+    @Override
+    public OpacBookInfo fetchAndCache(String isbn) throws IOException {
+        String isbn13 = IsbnUtils.toIsbn13(isbn);
+        if (isbn13 == null) {
+            return null;
+        }
+        String key = INFO_KEY_PREFIX + isbn13;
+
+        String[] html = new String[1];
+        OpacBookInfo opacInfo = bookUtils.fetchBookInfo(isbn.trim(), storeHtml ? page -> html[0] = page : null);
+        // 能走到这里说明OPAC正常返回了结果或"没有记录"，暂时性失败已抛出异常
+        try {
+            if (opacInfo == null) {
+                redisTemplate.opsForValue().set(key, NOT_FOUND, negativeTtlHours, TimeUnit.HOURS);
+            } else {
+                redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(opacInfo), positiveTtlDays, TimeUnit.DAYS);
+            }
+            if (html[0] != null) {
+                long ttlHours = opacInfo == null ? negativeTtlHours : TimeUnit.DAYS.toHours(positiveTtlDays);
+                redisTemplate.opsForValue().set(HTML_KEY_PREFIX + isbn13, html[0], ttlHours, TimeUnit.HOURS);
+            }
+        } catch (Exception e) {
+            log.warn("写入OPAC缓存失败: {}", isbn13, e);
+        }
+        return opacInfo;
+    }
+
+    @Override
+    public void evict(String isbn) {
+        String isbn13 = IsbnUtils.toIsbn13(isbn);
+        if (StringUtils.isBlank(isbn13)) {
+            return;
+        }
+        redisTemplate.delete(INFO_KEY_PREFIX + isbn13);
+        redisTemplate.delete(HTML_KEY_PREFIX + isbn13);
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hit", (long) hitCounter.count());
+        stats.put("negativeHit", (long) negativeHitCounter.count());
+        stats.put("miss", (long) missCounter.count());
+        return stats;
+    }
+}
@@ -0,0 +1,265 @@
+package top.lvpi.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import top.lvpi.mapper.BookMapper;
+import top.lvpi.model.dto.task.TaskProgress;
+import top.lvpi.model.entity.Book;
+import top.lvpi.model.entity.OpacBookInfo;
+import top.lvpi.service.BookService;
+import top.lvpi.service.OpacCacheService;
+import top.lvpi.service.OpacHarvestService;
+import top.lvpi.utils.TokenBucket;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@Slf4j
+public class OpacHarvestServiceImpl implements OpacHarvestService {
+
+    private static final String CHECKPOINT_KEY = "opac:harvest:checkpoint";
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private OpacCacheService opacCacheService;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 同时在途的OPAC请求数
+     */
+    @Value("${opac.harvest.concurrency:4}")
+    private int concurrency;
+
+    /**
+     * 每秒允许发出的请求数，包括重试
+     */
+    @Value("${opac.harvest.rate-per-second:2}")
+    private double ratePerSecond;
+
+    /**
+     * 允许的突发请求数
+     */
+    @Value("${opac.harvest.burst:2}")
+    private int burst;
+
+    /**
+     * 暂时性失败的最大重试次数
+     */
+    @Value("${opac.harvest.max-retries:3}")
+    private int maxRetries;
+
+    /**
+     * 首次重试的退避上限（毫秒），之后每次翻倍
+     */
+    @Value("${opac.harvest.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    /**
+     * 单次退避的最大时间（毫秒）
+     */
+    @Value("${opac.harvest.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    /**
+     * 每页读取的图书数，每页处理完写入一次检查点
+     */
+    @Value("${opac.harvest.page-size:100}")
+    private int pageSize;
+
+    private ExecutorService executor;
+
+    @Override
+    public String harvest(TaskProgress progress) throws InterruptedException {
+        long checkpoint = readCheckpoint();
+        long total = bookMapper.selectCount(pendingQuery(checkpoint));
+        if (total == 0) {
+            clearCheckpoint();
+            return "没有需要获取OPAC信息的图书";
+        }
+        if (checkpoint > 0) {
+            log.info("从检查点图书ID:{}继续采集OPAC信息，剩余{}本", checkpoint, total);
+        }
+
+        TokenBucket rateLimiter = new TokenBucket(ratePerSecond, burst);
+        ExecutorService pool = executor();
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger notFound = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+        int processed = 0;
+
+        while (true) {
+            List<Book> page = bookMapper.selectList(pendingQuery(checkpoint)
+                    .orderByAsc(Book::getId)
+                    .last("LIMIT " + Math.max(1, pageSize)));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            List<Future<?>> futures = new ArrayList<>(page.size());
+            for (Book book : page) {
+                futures.add(pool.submit(() -> {
+                    try {
+                        OpacBookInfo opacInfo = fetchWithRetry(book.getIsbn(), rateLimiter);
+                        if (opacInfo == null) {
+                            // 标记为未找到，后续批量采集不再重复请求
+                            Book update = new Book();
+                            update.setId(book.getId());
+                            update.setIsOpaced(2);
+                            bookMapper.updateById(update);
+                            notFound.incrementAndGet();
+                            errors.add(String.format("图书ID:%d，名称：%s - 未找到OPAC信息", book.getId(), book.getTitle()));
+                        } else if (bookService.saveOpacInfo(book.getId(), opacInfo)) {
+                            success.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                            errors.add(String.format("图书ID:%d，名称：%s - 更新失败", book.getId(), book.getTitle()));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        log.error("获取图书ID:{}的OPAC信息失败", book.getId(), e);
+                        failed.incrementAndGet();
+                        errors.add(String.format("图书ID:%d，名称：%s - 处理失败: %s", book.getId(), book.getTitle(), e.getMessage()));
+                    }
+                }));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                throw e;
+            } catch (Exception e) {
+                // 任务内部已捕获所有异常
+                log.error("OPAC采集任务异常", e);
+            }
+
+            // 整页完成后推进检查点，中断时最多重做一页
+            checkpoint = page.get(page.size() - 1).getId();
+            writeCheckpoint(checkpoint);
+            processed += page.size();
+            progress.setProgress((int) Math.min(99, processed * 100 / total))
+                    .setCurrentStep(String.format("已处理%d/%d本图书，成功%d，未找到%d，失败%d",
+                            processed, total, success.get(), notFound.get(), failed.get()));
+        }
+
+        // 完整执行结束，下次从头开始，本次暂时失败的图书可以再次尝试
+        clearCheckpoint();
+
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("批量获取OPAC信息完成，共处理%d本图书，成功%d，未找到%d，失败%d",
+                processed, success.get(), notFound.get(), failed.get()));
+        if (!errors.isEmpty()) {
+            result.append("\n详细结果：\n").append(String.join("\n", errors));
+        }
+        return result.toString();
+    }
+
+    @Override
+    public void resetCheckpoint() {
+        clearCheckpoint();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取OPAC信息（优先读取缓存），服务暂不可用或网络异常时按"完全抖动"的指数退避重试：
+     * 第n次重试前随机等待[0, min(最大退避, 初始退避*2^(n-1))]毫秒，避免多个请求同时重试。
+     * 缓存命中不消耗限流令牌，只有实际请求OPAC时才限流
+     */
+    private OpacBookInfo fetchWithRetry(String isbn, TokenBucket rateLimiter) throws IOException, InterruptedException {
+        OpacCacheService.Lookup lookup = opacCacheService.lookup(isbn);
+        if (lookup.isCached()) {
+            return lookup.getInfo();
+        }
+        for (int attempt = 0; ; attempt++) {
+            rateLimiter.acquire();
+            try {
+                return opacCacheService.fetchAndCache(isbn);
+            } catch (IOException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt, 20));
+                long backoff = ThreadLocalRandom.current().nextLong(ceiling + 1);
+                log.warn("获取ISBN:{}的OPAC信息失败：{}，{}ms后第{}次重试", isbn, e.getMessage(), backoff, attempt + 1);
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    // is_opaced为空或不为1（包括之前未找到的2，由"没有记录"缓存避免重复请求）且ISBN不为空，按图书ID从检查点之后读取
+    private LambdaQueryWrapper<Book> pendingQuery(long afterId) {
+        LambdaQueryWrapper<Book> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.and(wrapper -> wrapper
+                .isNull(Book::getIsOpaced)
+                .or()
+                .ne(Book::getIsOpaced, 1));
+        queryWrapper.isNotNull(Book::getIsbn)
+                .ne(Book::getIsbn, "")
+                .gt(Book::getId, afterId);
+        return queryWrapper;
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, concurrency), new CustomizableThreadFactory("opac-harvest-"));
+        }
+        return executor;
+    }
+
+    private long readCheckpoint() {
+        try {
+            Object value = redisTemplate.opsForValue().get(CHECKPOINT_KEY);
+            return value == null ? 0 : Long.parseLong(value.toString());
+        } catch (Exception e) {
+            log.warn("读取OPAC采集检查点失败，从头开始", e);
+            return 0;
+        }
+    }
+
+    private void writeCheckpoint(long bookId) {
+        try {
+            redisTemplate.opsForValue().set(CHECKPOINT_KEY, String.valueOf(bookId));
+        } catch (Exception e) {
+            log.warn("写入OPAC采集检查点失败: {}", bookId, e);
+        }
+    }
+
+    private void clearCheckpoint() {
+        try {
+            redisTemplate.delete(CHECKPOINT_KEY);
+        } catch (Exception e) {
+            log.warn("清除OPAC采集检查点失败", e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package top.lvpi.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import top.lvpi.common.BusinessException;
 import top.lvpi.common.ErrorCode;
 import top.lvpi.model.dto.book.BookUpdateRequest;
@@ -9,16 +10,19 @@ import top.lvpi.service.BookService;
 import top.lvpi.service.BookSectionService;
 import top.lvpi.service.FileService;
 import top.lvpi.service.PdfService;
-import top.lvpi.utils.PDFUtils;
+import top.lvpi.utils.BookSectionBatchWriter;
+import top.lvpi.utils.ParallelPdfExtractor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 @Service
 @Slf4j
@@ -33,8 +37,18 @@ public class PdfServiceImpl implements PdfService {
     @Autowired
     private BookSectionService bookSectionService;
 
+    @Autowired
+    private ParallelPdfExtractor parallelPdfExtractor;
+
+    // 章节批量写入的批次大小
+    @Value("${book.section.batch-size:500}")
+    private int sectionBatchSize;
+
+    /**
+     * 不使用方法级事务：整本书的解析可能持续数分钟，每批章节由 saveBatch 在各自的短事务中提交，
+     * 失败时删除该书已写入的章节
+     */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public String extractText(String fileName, Long bookId, String title) {
         if (StringUtils.isBlank(fileName)) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件名不能为空");
@@ -43,19 +57,26 @@ public class PdfServiceImpl implements PdfService {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "图书ID不合法");
         }
 
+        File tempFile = null;
         try {
-            // 获取PDF文件输入流
-            InputStream pdfStream = fileService.getFileInputStream(fileName);
-            
-            // 提取文本内容
-            List<BookSection> sections = PDFUtils.extractTextToSections(pdfStream, bookId, title);
-            
-            // 保存章节信息
-            if (sections != null && !sections.isEmpty()) {
-                for (BookSection section : sections) {
-                    bookSectionService.save(section);
-                }
+            // 只从MinIO读取一次，落地到临时文件，供提取任务随机读取
+            tempFile = File.createTempFile("pdf-extract-", ".pdf");
+            try (InputStream pdfStream = fileService.getFileInputStream(fileName)) {
+                Files.copy(pdfStream, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            // 流式提取文本内容，按批次保存章节，同时得到总页数
+            BookSectionBatchWriter sectionWriter = new BookSectionBatchWriter(bookSectionService, sectionBatchSize);
+            int pageCount;
+            try {
+                pageCount = parallelPdfExtractor.extractTextToSections(tempFile, bookId, title, sectionWriter);
+                sectionWriter.flush();
+            } catch (IOException | RuntimeException e) {
+                // 已提交的批次不会回滚，删除已写入的部分章节，重新提取时不会重复
+                removeSections(bookId);
+                throw e;
             }
+            sectionWriter.logStatistics(bookId);
 
             // 更新图书信息
             Book book = bookService.getBookById(bookId);
@@ -64,12 +85,7 @@ public class PdfServiceImpl implements PdfService {
                 updateRequest.setId(bookId);
                 
                 // 更新页数
-                try {
-                    int pageCount = PDFUtils.getPageCount(fileService.getFileInputStream(fileName));
-                    updateRequest.setPageSize(pageCount);
-                } catch (Exception e) {
-                    log.error("获取PDF页数失败", e);
-                }
+                updateRequest.setPageSize(pageCount);
                 
                 // 更新文本提取状态
                 updateRequest.setIsExtracted(1);
@@ -78,11 +94,22 @@ public class PdfServiceImpl implements PdfService {
                 bookService.updateBook(updateRequest);
             }
 
-            pdfStream.close();
-            return "文本提取成功，共提取 " + (sections != null ? sections.size() : 0) + " 个章节";
+            return "文本提取成功，共提取 " + sectionWriter.getTotalRows() + " 个章节";
         } catch (IOException e) {
             log.error("提取PDF文本失败", e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "提取PDF文本失败：" + e.getMessage());
+        } finally {
+            if (tempFile != null && !tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+
+    private void removeSections(Long bookId) {
+        try {
+            bookSectionService.remove(new LambdaQueryWrapper<BookSection>().eq(BookSection::getBookId, bookId));
+        } catch (Exception e) {
+            log.error("清理图书{}的部分章节失败", bookId, e);
         }
     }
 }
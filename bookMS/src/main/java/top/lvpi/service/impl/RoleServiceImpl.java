@@ -6,8 +6,11 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import top.lvpi.common.ErrorCode;
 import top.lvpi.common.BusinessException;
 import top.lvpi.mapper.RoleMapper;
@@ -16,9 +19,13 @@ import top.lvpi.model.dto.role.RoleQueryRequest;
 import top.lvpi.model.entity.Role;
 import top.lvpi.model.entity.RolePermission;
 import top.lvpi.service.RoleService;
+import top.lvpi.utils.PathTrie;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 角色服务实现类
@@ -29,6 +36,17 @@ public class RoleServiceImpl extends ServiceImpl<RoleMapper, Role> implements Ro
     @Autowired
     private RolePermissionMapper rolePermissionMapper;
 
+    /**
+     * 权限缓存时间（秒），其他节点修改角色权限后本节点最迟在此时间后生效
+     */
+    @Value("${auth.cache.permission-ttl-seconds:300}")
+    private long permissionTtlSeconds;
+
+    /**
+     * 角色ID到权限前缀树的缓存
+     */
+    private final Map<Long, CachedPermissions> permissionCache = new ConcurrentHashMap<>();
+
     @Override
     public Long createRole(Role role) {
         // 检查角色编码是否已存在
@@ -80,7 +98,9 @@ public class RoleServiceImpl extends ServiceImpl<RoleMapper, Role> implements Ro
         }
         
         // 删除角色
-        return removeById(roleId);
+        boolean result = removeById(roleId);
+        evictPermissions(roleId);
+        return result;
     }
 
     @Override
@@ -141,6 +161,7 @@ public class RoleServiceImpl extends ServiceImpl<RoleMapper, Role> implements Ro
         LambdaQueryWrapper<RolePermission> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(RolePermission::getRoleId, roleId);
         rolePermissionMapper.delete(queryWrapper);
+        evictPermissions(roleId);
         
         // 如果权限列表为空，直接返回成功
         if (permissionPaths == null || permissionPaths.isEmpty()) {
@@ -172,25 +193,40 @@ public class RoleServiceImpl extends ServiceImpl<RoleMapper, Role> implements Ro
 
     @Override
     public boolean hasPermission(Long roleId, String path) {
-        // 获取角色的所有权限路径
-        List<String> permissionPaths = getRolePermissions(roleId);
-        
-        // 检查是否包含指定路径
-        for (String permissionPath : permissionPaths) {
-            // 精确匹配
-            if (permissionPath.equals(path)) {
-                return true;
-            }
-            
-            // 通配符匹配，如 /api/user/* 可以匹配 /api/user/list
-            if (permissionPath.endsWith("/*")) {
-                String prefix = permissionPath.substring(0, permissionPath.length() - 1);
-                if (path.startsWith(prefix)) {
-                    return true;
+        // 角色的权限路径编译为前缀树后缓存，精确匹配和 /api/user/* 形式的通配匹配都只需沿访问路径走一遍
+        long now = System.nanoTime();
+        CachedPermissions cached = permissionCache.get(roleId);
+        if (cached == null || now - cached.loadedAt >= TimeUnit.SECONDS.toNanos(permissionTtlSeconds)) {
+            cached = new CachedPermissions(new PathTrie(getRolePermissions(roleId)), now);
+            permissionCache.put(roleId, cached);
+        }
+        return cached.trie.matches(path);
+    }
+
+    /**
+     * 清除角色的权限缓存。处于事务中时在事务结束后再清除一次，避免提交前的并发检查把旧权限重新放入缓存
+     */
+    private void evictPermissions(Long roleId) {
+        permissionCache.remove(roleId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    permissionCache.remove(roleId);
                 }
-            }
+            });
+        }
+    }
+
+    private static final class CachedPermissions {
+
+        private final PathTrie trie;
+
+        private final long loadedAt;
+
+        private CachedPermissions(PathTrie trie, long loadedAt) {
+            this.trie = trie;
+            this.loadedAt = loadedAt;
         }
-        
-        return false;
     }
 }
@@ -0,0 +1,263 @@
+package top.lvpi.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import top.lvpi.common.BusinessException;
+import top.lvpi.common.ErrorCode;
+import top.lvpi.common.TaskType;
+import top.lvpi.model.dto.task.TaskProgress;
+import top.lvpi.service.TaskService;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class TaskServiceImpl implements TaskService {
+
+    private static final String PROGRESS_KEY_PREFIX = "task:progress:";
+
+    private static final String LOCK_KEY_PREFIX = "task:lock:";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * 进行中任务的进度写入Redis的间隔（毫秒）
+     */
+    @Value("${task.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    /**
+     * 任务进度在Redis中保留的时间（分钟），从最后一次写入开始计算
+     */
+    @Value("${task.result-ttl-minutes:60}")
+    private long resultTtlMinutes;
+
+    /**
+     * 进行中的任务超过该时间（秒）未写入进度，视为执行节点已停止
+     */
+    @Value("${task.stale-seconds:60}")
+    private long staleSeconds;
+
+    private final Map<TaskType, ThreadPoolExecutor> executors = new EnumMap<>(TaskType.class);
+
+    /**
+     * 本节点正在排队或执行的任务，结束后移除
+     */
+    private final Map<String, TaskProgress> localTasks = new ConcurrentHashMap<>();
+
+    /**
+     * 本节点任务持有的去重键
+     */
+    private final Map<String, String> lockKeys = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flusher =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("task-flush-"));
+
+    @PostConstruct
+    public void init() {
+        for (TaskType type : TaskType.values()) {
+            int threads = Math.max(1, environment.getProperty(
+                    "task.executor." + type.getCode() + ".threads", Integer.class, type.getThreads()));
+            int queueCapacity = Math.max(1, environment.getProperty(
+                    "task.executor." + type.getCode() + ".queue-capacity", Integer.class, type.getQueueCapacity()));
+            // 超出队列容量时由AbortPolicy抛出RejectedExecutionException，在submit中转换为业务异常
+            executors.put(type, new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    new CustomizableThreadFactory("task-" + type.getCode() + "-"),
+                    new ThreadPoolExecutor.AbortPolicy()));
+            log.info("任务类型{}：线程数{}，队列容量{}", type.getCode(), threads, queueCapacity);
+        }
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public TaskProgress submit(TaskType type, String key, String initialStep, TaskHandler handler) {
+        String taskId = UUID.randomUUID().toString();
+        String lockKey = key == null ? null : LOCK_KEY_PREFIX + type.getCode() + ":" + key;
+        if (lockKey != null) {
+            acquireLock(type, lockKey, taskId);
+        }
+
+        long now = System.currentTimeMillis();
+        TaskProgress task = new TaskProgress()
+                .setTaskId(taskId)
+                .setType(type.getCode())
+                .setStatus(0)
+                .setProgress(0)
+                .setCurrentStep(initialStep)
+                .setCreateTime(now);
+        localTasks.put(taskId, task);
+        save(task);
+
+        try {
+            executors.get(type).execute(() -> run(task, handler));
+        } catch (RejectedExecutionException e) {
+            localTasks.remove(taskId);
+            releaseLock(taskId);
+            delete(taskId);
+            log.warn("{}任务队列已满，拒绝提交", type.getName());
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, type.getName() + "任务排队过多，请稍后再试");
+        }
+        return task;
+    }
+
+    @Override
+    public TaskProgress getTask(String taskId) {
+        TaskProgress task = localTasks.get(taskId);
+        if (task != null) {
+            return task;
+        }
+        task = load(taskId);
+        if (task != null && task.getStatus() != null && task.getStatus() == 0 && task.getUpdateTime() != null
+                && System.currentTimeMillis() - task.getUpdateTime() > TimeUnit.SECONDS.toMillis(staleSeconds)) {
+            // 执行节点重启或宕机后不会再更新进度
+            task.setStatus(2).setErrorMessage("任务执行节点已停止，任务中断");
+        }
+        return task;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        executors.values().forEach(ThreadPoolExecutor::shutdownNow);
+        // 记录被中断的任务，其他节点查询时能看到失败原因
+        for (TaskProgress task : localTasks.values()) {
+            task.setStatus(2).setErrorMessage("服务停止，任务中断");
+            save(task);
+            releaseLock(task.getTaskId());
+        }
+        localTasks.clear();
+    }
+
+    private void run(TaskProgress task, TaskHandler handler) {
+        try {
+            String result = handler.run(task);
+            if (task.getStatus() == 0) {
+                task.setStatus(1).setProgress(100);
+                if (task.getResult() == null) {
+                    task.setResult(result);
+                }
+            }
+        } catch (BusinessException e) {
+            task.setStatus(2).setErrorMessage(e.getMessage());
+        } catch (Exception e) {
+            log.error("任务{}执行失败", task.getTaskId(), e);
+            task.setStatus(2).setErrorMessage(e.getMessage());
+        } finally {
+            localTasks.remove(task.getTaskId());
+            save(task);
+            releaseLock(task.getTaskId());
+        }
+    }
+
+    private void acquireLock(TaskType type, String lockKey, String taskId) {
+        try {
+            Boolean acquired = redisTemplate.opsForValue()
+                    .setIfAbsent(lockKey, taskId, staleSeconds, TimeUnit.SECONDS);
+            if (!Boolean.TRUE.equals(acquired)) {
+                Object holder = redisTemplate.opsForValue().get(lockKey);
+                TaskProgress running = holder == null ? null : getTask((String) holder);
+                if (running != null && running.getStatus() == 0) {
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR,
+                            type.getName() + "任务正在执行中，任务ID:" + running.getTaskId());
+                }
+                // 持有者已结束或已失效，直接接管
+                redisTemplate.opsForValue().set(lockKey, taskId, staleSeconds, TimeUnit.SECONDS);
+            }
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            // Redis不可用时只在本节点内去重
+            log.warn("获取任务去重键失败: {}", lockKey, e);
+            for (Map.Entry<String, String> entry : lockKeys.entrySet()) {
+                if (entry.getValue().equals(lockKey)) {
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR,
+                            type.getName() + "任务正在执行中，任务ID:" + entry.getKey());
+                }
+            }
+        }
+        lockKeys.put(taskId, lockKey);
+    }
+
+    private void releaseLock(String taskId) {
+        String lockKey = lockKeys.remove(taskId);
+        if (lockKey == null) {
+            return;
+        }
+        try {
+            if (taskId.equals(redisTemplate.opsForValue().get(lockKey))) {
+                redisTemplate.delete(lockKey);
+            }
+        } catch (Exception e) {
+            log.warn("释放任务去重键失败: {}", lockKey, e);
+        }
+    }
+
+    /**
+     * 定期写入本节点进行中任务的进度，并续期去重键
+     */
+    private void flush() {
+        for (TaskProgress task : localTasks.values()) {
+            save(task);
+        }
+        for (String lockKey : lockKeys.values()) {
+            try {
+                redisTemplate.expire(lockKey, staleSeconds, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("续期任务去重键失败: {}", lockKey, e);
+            }
+        }
+    }
+
+    private void save(TaskProgress task) {
+        try {
+            task.setUpdateTime(System.currentTimeMillis());
+            redisTemplate.opsForValue().set(PROGRESS_KEY_PREFIX + task.getTaskId(),
+                    objectMapper.writeValueAsString(task), resultTtlMinutes, TimeUnit.MINUTES);
+        } catch (Exception e) {
+            log.warn("保存任务进度失败: {}", task.getTaskId(), e);
+        }
+    }
+
+    private TaskProgress load(String taskId) {
+        try {
+            Object json = redisTemplate.opsForValue().get(PROGRESS_KEY_PREFIX + taskId);
+            return json == null ? null : objectMapper.readValue((String) json, TaskProgress.class);
+        } catch (Exception e) {
+            log.warn("读取任务进度失败: {}", taskId, e);
+            return null;
+        }
+    }
+
+    private void delete(String taskId) {
+        try {
+            redisTemplate.delete(PROGRESS_KEY_PREFIX + taskId);
+        } catch (Exception e) {
+            log.warn("删除任务进度失败: {}", taskId, e);
+        }
+    }
+}
@@ -1,34 +1,92 @@
 package top.lvpi.service.impl;
 
+import cn.hutool.core.collection.CollUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import top.lvpi.mapper.TopicMapper;
 import top.lvpi.mapper.BookTopicMapper;
+import top.lvpi.model.dto.topic.BookTopicTagDTO;
 import top.lvpi.model.dto.topic.TopicImportDTO;
 import top.lvpi.model.dto.topic.TopicPathDTO;
 import top.lvpi.model.dto.topic.TopicTreeDTO;
 import top.lvpi.model.entity.Topic;
 import top.lvpi.model.entity.BookTopic;
+import top.lvpi.service.BookQueryCacheService;
 import top.lvpi.service.TopicService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.StringUtils;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
 public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements TopicService {
     private static final Logger logger = LoggerFactory.getLogger(TopicServiceImpl.class);
 
+    /**
+     * OPAC主题词的固定顶级父节点ID
+     */
+    private static final Long ROOT_TOPIC_ID = 1896773131181346817L;
+
+    /**
+     * 批量解析主题时每条IN查询和批量插入的最大条数
+     */
+    private static final int BATCH_SIZE = 500;
+
+    private static final String TAG_CACHE_KEY_PREFIX = "book:tags:";
+
+    private static final TypeReference<List<Topic>> TAG_LIST_TYPE = new TypeReference<>() {
+    };
+
     @Autowired
     private BookTopicMapper bookTopicMapper;
 
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookQueryCacheService bookQueryCacheService;
+
+    /**
+     * 图书标签在Redis中的缓存时间（秒），0表示不缓存
+     */
+    @Value("${topic.tag-cache.ttl-seconds:0}")
+    private long tagCacheTtlSeconds;
+
+    /**
+     * 主题树缓存的最长存活时间（秒），其他节点修改主题后本节点最迟在此时间后重新加载
+     */
+    @Value("${topic.cache.ttl-seconds:300}")
+    private long topicCacheTtlSeconds;
+
+    /**
+     * 主题树快照，为null时在下次读取时重新加载
+     */
+    private volatile TopicTree topicTree;
+
+    /**
+     * 每次失效加一，加载期间发生失效时丢弃本次加载结果
+     */
+    private final AtomicLong topicTreeVersion = new AtomicLong();
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean save(Topic topic) {
@@ -41,6 +99,7 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
         }
         
         boolean result = super.save(topic);
+        invalidateTopicTree();
         return result;
     }
 
@@ -56,6 +115,7 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
         }
         
         boolean result = super.updateById(topic);
+        invalidateTopicTree();
         return result;
     }
 
@@ -63,7 +123,7 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
     @Transactional(rollbackFor = Exception.class)
     public boolean removeById(Serializable id) {
         boolean result = super.removeById(id);
-
+        invalidateTopicTree();
         return result;
     }
 
@@ -141,24 +201,19 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
                 .map(BookTopic::getTopicId)
                 .collect(Collectors.toSet());
 
-        // 3. 查询这些主题及其所有父主题
-        Set<Long> allTopicIds = new HashSet<>(topicIds);
-        List<Topic> topics = this.listByIds(topicIds);
-        
-        // 递归获取所有父主题
-        for (Topic topic : topics) {
-            Long parentId = topic.getParentId();
-            while (parentId != null) {
-                allTopicIds.add(parentId);
-                Topic parentTopic = this.getById(parentId);
-                if (parentTopic != null) {
-                    parentId = parentTopic.getParentId();
-                } else {
-                    break;
-                }
+        // 3. 从主题树缓存中取这些主题及其所有父主题
+        TopicTree tree = topicTree();
+        Set<Long> allTopicIds = new TreeSet<>();
+        for (Long topicId : topicIds) {
+            tree.collectAncestors(topicId, allTopicIds);
+        }
+        List<Topic> topicsResult = new ArrayList<>(allTopicIds.size());
+        for (Long topicId : allTopicIds) {
+            Topic topic = tree.get(topicId);
+            if (topic != null) {
+                topicsResult.add(topic);
             }
         }
-        List<Topic> topicsResult = this.listByIds(allTopicIds);
         //剔除parent_id、level为null的
         topicsResult.removeIf(topic -> topic.getParentId() == null || topic.getLevel() == null);
         // 4. 返回所有相关主题
@@ -217,49 +272,41 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
 
     @Override
     public List<Topic> getTopicWithParents(Long topicId) {
-        List<Topic> result = new ArrayList<>();
-        
-        // 获取当前主题
-        Topic currentTopic = this.getById(topicId);
-        if (currentTopic == null || currentTopic.getParentId() == null || currentTopic.getLevel() == null) {
-            return result;
-        }
-
-        // 使用LinkedList在头部插入，这样最终结果会按层级从高到低排序
-        LinkedList<Topic> orderedResult = new LinkedList<>();
-        orderedResult.add(currentTopic);
+        // 路径在加载主题树时已预先计算，从顶级主题到当前主题排序
+        return new ArrayList<>(topicTree().path(topicId));
+    }
 
-        // 递归获取父主题
-        Long parentId = currentTopic.getParentId();
-        while (parentId != null) {
-            Topic parentTopic = this.getById(parentId);
-            if (parentTopic != null && parentTopic.getParentId() != null && parentTopic.getLevel() != null) {
-                orderedResult.addFirst(parentTopic); // 在头部插入父主题
-                parentId = parentTopic.getParentId();
-            } else {
-                break;
-            }
+    @Override
+    public Map<Long, List<Topic>> getTopicPaths(Collection<Long> topicIds) {
+        TopicTree tree = topicTree();
+        Map<Long, List<Topic>> result = new LinkedHashMap<>();
+        for (Long topicId : topicIds) {
+            result.put(topicId, new ArrayList<>(tree.path(topicId)));
         }
-
-        return new ArrayList<>(orderedResult);
+        return result;
     }
 
     @Override
     public List<TopicPathDTO> getBookTopicPaths(Long bookId) {
-        // 1. 获取书籍关联的所有主题ID
+        return getBooksTopicPaths(List.of(bookId)).getOrDefault(bookId, new ArrayList<>());
+    }
+
+    @Override
+    public Map<Long, List<TopicPathDTO>> getBooksTopicPaths(Collection<Long> bookIds) {
+        Map<Long, List<TopicPathDTO>> result = new LinkedHashMap<>();
+        if (bookIds == null || bookIds.isEmpty()) {
+            return result;
+        }
+        // 1. 一次取出所有书籍关联的主题ID
         LambdaQueryWrapper<BookTopic> bookTopicWrapper = new LambdaQueryWrapper<>();
-        bookTopicWrapper.eq(BookTopic::getBookId, bookId)
+        bookTopicWrapper.in(BookTopic::getBookId, bookIds)
                 .eq(BookTopic::getIsDeleted, 0);
         List<BookTopic> bookTopics = bookTopicMapper.selectList(bookTopicWrapper);
-        
-        if (bookTopics.isEmpty()) {
-            return new ArrayList<>();
-        }
 
-        // 2. 获取每个主题的完整路径, 
-        List<TopicPathDTO> result = new ArrayList<>();
+        // 2. 获取每个主题的完整路径，路径来自主题树缓存，不再逐级查询
+        TopicTree tree = topicTree();
         for (BookTopic bookTopic : bookTopics) {
-            List<Topic> topicPath = getTopicWithParents(bookTopic.getTopicId());
+            List<Topic> topicPath = tree.path(bookTopic.getTopicId());
             // 过滤掉parentId为null、level大于等于100的主题
             topicPath = topicPath.stream()
                     .filter(topic -> topic.getParentId() != null && topic.getLevel() != null && topic.getLevel() < 100)
@@ -275,7 +322,7 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
                 pathDTO.setPath(path);
                 // 主题级别数量
                 pathDTO.setLevelSize(topicPath.size() - 1);
-                result.add(pathDTO);
+                result.computeIfAbsent(bookTopic.getBookId(), k -> new ArrayList<>()).add(pathDTO);
             }
         }
 
@@ -287,6 +334,90 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
         return baseMapper.getBookTopicTags(bookId);
     }
 
+    @Override
+    public Map<Long, List<Topic>> getBookTopicTags(Collection<Long> bookIds) {
+        Map<Long, List<Topic>> result = new LinkedHashMap<>();
+        if (bookIds.isEmpty()) {
+            return result;
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(bookIds));
+        List<Long> missing = tagCacheTtlSeconds > 0 ? readCachedTags(ids, result) : ids;
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, List<Topic>> loaded = new LinkedHashMap<>();
+        for (Long bookId : missing) {
+            loaded.put(bookId, new ArrayList<>());
+        }
+        for (BookTopicTagDTO row : baseMapper.getBooksTopicTags(missing)) {
+            Topic tag = new Topic();
+            BeanUtils.copyProperties(row, tag);
+            loaded.get(row.getBookId()).add(tag);
+        }
+        if (tagCacheTtlSeconds > 0) {
+            writeCachedTags(loaded);
+        }
+        result.putAll(loaded);
+        return result;
+    }
+
+    @Override
+    public void evictBookTopicTags(Long bookId) {
+        // 图书列表的缓存结果中也带有标签
+        bookQueryCacheService.invalidate();
+        if (tagCacheTtlSeconds <= 0) {
+            return;
+        }
+        try {
+            redisTemplate.delete(TAG_CACHE_KEY_PREFIX + bookId);
+        } catch (Exception e) {
+            logger.warn("清除图书[{}]的标签缓存失败", bookId, e);
+        }
+    }
+
+    /**
+     * 从Redis批量读取图书标签，命中的放入result
+     * @return 未命中的图书ID
+     */
+    private List<Long> readCachedTags(List<Long> bookIds, Map<Long, List<Topic>> result) {
+        List<String> keys = bookIds.stream().map(id -> TAG_CACHE_KEY_PREFIX + id).collect(Collectors.toList());
+        List<Object> values;
+        try {
+            values = redisTemplate.opsForValue().multiGet(keys);
+        } catch (Exception e) {
+            // Redis不可用时直接查库
+            logger.warn("读取图书标签缓存失败", e);
+            return bookIds;
+        }
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < bookIds.size(); i++) {
+            Object value = values == null ? null : values.get(i);
+            if (value == null) {
+                missing.add(bookIds.get(i));
+                continue;
+            }
+            try {
+                result.put(bookIds.get(i), objectMapper.readValue((String) value, TAG_LIST_TYPE));
+            } catch (Exception e) {
+                logger.warn("解析图书[{}]的标签缓存失败", bookIds.get(i), e);
+                missing.add(bookIds.get(i));
+            }
+        }
+        return missing;
+    }
+
+    private void writeCachedTags(Map<Long, List<Topic>> tags) {
+        try {
+            for (Map.Entry<Long, List<Topic>> entry : tags.entrySet()) {
+                redisTemplate.opsForValue().set(TAG_CACHE_KEY_PREFIX + entry.getKey(),
+                        objectMapper.writeValueAsString(entry.getValue()), tagCacheTtlSeconds, TimeUnit.SECONDS);
+            }
+        } catch (Exception e) {
+            logger.warn("写入图书标签缓存失败", e);
+        }
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean parseBookOPACTopics(Long bookId, String topicContent) {
@@ -294,88 +425,310 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
             logger.info("书籍[{}]的主题词为空，跳过处理", bookId);
             return false;
         }
-        
         logger.info("开始解析书籍[{}]的主题词: {}", bookId, topicContent);
-        
-        // 固定的顶级父节点ID
-        Long rootParentId = 1896773131181346817L;
-
-        //前置处理，关联根节点
-        BookTopic bookTopic = new BookTopic();
-        bookTopic.setBookId(bookId);
-        bookTopic.setTopicId(rootParentId);
-        bookTopicMapper.insert(bookTopic);  
-        
-        // 1. 按逗号分割成多组主题词
-        String[] topicGroups = topicContent.split(",");
-        
-        for (String topicGroup : topicGroups) {
+        return parseBooksOPACTopics(Collections.singletonMap(bookId, topicContent)).contains(bookId);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Set<Long> parseBooksOPACTopics(Map<Long, String> topicContents) {
+        // 1. 把所有图书的主题词合并成一棵主题树，相同父主题下同名同层级的关键词只出现一次
+        TopicNode root = new TopicNode(null, 0, null);
+        root.id = ROOT_TOPIC_ID;
+        Map<Long, List<TopicNode>> bookNodes = new LinkedHashMap<>();
+        for (Map.Entry<Long, String> entry : topicContents.entrySet()) {
+            if (org.apache.commons.lang3.StringUtils.isBlank(entry.getValue())) {
+                continue;
+            }
+            bookNodes.put(entry.getKey(), parseTopicContent(entry.getValue(), root));
+        }
+        if (bookNodes.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        // 2. 逐层解析主题ID，每层用IN查询匹配已有主题，缺少的批量创建
+        int created = 0;
+        List<TopicNode> nodes = new ArrayList<>(root.children.values());
+        while (!nodes.isEmpty()) {
+            created += resolveTopicNodes(nodes);
+            List<TopicNode> next = new ArrayList<>();
+            for (TopicNode node : nodes) {
+                next.addAll(node.children.values());
+            }
+            nodes = next;
+        }
+        if (created > 0) {
+            invalidateTopicTree();
+        }
+
+        // 3. 每本书关联根主题和路径上的所有主题，已存在的关联跳过
+        int linked = linkBookTopics(bookNodes);
+        logger.info("解析{}本书籍的主题词，新建主题{}个，新增关联{}条", bookNodes.size(), created, linked);
+        return bookNodes.keySet();
+    }
+
+    /**
+     * 解析一本书的主题词，按逗号分成多组，每组按--分割后从右到左逐级挂到主题树上
+     * @return 该书涉及的所有主题节点
+     */
+    private List<TopicNode> parseTopicContent(String topicContent, TopicNode root) {
+        List<TopicNode> nodes = new ArrayList<>();
+        for (String topicGroup : topicContent.split(",")) {
             // 跳过空组
             if (org.apache.commons.lang3.StringUtils.isBlank(topicGroup)) {
                 continue;
             }
-            
-            // 2. 按--分割每组中的关键词
             String[] keywords = topicGroup.trim().split("--");
-            
-            if (keywords.length == 0) {
-                continue;
-            }
-            
-            // 从右到左处理关键词（倒序遍历）
-            Long currentParentId = rootParentId;
+            TopicNode current = root;
             for (int i = keywords.length - 1; i >= 0; i--) {
                 String keyword = keywords[i].trim();
                 if (org.apache.commons.lang3.StringUtils.isBlank(keyword)) {
                     continue;
                 }
-                
                 // 当前层级 (最右边的关键词level为1，向左依次增加)
                 int level = keywords.length - i;
-                
-                // 2.1 查询关键词是否存在
-                LambdaQueryWrapper<Topic> queryWrapper = new LambdaQueryWrapper<>();
-                queryWrapper.eq(Topic::getName, keyword)
-                          .eq(Topic::getLevel, level)
-                          .eq(Topic::getParentId, currentParentId);
-                          
-                Topic topic = baseMapper.selectOne(queryWrapper);
-                
-                // 2.2 不存在则创建
-                if (topic == null) {
-                    topic = new Topic();
-                    topic.setName(keyword);
-                    topic.setLevel(level);
-                    topic.setParentId(currentParentId);
-                    topic.setCreateTime(new Date());
-                    topic.setModifiedTime(new Date());
-                    baseMapper.insert(topic);
-                    logger.info("创建新主题: {}，层级: {}，父ID: {}", keyword, level, currentParentId);
+                current = current.child(keyword, level);
+                nodes.add(current);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * 解析同一深度的主题节点ID，这些节点的父节点ID都已确定
+     * @return 新建的主题数
+     */
+    private int resolveTopicNodes(List<TopicNode> nodes) {
+        List<Topic> newTopics = new ArrayList<>();
+        for (List<TopicNode> chunk : CollUtil.split(nodes, BATCH_SIZE)) {
+            Set<Long> parentIds = new HashSet<>();
+            Set<String> names = new HashSet<>();
+            Set<Integer> levels = new HashSet<>();
+            for (TopicNode node : chunk) {
+                parentIds.add(node.parent.id);
+                names.add(node.name);
+                levels.add(node.level);
+            }
+            List<Topic> existing = baseMapper.selectList(new LambdaQueryWrapper<Topic>()
+                    .select(Topic::getId, Topic::getName, Topic::getLevel, Topic::getParentId)
+                    .in(Topic::getParentId, parentIds)
+                    .in(Topic::getName, names)
+                    .in(Topic::getLevel, levels));
+            // 同一位置有多个同名主题时取ID最小的
+            Map<String, Long> existingIds = new HashMap<>();
+            for (Topic topic : existing) {
+                existingIds.merge(TopicNode.key(topic.getParentId(), topic.getName(), topic.getLevel()),
+                        topic.getId(), Math::min);
+            }
+            for (TopicNode node : chunk) {
+                node.id = existingIds.get(TopicNode.key(node.parent.id, node.name, node.level));
+                if (node.id == null) {
+                    Topic topic = new Topic();
+                    topic.setId(IdWorker.getId());
+                    topic.setName(node.name);
+                    topic.setLevel(node.level);
+                    topic.setParentId(node.parent.id);
+                    newTopics.add(topic);
+                    node.id = topic.getId();
                 }
-                
-                // 更新父ID为当前主题ID，用于下一个关键词
-                currentParentId = topic.getId();
-                
-                // 2.3 每个关键词都需要与书籍关联，不仅仅是最左边的关键词
-                // 检查关联是否已存在
-                // BookTopic bookTopic = new BookTopic();
-                // bookTopic.setBookId(bookId);
-                // bookTopic.setTopicId(topic.getId());
-                
-                // 查询是否已存在关联
-                LambdaQueryWrapper<BookTopic> bookTopicQuery = new LambdaQueryWrapper<>();
-                bookTopicQuery.eq(BookTopic::getBookId, bookId)
-                            .eq(BookTopic::getTopicId, topic.getId());
-                Long count = bookTopicMapper.selectCount(bookTopicQuery);
-                
-                // 不存在则添加关联
-                if (count == 0) {
-                    bookTopicMapper.insert(bookTopic);
-                    logger.info("书籍[{}]关联主题: {}", bookId, topic.getId());
+            }
+        }
+        for (List<Topic> chunk : CollUtil.split(newTopics, BATCH_SIZE)) {
+            baseMapper.insertBatch(chunk);
+        }
+        return newTopics.size();
+    }
+
+    /**
+     * 批量写入书籍与主题的关联，先按书籍ID查出已有关联，只写入缺少的
+     * @return 新增的关联数
+     */
+    private int linkBookTopics(Map<Long, List<TopicNode>> bookNodes) {
+        Set<String> existingLinks = new HashSet<>();
+        for (List<Long> bookIds : CollUtil.split(new ArrayList<>(bookNodes.keySet()), BATCH_SIZE)) {
+            List<BookTopic> links = bookTopicMapper.selectList(new LambdaQueryWrapper<BookTopic>()
+                    .select(BookTopic::getBookId, BookTopic::getTopicId)
+                    .in(BookTopic::getBookId, bookIds));
+            for (BookTopic link : links) {
+                existingLinks.add(link.getBookId() + ":" + link.getTopicId());
+            }
+        }
+
+        List<BookTopic> newLinks = new ArrayList<>();
+        for (Map.Entry<Long, List<TopicNode>> entry : bookNodes.entrySet()) {
+            Long bookId = entry.getKey();
+            //前置处理，关联根节点
+            Set<Long> topicIds = new LinkedHashSet<>();
+            topicIds.add(ROOT_TOPIC_ID);
+            for (TopicNode node : entry.getValue()) {
+                topicIds.add(node.id);
+            }
+            for (Long topicId : topicIds) {
+                if (existingLinks.add(bookId + ":" + topicId)) {
+                    BookTopic bookTopic = new BookTopic();
+                    bookTopic.setId(IdWorker.getId());
+                    bookTopic.setBookId(bookId);
+                    bookTopic.setTopicId(topicId);
+                    newLinks.add(bookTopic);
                 }
             }
         }
-        
-        return true;
+        for (List<BookTopic> chunk : CollUtil.split(newLinks, BATCH_SIZE)) {
+            bookTopicMapper.insertBatch(chunk);
+        }
+        return newLinks.size();
+    }
+
+    /**
+     * 使主题树缓存失效。处于事务中时在提交后失效，避免其他线程在提交前把旧数据重新加载进缓存
+     */
+    private void invalidateTopicTree() {
+        topicTreeVersion.incrementAndGet();
+        topicTree = null;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    topicTreeVersion.incrementAndGet();
+                    topicTree = null;
+                }
+            });
+        }
+    }
+
+    /**
+     * 获取主题树快照，未加载或已过期时从数据库全量加载
+     */
+    private TopicTree topicTree() {
+        TopicTree tree = topicTree;
+        if (tree != null && !tree.isExpired(topicCacheTtlSeconds)) {
+            return tree;
+        }
+        synchronized (this) {
+            tree = topicTree;
+            if (tree != null && !tree.isExpired(topicCacheTtlSeconds)) {
+                return tree;
+            }
+            long version = topicTreeVersion.get();
+            tree = new TopicTree(this.list());
+            // 加载期间有写入时只用于本次读取，不放入缓存
+            if (version == topicTreeVersion.get()) {
+                topicTree = tree;
+            }
+            logger.info("主题树缓存已加载，共{}个主题", tree.size());
+            return tree;
+        }
+    }
+
+    /**
+     * 解析OPAC主题词时的主题树节点，子节点按层级和名称区分
+     */
+    private static final class TopicNode {
+
+        private final String name;
+
+        private final int level;
+
+        private final TopicNode parent;
+
+        private final Map<String, TopicNode> children = new LinkedHashMap<>();
+
+        private Long id;
+
+        private TopicNode(String name, int level, TopicNode parent) {
+            this.name = name;
+            this.level = level;
+            this.parent = parent;
+        }
+
+        TopicNode child(String name, int level) {
+            return children.computeIfAbsent(key(null, name, level), k -> new TopicNode(name, level, this));
+        }
+
+        /**
+         * 节点键，名称不区分大小写，与数据库排序规则的匹配结果一致
+         */
+        static String key(Long parentId, String name, Integer level) {
+            return parentId + ":" + level + ":" + name.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * 主题树快照：按ID索引的主题和父指针，以及每个有效主题从顶级到自身的路径。
+     * 有效主题指parentId和level都不为空的主题，路径遇到无效或不存在的父主题即停止，
+     * 与逐级查询父主题的结果一致。快照创建后不再修改，可被多个线程同时读取。
+     */
+    private static final class TopicTree {
+
+        private final Map<Long, Topic> topics;
+
+        private final Map<Long, List<Topic>> paths;
+
+        private final long loadedAt = System.nanoTime();
+
+        private TopicTree(List<Topic> all) {
+            topics = new HashMap<>(all.size() * 2);
+            for (Topic topic : all) {
+                topics.put(topic.getId(), topic);
+            }
+            paths = new HashMap<>(all.size() * 2);
+            for (Topic topic : all) {
+                buildPath(topic, new HashSet<>());
+            }
+        }
+
+        Topic get(Long id) {
+            return id == null ? null : topics.get(id);
+        }
+
+        int size() {
+            return topics.size();
+        }
+
+        boolean isExpired(long ttlSeconds) {
+            return System.nanoTime() - loadedAt > TimeUnit.SECONDS.toNanos(ttlSeconds);
+        }
+
+        /**
+         * 主题及其有效父主题组成的路径，从顶级主题到当前主题排序；主题无效或不存在时为空列表
+         */
+        List<Topic> path(Long id) {
+            List<Topic> path = id == null ? null : paths.get(id);
+            return path == null ? Collections.emptyList() : path;
+        }
+
+        /**
+         * 收集主题自身及沿parentId向上的所有祖先ID（不论是否有效），直到父主题不存在
+         */
+        void collectAncestors(Long id, Set<Long> result) {
+            Long current = id;
+            while (current != null && result.add(current)) {
+                Topic topic = topics.get(current);
+                if (topic == null) {
+                    break;
+                }
+                current = topic.getParentId();
+            }
+        }
+
+        private List<Topic> buildPath(Topic topic, Set<Long> visiting) {
+            if (topic.getParentId() == null || topic.getLevel() == null) {
+                return Collections.emptyList();
+            }
+            List<Topic> cached = paths.get(topic.getId());
+            if (cached != null) {
+                return cached;
+            }
+            List<Topic> path = new ArrayList<>();
+            Topic parent = topics.get(topic.getParentId());
+            // 数据中出现环时在环上截断
+            if (parent != null && visiting.add(topic.getId())) {
+                path.addAll(buildPath(parent, visiting));
+            }
+            path.add(topic);
+            List<Topic> result = Collections.unmodifiableList(path);
+            paths.put(topic.getId(), result);
+            return result;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package top.lvpi.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import top.lvpi.mapper.UserMapper;
+import top.lvpi.model.entity.User;
+import top.lvpi.service.UserRoleCacheService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class UserRoleCacheServiceImpl implements UserRoleCacheService {
+
+    @Autowired
+    private UserMapper userMapper;
+
+    /**
+     * 角色缓存时间（秒），其他节点修改用户角色后本节点最迟在此时间后生效
+     */
+    @Value("${auth.cache.role-ttl-seconds:60}")
+    private long roleTtlSeconds;
+
+    private final Map<Long, CachedRoles> cache = new ConcurrentHashMap<>();
+
+    @Override
+    public List<String> getRoleList(Long userId) {
+        CachedRoles cached = cache.get(userId);
+        long now = System.nanoTime();
+        if (cached != null && now - cached.loadedAt < TimeUnit.SECONDS.toNanos(roleTtlSeconds)) {
+            return new ArrayList<>(cached.roles);
+        }
+        User user = userMapper.selectById(userId);
+        List<String> roles = new ArrayList<>();
+        if (user != null) {
+            // 添加用户角色
+            roles.add(user.getUserRole());
+            // 如果是管理员，添加admin角色
+            if ("admin".equals(user.getUserRole())) {
+                roles.add("admin");
+            }
+        }
+        cache.put(userId, new CachedRoles(Collections.unmodifiableList(roles), now));
+        return roles;
+    }
+
+    @Override
+    public void evict(Long userId) {
+        if (userId != null) {
+            cache.remove(userId);
+        }
+    }
+
+    private static final class CachedRoles {
+
+        private final List<String> roles;
+
+        private final long loadedAt;
+
+        private CachedRoles(List<String> roles, long loadedAt) {
+            this.roles = roles;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
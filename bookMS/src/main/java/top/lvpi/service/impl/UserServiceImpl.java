@@ -13,6 +13,7 @@ import top.lvpi.model.dto.user.UserRegisterRequest;
 import top.lvpi.model.dto.user.UserQueryRequest;
 import top.lvpi.model.dto.user.ChangePasswordRequest;
 import top.lvpi.model.entity.User;
+import top.lvpi.service.UserRoleCacheService;
 import top.lvpi.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -35,6 +36,9 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private UserRoleCacheService userRoleCacheService;
+
     @Override
     public User userRegister(UserRegisterRequest userRegisterRequest) {
         String userAccount = userRegisterRequest.getUserAccount();
@@ -138,7 +142,8 @@ public class UserServiceImpl implements UserService {
         user.setModifiedTime(new Date());
         userMapper.updateById(user);
         
-        // 5. 记录登录状态
+        // 5. 记录登录状态，重新登录时重新加载角色
+        userRoleCacheService.evict(user.getUserId());
         StpUtil.login(user.getUserId());
         
         // 6. 返回脱敏后的用户信息
@@ -159,7 +164,11 @@ public class UserServiceImpl implements UserService {
     @Override
     public boolean userLogout() {
         try {
+            Object loginId = StpUtil.getLoginIdDefaultNull();
             StpUtil.logout();
+            if (loginId != null) {
+                userRoleCacheService.evict(Long.parseLong(loginId.toString()));
+            }
             return true;
         } catch (Exception e) {
             log.error("登出失败", e);
@@ -211,7 +220,9 @@ public class UserServiceImpl implements UserService {
         }
 
         // 执行删除
-        return userMapper.deleteById(id) > 0;
+        boolean result = userMapper.deleteById(id) > 0;
+        userRoleCacheService.evict(id);
+        return result;
     }
 
     @Override
@@ -233,7 +244,10 @@ public class UserServiceImpl implements UserService {
         user.setUserPassword(null);
 
         // 执行更新
-        return userMapper.updateById(user) > 0;
+        boolean result = userMapper.updateById(user) > 0;
+        // 角色可能已修改
+        userRoleCacheService.evict(user.getUserId());
+        return result;
     }
 
     @Override
@@ -0,0 +1,84 @@
+package top.lvpi.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import top.lvpi.model.entity.BookSection;
+import top.lvpi.service.BookSectionService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 图书章节批量写入器
+ * <p>
+ * 缓冲提取出的章节，攒满一批后通过 saveBatch 一次写入。配合 JDBC 连接参数
+ * rewriteBatchedStatements=true，每批只产生一次多行 INSERT 往返。
+ * 每批在 saveBatch 自身的事务中提交，调用方不应在外层包裹长事务。
+ * 非线程安全，应在单个线程中使用。
+ */
+@Slf4j
+public class BookSectionBatchWriter implements Consumer<BookSection> {
+
+    private final BookSectionService bookSectionService;
+
+    private final int batchSize;
+
+    private final List<BookSection> buffer;
+
+    private long totalRows = 0;
+
+    private int batchCount = 0;
+
+    private long writeNanos = 0;
+
+    public BookSectionBatchWriter(BookSectionService bookSectionService, int batchSize) {
+        this.bookSectionService = bookSectionService;
+        this.batchSize = Math.max(1, batchSize);
+        this.buffer = new ArrayList<>(this.batchSize);
+    }
+
+    @Override
+    public void accept(BookSection section) {
+        buffer.add(section);
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 写入缓冲区中剩余的章节
+     */
+    public void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        bookSectionService.saveBatch(buffer, batchSize);
+        writeNanos += System.nanoTime() - start;
+        totalRows += buffer.size();
+        batchCount++;
+        buffer.clear();
+    }
+
+    /**
+     * 已写入的章节数
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * 写入速度（行/秒）
+     */
+    public double getRowsPerSecond() {
+        return writeNanos == 0 ? 0 : totalRows * 1_000_000_000d / writeNanos;
+    }
+
+    /**
+     * 输出写入统计信息
+     */
+    public void logStatistics(Long bookId) {
+        log.info("图书ID:{} 章节批量写入完成，共{}行，{}批，耗时{}ms，速度{}行/秒",
+                bookId, totalRows, batchCount, writeNanos / 1_000_000, String.format("%.1f", getRowsPerSecond()));
+    }
+}
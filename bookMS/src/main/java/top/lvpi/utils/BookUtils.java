@@ -18,8 +18,10 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
@@ -40,6 +42,10 @@ public class BookUtils {
     private final List<String> pcWords;
     private final List<String> UAList;
 
+    // OPAC服务地址，可指向本地模拟服务进行调试
+    @Value("${opac.base-url:http://opac.nlc.cn}")
+    private String opacBaseUrl;
+
     public BookUtils() {
         // 使用InputStream读取资源文件
         try {
@@ -70,20 +76,50 @@ public class BookUtils {
 
     //根据isbn查询图书信息
     public OpacBookInfo getBookInfoByISBN(String isbn) throws IOException {
+        try {
+            return fetchBookInfo(isbn);
+        } catch (OpacUnavailableException e) {
+            log.info(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 根据isbn查询图书信息，区分"没有记录"和"服务暂不可用"
+     *
+     * @return 图书信息，OPAC中没有该ISBN的记录时返回null
+     * @throws OpacUnavailableException 请求失败或返回无法识别的页面，可稍后重试
+     * @throws IOException              网络异常
+     */
+    public OpacBookInfo fetchBookInfo(String isbn) throws IOException {
+        return fetchBookInfo(isbn, null);
+    }
+
+    /**
+     * 根据isbn查询图书信息，同时把OPAC返回的原始页面交给htmlConsumer
+     *
+     * @param htmlConsumer 原始页面消费者，可为null
+     */
+    public OpacBookInfo fetchBookInfo(String isbn, Consumer<String> htmlConsumer) throws IOException {
         System.out.println(isbn);
 
         //1.从服务器获取isbn数据
         Request request = new Request.Builder()
-                .url("http://opac.nlc.cn/F?func=find-b&find_code=ISB&request="+isbn)
+                .url(opacBaseUrl + "/F?func=find-b&find_code=ISB&request="+isbn)
                 .method("GET", null)
                 .addHeader("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.7")
                 .addHeader("Accept-Language", "en,zh-CN;q=0.9,zh-TW;q=0.8,zh;q=0.7,en-US;q=0.6")
-                .addHeader("Referer", "http://opac.nlc.cn")
+                .addHeader("Referer", opacBaseUrl)
                 .addHeader("User-Agent", UAList.get(RandomUtil.randomInt(0,1000)))
                 .build();
-        Response response = client.newCall(request).execute();
-        if (response.isSuccessful()) {
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new OpacUnavailableException("OPAC请求失败，状态码：" + response.code());
+            }
             String html = response.body().string();
+            if (htmlConsumer != null) {
+                htmlConsumer.accept(html);
+            }
             Document document = Jsoup.parse(html);
             Element tbody = document.body().getElementById("td");
             OpacBookInfo opacBook = new OpacBookInfo();
@@ -152,13 +188,22 @@ public class BookUtils {
                 if(document.html().contains("数据库里没有这条请求记录")){
                     log.info("数据库里没有这条请求记录.");
                 }else {
-                    log.info("未知错误！");
+                    // 通常是访问过于频繁时返回的提示页
+                    throw new OpacUnavailableException("OPAC返回无法识别的页面，ISBN：" + isbn);
                 }
             }
-        }else {
-            log.info("请求失败");
         }
         return null;
     }
 
+    /**
+     * OPAC服务暂时不可用，与"没有记录"不同，可以稍后重试
+     */
+    public static class OpacUnavailableException extends IOException {
+
+        public OpacUnavailableException(String message) {
+            super(message);
+        }
+    }
+
 }
@@ -1,11 +1,14 @@
 package top.lvpi.utils;
 
+import org.apache.commons.io.output.StringBuilderWriter;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * @ClassName: CustomPDFTextStripper
@@ -15,91 +18,248 @@ import java.io.Writer;
  * @Version 1.0
  */
 public class CustomPDFTextStripper extends PDFTextStripper {
+
+    /**
+     * 常见标题序号前缀：1. 1、 1) （一） 一  第一 一、 (一)、 (1) ①-⑨
+     */
+    private static final Pattern HEADING_PREFIX = Pattern.compile(
+            "\\d+\\.|\\d+、|\\d+\\)|（[一二三四五六七八九十]）|[一二三四五六七八九十] |第([一二三四五六七八九十])|[一二三四五六七八九十]、|\\([一二三四五六七八九十]\\)、|\\(\\d+\\)|①|②|③|④|⑤|⑥|⑦|⑧|⑨");
+
+    /**
+     * 段落结束符号
+     */
+    private static final String PARAGRAPH_END_CHARS = "。！：:;；①②③④⑤⑥⑦⑧⑨";
+
+    /**
+     * 全角空白（EM SPACE），合并行时与空白字符一起删除
+     */
+    private static final char EM_SPACE = '\u2003';
+
     public CustomPDFTextStripper() throws IOException {
     }
 
     @Override
     public void writeText(PDDocument doc, Writer outputStream) throws IOException {
-        // 使用StringWriter来收集提取的文本
-        StringWriter writer = new StringWriter();
-
-        // 调用父类的writeText方法，将内容写入StringWriter
+        // 使用StringBuilderWriter收集提取的文本，直接基于内部缓冲区按下标处理，不再拆分为行字符串
+        StringBuilderWriter writer = new StringBuilderWriter();
         super.writeText(doc, writer);
+        StringBuilder text = writer.getBuilder();
 
-        // 获取从StringWriter中提取的文本
-        String extractedText = writer.toString();
-        String[] split = extractedText.split("\\n");
-
-        int totalLength = 0;
-        int count = 0;
-
-        // 计算每行的字数
-        int[] lineLengths = new int[split.length];
-        for (int i = 0; i < split.length; i++) {
-            lineLengths[i] = split[i].replaceAll("\\s", "").length(); // 移除空白字符
+        // 第一遍扫描：记录每行起始位置，并统计每行的非空白字数
+        int textLength = text.length();
+        int[] lineStarts = new int[64];
+        int[] lineLengths = new int[64];
+        int lineCount = 0;
+        int lastNonEmptyLine = -1;
+        boolean hasLineBreak = false;
+        int lineStart = 0;
+        int nonWhitespace = 0;
+        for (int i = 0; i <= textLength; i++) {
+            char c = i < textLength ? text.charAt(i) : '\n';
+            if (c == '\n') {
+                if (i < textLength) {
+                    hasLineBreak = true;
+                }
+                if (lineCount == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                    lineLengths = Arrays.copyOf(lineLengths, lineCount * 2);
+                }
+                lineStarts[lineCount] = lineStart;
+                lineLengths[lineCount] = nonWhitespace;
+                if (i > lineStart) {
+                    lastNonEmptyLine = lineCount;
+                }
+                lineCount++;
+                lineStart = i + 1;
+                nonWhitespace = 0;
+            } else if (!isWhitespace(c)) {
+                nonWhitespace++;
+            }
+        }
+        // 与 String.split("\\n") 保持一致：丢弃末尾的空行，没有换行符时整段文本视为一行
+        int lines = hasLineBreak ? lastNonEmptyLine + 1 : 1;
+        if (lines == 0) {
+            return;
         }
 
         // 计算平均字数
-        int sum = 0;
-        for (int length : lineLengths) {
-            sum += length;
+        long sum = 0;
+        for (int i = 0; i < lines; i++) {
+            sum += lineLengths[i];
         }
-        double averageLength = (double) sum / split.length;
+        double averageLength = (double) sum / lines;
         // 过滤满行并计算平均字数
-        for (int length : lineLengths) {
-            if (length >= averageLength) { // 假设长度大于等于平均长度的为满行
-                totalLength += length;
+        long totalLength = 0;
+        int count = 0;
+        for (int i = 0; i < lines; i++) {
+            if (lineLengths[i] >= averageLength) { // 假设长度大于等于平均长度的为满行
+                totalLength += lineLengths[i];
                 count++;
             }
         }
-        int fullLineAverageLength = totalLength / count;
-//        System.out.println("Average length of full lines: " + fullLineAverageLength);
-        //用于储存处理后是行数据
-        StringBuilder dealContent = new StringBuilder();
-        //遍历处理行数据
-        for (String item: split){
-            if (item.trim().matches("^(\\d+\\.|\\d+、|\\d+\\)|（[一二三四五六七八九十]）|[一二三四五六七八九十] |第([一二三四五六七八九十])|[一二三四五六七八九十]、|\\([一二三四五六七八九十]\\)、|\\(\\d+\\)|①|②|③|④|⑤|⑥|⑦|⑧|⑨).*") && item.replaceAll("\\s", "").length() < fullLineAverageLength-2){
+        int fullLineAverageLength = (int) (totalLength / count);
+
+        // 第二遍扫描：逐行处理并直接写出，避免拼接整篇结果
+        LineOutput out = new LineOutput(outputStream);
+        Matcher heading = HEADING_PREFIX.matcher(text);
+        for (int i = 0; i < lines; i++) {
+            int start = lineStarts[i];
+            int end = i + 1 < lineCount ? lineStarts[i + 1] - 1 : textLength;
+            int length = lineLengths[i];
+
+            // trim() 后的区间
+            int trimStart = start;
+            int trimEnd = end;
+            while (trimStart < trimEnd && text.charAt(trimStart) <= ' ') {
+                trimStart++;
+            }
+            while (trimEnd > trimStart && text.charAt(trimEnd - 1) <= ' ') {
+                trimEnd--;
+            }
+
+            if (length < fullLineAverageLength - 2
+                    && heading.region(trimStart, trimEnd).lookingAt()
+                    && !containsLineTerminator(text, trimStart, trimEnd)) {
                 //1. 行以常见序号开头的，且行字数未达到平均最大行字数的，视为标题,则换行
                 //先判断前一个item是否以换行符结尾，如果不是则加上
-                if (dealContent.length()>0 && !dealContent.subSequence(dealContent.length() - 1, dealContent.length()).equals("\n")){
-                    dealContent.append("\n");
-                }
-                dealContent.append(item.trim()).append("\n");
-            }else if (item.replaceAll(" ", "").trim().matches("(^①|^②|^③|^④|^⑤|^⑥|^⑦|^⑧|^⑨).*")){
-                //先判断dealContent是否为空，不为空才操作
-                if (dealContent.length()!=0){
-                    //当以圆圈序号开头，直接判断前一个item是否以换行符结尾，如果不是则加上
-                    if (!dealContent.subSequence(dealContent.length() - 1, dealContent.length()).equals("\n")){
-                        dealContent.append("\n");
-                    }
-                }
+                out.ensureLineBreak();
+                out.write(text, trimStart, trimEnd);
+                out.newLine();
+            } else if (startsWithCircledNumber(text, start, end)) {
+                //当以圆圈序号开头，直接判断前一个item是否以换行符结尾，如果不是则加上
+                out.ensureLineBreak();
                 //删除行内空及不可见符号
-                item = item.replaceAll("\\s", "").replaceAll(" ", "");
-                dealContent.append(item.trim());
-            }else if (item.trim().matches(".*[。！：:;；①②③④⑤⑥⑦⑧⑨]$")&& item.replaceAll("\\s", "").length() < fullLineAverageLength){
+                out.writeCompact(text, start, end);
+            } else if (length < fullLineAverageLength
+                    && trimEnd > trimStart
+                    && PARAGRAPH_END_CHARS.indexOf(text.charAt(trimEnd - 1)) >= 0
+                    && !containsLineTerminator(text, trimStart, trimEnd)) {
                 //2. 以。！：:;；①②③④⑤⑥⑦⑧⑨结尾，未填满整行的，直接视为段落，则换行
-                dealContent.append(item.trim()).append("\n");
-            }else {
+                out.write(text, trimStart, trimEnd);
+                out.newLine();
+            } else {
                 //3. 其余全部换行都均进行合并不换行
                 //删除行内空及不可见符号
-                item = item.replaceAll("\\s", "").replaceAll(" ", "");
-                dealContent.append(item.trim());
+                out.writeCompact(text, start, end);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * 与正则 \s 一致的空白字符判断
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * 正则中 . 不匹配的行终止符
+     */
+    private static boolean containsLineTerminator(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\r' || c == '\n' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 删除全角空白并trim后是否以①-⑨开头
+     */
+    private static boolean startsWithCircledNumber(CharSequence text, int start, int end) {
+        int first = start;
+        while (first < end && (text.charAt(first) == EM_SPACE || text.charAt(first) <= ' ')) {
+            first++;
+        }
+        if (first == end || text.charAt(first) < '①' || text.charAt(first) > '⑨') {
+            return false;
+        }
+        int last = end;
+        while (last > first && (text.charAt(last - 1) == EM_SPACE || text.charAt(last - 1) <= ' ')) {
+            last--;
+        }
+        return !containsLineTerminator(text, first, last);
+    }
+
+    /**
+     * 行输出缓冲，复用同一个字符数组并记录最后写出的字符
+     */
+    private static final class LineOutput {
+
+        private final Writer writer;
+
+        private final char[] buffer = new char[256];
+
+        private int size = 0;
+
+        private boolean empty = true;
+
+        private char lastChar;
+
+        private LineOutput(Writer writer) {
+            this.writer = writer;
+        }
+
+        void ensureLineBreak() throws IOException {
+            if (!empty && lastChar != '\n') {
+                newLine();
+            }
+        }
+
+        void newLine() throws IOException {
+            append('\n');
+        }
+
+        void write(CharSequence text, int start, int end) throws IOException {
+            for (int i = start; i < end; i++) {
+                append(text.charAt(i));
+            }
+        }
+
+        /**
+         * 删除空白字符及全角空白后，再去掉首尾的控制字符写出
+         */
+        void writeCompact(CharSequence text, int start, int end) throws IOException {
+            int first = -1;
+            int last = -1;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c > ' ' && c != EM_SPACE) {
+                    if (first < 0) {
+                        first = i;
+                    }
+                    last = i;
+                }
+            }
+            if (first < 0) {
+                return;
+            }
+            for (int i = first; i <= last; i++) {
+                char c = text.charAt(i);
+                if (!isWhitespace(c) && c != EM_SPACE) {
+                    append(c);
+                }
+            }
+        }
+
+        private void append(char c) throws IOException {
+            if (size == buffer.length) {
+                writer.write(buffer, 0, size);
+                size = 0;
+            }
+            buffer[size++] = c;
+            lastChar = c;
+            empty = false;
+        }
+
+        void flush() throws IOException {
+            if (size > 0) {
+                writer.write(buffer, 0, size);
+                size = 0;
             }
         }
-        outputStream.write(dealContent.toString());
     }
-//
-//    // 清理文本中的换行符
-//    private String cleanText(String text) {
-//        // 1. 删除段落内部的无意义换行符
-//        text = text.replaceAll("(?<=\\S)\n(?=\\S)", " ");  // 连续非空字符的换行符替换为空格
-//
-//        // 2. 替换多个连续的换行符为单个换行符
-//        text = text.replaceAll("\n+", "\n");  // 将多个连续的换行符合并为一个
-//
-//        // 3. 去除空白行
-//        text = text.replaceAll("(?m)^[ \t]*\r?\n", "");
-//
-//        return text;
-//    }
 }
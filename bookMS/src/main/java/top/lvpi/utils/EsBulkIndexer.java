@@ -0,0 +1,214 @@
+package top.lvpi.utils;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import lombok.extern.slf4j.Slf4j;
+import top.lvpi.model.dto.es.BulkIndexResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Elasticsearch 分块批量索引器
+ * <p>
+ * 基于 ElasticsearchClient 的 BulkIngester：单个 bulk 请求同时受文档数和字节数限制，
+ * 在途请求数有上限，达到上限时 add 会阻塞调用方形成反压。
+ * 可重试的失败条目（429/502/503/504 或整个请求异常）在本轮结束后按指数退避重新提交，
+ * 超过最大重试次数仍失败的条目连同原因返回给调用方。
+ */
+@Slf4j
+public class EsBulkIndexer {
+
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(429, 502, 503, 504);
+
+    private final ElasticsearchClient esClient;
+
+    private final int maxOperations;
+
+    private final long maxSizeBytes;
+
+    private final int maxConcurrentRequests;
+
+    private final int maxRetries;
+
+    private final long initialBackoffMillis;
+
+    public EsBulkIndexer(ElasticsearchClient esClient, int maxOperations, long maxSizeBytes,
+                         int maxConcurrentRequests, int maxRetries, long initialBackoffMillis) {
+        this.esClient = esClient;
+        this.maxOperations = Math.max(1, maxOperations);
+        this.maxSizeBytes = Math.max(1, maxSizeBytes);
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialBackoffMillis = Math.max(0, initialBackoffMillis);
+    }
+
+    /**
+     * 打开一次批量索引会话
+     *
+     * @param index          索引名（或别名）
+     * @param idExtractor    文档ID提取函数
+     * @param documentMapper 文档转换函数，返回实际写入ES的文档内容
+     * @return 批量索引会话，使用完毕后调用 {@link Session#finish()} 获取结果
+     */
+    public <T> Session<T> openSession(String index, Function<T, String> idExtractor, Function<T, Object> documentMapper) {
+        return new Session<>(index, idExtractor, documentMapper);
+    }
+
+    /**
+     * 批量索引会话，非线程安全，应在单个线程中调用 add
+     */
+    public class Session<T> {
+
+        private final String index;
+
+        private final Function<T, String> idExtractor;
+
+        private final Function<T, Object> documentMapper;
+
+        private final AtomicLong succeeded = new AtomicLong();
+
+        private final Queue<Pending<T>> retryQueue = new ConcurrentLinkedQueue<>();
+
+        private final Queue<BulkIndexResult.Failure> failures = new ConcurrentLinkedQueue<>();
+
+        private BulkIngester<T> ingester;
+
+        private long total = 0;
+
+        private Session(String index, Function<T, String> idExtractor, Function<T, Object> documentMapper) {
+            this.index = index;
+            this.idExtractor = idExtractor;
+            this.documentMapper = documentMapper;
+            this.ingester = newIngester();
+        }
+
+        /**
+         * 添加一个待索引文档，在途请求达到上限时阻塞
+         */
+        public void add(T document) {
+            total++;
+            submit(ingester, document);
+        }
+
+        /**
+         * 提交剩余文档，等待所有请求完成并按退避策略重试失败条目
+         *
+         * @return 批量索引结果
+         */
+        public BulkIndexResult finish() {
+            ingester.close();
+
+            int round = 0;
+            while (!retryQueue.isEmpty() && round < maxRetries) {
+                round++;
+                long backoff = initialBackoffMillis << (round - 1);
+                log.warn("索引{}有{}个文档写入失败，{}ms后进行第{}次重试", index, retryQueue.size(), backoff, round);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                List<Pending<T>> batch = new ArrayList<>();
+                Pending<T> pending;
+                while ((pending = retryQueue.poll()) != null) {
+                    batch.add(pending);
+                }
+                ingester = newIngester();
+                for (Pending<T> item : batch) {
+                    submit(ingester, item.document);
+                }
+                ingester.close();
+            }
+
+            // 重试用尽后仍失败的条目
+            Pending<T> pending;
+            while ((pending = retryQueue.poll()) != null) {
+                failures.add(new BulkIndexResult.Failure(idExtractor.apply(pending.document), pending.status, pending.reason));
+            }
+
+            BulkIndexResult result = new BulkIndexResult();
+            result.setTotal(total);
+            result.setSucceeded(succeeded.get());
+            result.setRetryRounds(round);
+            result.setFailures(new ArrayList<>(failures));
+            if (result.hasFailures()) {
+                log.error("索引{}批量写入完成，共{}个文档，成功{}个，失败{}个", index, total, result.getSucceeded(), failures.size());
+            } else {
+                log.info("索引{}批量写入完成，共{}个文档，重试{}轮", index, total, round);
+            }
+            return result;
+        }
+
+        private void submit(BulkIngester<T> target, T document) {
+            String id = idExtractor.apply(document);
+            Object source = documentMapper.apply(document);
+            target.add(op -> op.index(idx -> idx.index(index).id(id).document(source)), document);
+        }
+
+        private BulkIngester<T> newIngester() {
+            return BulkIngester.of(b -> b
+                    .client(esClient)
+                    .maxOperations(maxOperations)
+                    .maxSize(maxSizeBytes)
+                    .maxConcurrentRequests(maxConcurrentRequests)
+                    .listener(new BulkListener<T>() {
+                        @Override
+                        public void beforeBulk(long executionId, BulkRequest request, List<T> contexts) {
+                        }
+
+                        @Override
+                        public void afterBulk(long executionId, BulkRequest request, List<T> contexts, BulkResponse response) {
+                            List<BulkResponseItem> items = response.items();
+                            for (int i = 0; i < items.size(); i++) {
+                                BulkResponseItem item = items.get(i);
+                                if (item.error() == null) {
+                                    succeeded.incrementAndGet();
+                                    continue;
+                                }
+                                String reason = item.error().reason();
+                                if (RETRYABLE_STATUS.contains(item.status()) && i < contexts.size()) {
+                                    retryQueue.add(new Pending<>(contexts.get(i), item.status(), reason));
+                                } else {
+                                    failures.add(new BulkIndexResult.Failure(item.id(), item.status(), reason));
+                                }
+                            }
+                        }
+
+                        @Override
+                        public void afterBulk(long executionId, BulkRequest request, List<T> contexts, Throwable failure) {
+                            log.error("索引{}的bulk请求{}执行失败，共{}个文档", index, executionId, contexts.size(), failure);
+                            for (T context : contexts) {
+                                retryQueue.add(new Pending<>(context, 0, failure.getMessage()));
+                            }
+                        }
+                    }));
+        }
+    }
+
+    private static final class Pending<T> {
+
+        private final T document;
+
+        private final int status;
+
+        private final String reason;
+
+        private Pending(T document, int status, String reason) {
+            this.document = document;
+            this.status = status;
+            this.reason = reason;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package top.lvpi.utils;
 
 import lombok.extern.slf4j.Slf4j;
+import top.lvpi.common.CoverSize;
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
@@ -10,8 +11,12 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.Map;
 
 @Slf4j
 public class ImageUtils {
@@ -30,32 +35,66 @@ public class ImageUtils {
      */
     public static String optimizeImage(String base64Data) {
         try {
-            // 去除base64头部信息
-            String pureBase64 = removePrefixIfExists(base64Data);
-            
-            // 将base64转换为字节数组
-            byte[] imageBytes = Base64.getDecoder().decode(pureBase64);
-            
+            byte[] imageBytes = decodeBase64(base64Data);
+            byte[] optimized = optimizeImage(imageBytes);
+            if (optimized == imageBytes) {
+                return base64Data;
+            }
+            // 转换回base64
+            return Base64.getEncoder().encodeToString(optimized);
+        } catch (Exception e) {
+            log.error("图片优化失败", e);
+            return base64Data;
+        }
+    }
+
+    /**
+     * 优化图片：缩放到最大尺寸内并压缩为JPEG
+     * @param imageBytes 原始图片数据
+     * @return JPEG图片数据，无法处理时原样返回
+     */
+    public static byte[] optimizeImage(byte[] imageBytes) {
+        try {
             // 读取图片
             BufferedImage originalImage = ImageIO.read(new ByteArrayInputStream(imageBytes));
             if (originalImage == null) {
                 log.error("无法读取图片数据");
-                return base64Data;
+                return imageBytes;
             }
             
             // 调整图片尺寸
             BufferedImage resizedImage = resizeImage(originalImage);
             
             // 压缩图片质量
-            byte[] compressedImageBytes = compressImage(resizedImage);
-            
-            // 转换回base64
-            return Base64.getEncoder().encodeToString(compressedImageBytes);
-            
+            return compressImage(resizedImage);
         } catch (Exception e) {
             log.error("图片优化失败", e);
-            return base64Data;
+            return imageBytes;
+        }
+    }
+
+    /**
+     * 将Base64图片数据（可带data:image/...;base64,头部）解码为字节数组
+     */
+    public static byte[] decodeBase64(String base64Data) {
+        return Base64.getDecoder().decode(removePrefixIfExists(base64Data).trim());
+    }
+
+    /**
+     * 根据文件头判断图片的MIME类型
+     */
+    public static String detectContentType(byte[] imageBytes) {
+        if (imageBytes.length >= 8 && (imageBytes[0] & 0xFF) == 0x89 && imageBytes[1] == 'P' && imageBytes[2] == 'N' && imageBytes[3] == 'G') {
+            return "image/png";
+        }
+        if (imageBytes.length >= 6 && imageBytes[0] == 'G' && imageBytes[1] == 'I' && imageBytes[2] == 'F') {
+            return "image/gif";
+        }
+        if (imageBytes.length >= 12 && imageBytes[0] == 'R' && imageBytes[1] == 'I' && imageBytes[2] == 'F' && imageBytes[3] == 'F'
+                && imageBytes[8] == 'W' && imageBytes[9] == 'E' && imageBytes[10] == 'B' && imageBytes[11] == 'P') {
+            return "image/webp";
         }
+        return "image/jpeg";
     }
     
     /**
@@ -72,30 +111,66 @@ public class ImageUtils {
      * 调整图片尺寸
      */
     private static BufferedImage resizeImage(BufferedImage originalImage) {
-        int originalWidth = originalImage.getWidth();
-        int originalHeight = originalImage.getHeight();
-        
-        // 计算新的尺寸
-        int newWidth = originalWidth;
-        int newHeight = originalHeight;
-        
-        // 如果图片超过最大尺寸，按比例缩小
-        if (originalWidth > MAX_WIDTH || originalHeight > MAX_HEIGHT) {
-            double widthRatio = (double) MAX_WIDTH / originalWidth;
-            double heightRatio = (double) MAX_HEIGHT / originalHeight;
-            double ratio = Math.min(widthRatio, heightRatio);
-            
-            newWidth = (int) (originalWidth * ratio);
-            newHeight = (int) (originalHeight * ratio);
-        }
+        return scaleToFit(originalImage, Math.min(MAX_WIDTH, MAX_HEIGHT));
+    }
+
+    /**
+     * 按最长边等比缩小并转为RGB图片，不放大
+     * <p>
+     * 缩小超过一半时逐级减半，单次双线性插值在大比例缩小时会丢失细节
+     * @param source 原图
+     * @param maxEdge 最长边（像素）
+     * @return 缩放后的图片，无需处理时返回原图
+     */
+    public static BufferedImage scaleToFit(BufferedImage source, int maxEdge) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) (width * ratio));
+        int targetHeight = Math.max(1, (int) (height * ratio));
         
         // 如果尺寸没有变化，直接返回原图
-        if (newWidth == originalWidth && newHeight == originalHeight) {
-            return originalImage;
+        if (targetWidth == width && targetHeight == height && source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
         }
-        
+
+        BufferedImage current = source;
+        int currentWidth = width;
+        int currentHeight = height;
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            current = drawScaled(current, currentWidth, currentHeight);
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    /**
+     * 生成各尺寸的封面JPEG，从大到小逐级缩放，每一级以上一级为源
+     * <p>
+     * 原图不大于默认尺寸时不生成更大的尺寸，避免放大
+     * @param source 原图
+     * @return 各尺寸的JPEG数据
+     */
+    public static Map<CoverSize, byte[]> buildCoverLadder(BufferedImage source) throws Exception {
+        Map<CoverSize, byte[]> ladder = new EnumMap<>(CoverSize.class);
+        int sourceEdge = Math.max(source.getWidth(), source.getHeight());
+        CoverSize[] sizes = CoverSize.values();
+        Arrays.sort(sizes, Comparator.comparingInt(CoverSize::getMaxEdge).reversed());
+        BufferedImage current = source;
+        for (CoverSize size : sizes) {
+            if (size.getMaxEdge() > CoverSize.DETAIL.getMaxEdge() && sourceEdge <= CoverSize.DETAIL.getMaxEdge()) {
+                continue;
+            }
+            current = scaleToFit(current, size.getMaxEdge());
+            ladder.put(size, compressImage(current));
+        }
+        return ladder;
+    }
+
+    private static BufferedImage drawScaled(BufferedImage image, int width, int height) {
         // 创建新图片
-        BufferedImage resizedImage = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+        BufferedImage resizedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         Graphics2D g = resizedImage.createGraphics();
         
         // 设置图片平滑度
@@ -103,8 +178,11 @@ public class ImageUtils {
         g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         
+        // 透明背景填充为白色，JPEG不支持透明通道
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
         // 绘制图片
-        g.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
+        g.drawImage(image, 0, 0, width, height, null);
         g.dispose();
         
         return resizedImage;
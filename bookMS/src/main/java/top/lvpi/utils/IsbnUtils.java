@@ -0,0 +1,53 @@
+package top.lvpi.utils;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * ISBN工具类
+ */
+public class IsbnUtils {
+
+    private IsbnUtils() {
+    }
+
+    /**
+     * 规范化为13位ISBN：去掉连字符、空格等分隔符，10位ISBN加978前缀并重新计算校验位。
+     * 无法识别的输入只去掉分隔符并转为大写后返回，空输入返回null
+     *
+     * @param isbn 原始ISBN
+     * @return 规范化后的ISBN
+     */
+    public static String toIsbn13(String isbn) {
+        if (StringUtils.isBlank(isbn)) {
+            return null;
+        }
+        StringBuilder cleaned = new StringBuilder(isbn.length());
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (Character.isDigit(c) || c == 'X' || c == 'x') {
+                cleaned.append(Character.toUpperCase(c));
+            }
+        }
+        String digits = cleaned.toString();
+        if (digits.length() == 13 && StringUtils.isNumeric(digits)) {
+            return digits;
+        }
+        if (digits.length() == 10 && StringUtils.isNumeric(digits.substring(0, 9))) {
+            String body = "978" + digits.substring(0, 9);
+            return body + checkDigit13(body);
+        }
+        return digits.isEmpty() ? isbn.trim() : digits;
+    }
+
+    /**
+     * 计算13位ISBN的校验位，奇数位权重1，偶数位权重3
+     */
+    private static int checkDigit13(String first12) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int digit = first12.charAt(i) - '0';
+            sum += (i % 2 == 0) ? digit : digit * 3;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -3,6 +3,7 @@ package top.lvpi.utils;
 import top.lvpi.common.BusinessException;
 import top.lvpi.common.ErrorCode;
 import top.lvpi.model.dto.file.FileUploadResult;
+import top.lvpi.service.FileMd5IndexService;
 import io.minio.*;
 import io.minio.http.Method;
 import io.minio.messages.Item;
@@ -23,12 +24,15 @@ public class MinioUtils {
 
     private final MinioClient minioClient;
     private final String bucketName;
+    private final FileMd5IndexService fileMd5IndexService;
     private int expiry; // 链接过期时间（秒）
 
-    public MinioUtils(MinioClient minioClient, @Value("${minio.bucketName}") String bucketName, @Value("${minio.expiry}") int expiry) {
+    public MinioUtils(MinioClient minioClient, @Value("${minio.bucketName}") String bucketName, @Value("${minio.expiry}") int expiry,
+                      FileMd5IndexService fileMd5IndexService) {
         this.minioClient = minioClient;
         this.bucketName = bucketName;
         this.expiry = expiry;
+        this.fileMd5IndexService = fileMd5IndexService;
     }
 
     /**
@@ -46,7 +50,7 @@ public class MinioUtils {
             log.info("文件MD5: {}", md5);
 
             // 查找是否已存在相同文件
-            String existingFileName = findExistingFile(md5);
+            String existingFileName = fileMd5IndexService.findFileName(md5);
             if (existingFileName != null) {
                 log.info("找到已存在的文件: {}", existingFileName);
                 return new FileUploadResult(existingFileName, 0);
@@ -69,8 +73,9 @@ public class MinioUtils {
                 .userMetadata(userMetadata)
                 .build());
             
-            log.info("文件上传成功: {}", fileName);
-            return new FileUploadResult(fileName, 0);
+            String canonicalName = registerUploaded(md5, fileName, file.length());
+            log.info("文件上传成功: {}", canonicalName);
+            return new FileUploadResult(canonicalName, 0);
         } catch (Exception e) {
             log.error("文件上传失败", e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件上传失败：" + e.getMessage());
@@ -89,35 +94,22 @@ public class MinioUtils {
     }
 
     /**
-     * 根据MD5值查找已存在的文件
+     * 登记新上传的文件，相同内容已被并发上传登记时删除本次上传的对象
+     * @return 该内容最终对应的文件名
      */
-    private String findExistingFile(String md5) {
-        try {
-            Iterable<Result<Item>> results = minioClient.listObjects(
-                ListObjectsArgs.builder()
+    private String registerUploaded(String md5, String fileName, long fileSize) {
+        String canonicalName = fileMd5IndexService.register(md5, fileName, fileSize);
+        if (!canonicalName.equals(fileName)) {
+            try {
+                minioClient.removeObject(RemoveObjectArgs.builder()
                     .bucket(bucketName)
-                    .prefix("")
-                    .recursive(true)
-                    .build()
-            );
-
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                Map<String, String> userMetadata = minioClient.statObject(
-                    StatObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(item.objectName())
-                        .build()
-                ).userMetadata();
-                
-                if (userMetadata != null && md5.equals(userMetadata.get("md5"))) {
-                    return item.objectName();
-                }
+                    .object(fileName)
+                    .build());
+            } catch (Exception e) {
+                log.warn("删除重复上传的文件失败: {}", fileName, e);
             }
-        } catch (Exception e) {
-            log.error("查找已存在文件失败", e);
         }
-        return null;
+        return canonicalName;
     }
 
     /**
@@ -208,6 +200,12 @@ public class MinioUtils {
             log.error("文件删除失败: {}", fileName, e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件删除失败：" + e.getMessage());
         }
+        try {
+            // 对象已不存在，之后相同内容的上传不能再复用它
+            fileMd5IndexService.remove(fileName);
+        } catch (Exception e) {
+            log.warn("删除文件{}的MD5索引失败", fileName, e);
+        }
     }
 
     /**
@@ -3,17 +3,22 @@ package top.lvpi.utils;
 import top.lvpi.model.entity.BookSection;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.List;
 
 public class PDFUtils {
 
+    // 渲染封面的DPI范围
+    private static final float MIN_COVER_DPI = 36f;
+    private static final float MAX_COVER_DPI = 150f;
+
     /**
      * 提取PDF文本到章节列表
      *
@@ -23,31 +28,59 @@ public class PDFUtils {
      * @throws IOException IO异常
      */
     public static List<BookSection> extractTextToSections(InputStream pdfStream, Long bookId, String title) throws IOException {
-        List<BookSection> sections = new ArrayList<>();
-        PDDocument document = PDDocument.load(pdfStream);
-        PDFTextStripper stripper = new PDFTextStripper();
-
-        int totalPages = document.getNumberOfPages();
-        for (int i = 1; i <= totalPages; i++) {
-            stripper.setStartPage(i);
-            stripper.setEndPage(i);
-            String pageText = stripper.getText(document);
+        try (PDDocument document = PDDocument.load(pdfStream)) {
+            // 合并排版产生的断行，保留标题和段落换行
+            PDFTextStripper stripper = new CustomPDFTextStripper();
+            return extractPageRange(document, stripper, 1, document.getNumberOfPages(), bookId, title);
+        }
+    }
 
-            // 如果内容为空、null、空字符串、空格或只有换行符，则跳过
-            if (pageText == null || pageText.isEmpty() || pageText.trim().isEmpty() || pageText.trim().equals("\n")|| pageText.trim().equals("\r")) {
-                continue;
+    /**
+     * 提取指定页码区间的文本到章节列表，空白页会被跳过
+     *
+     * @param document  已打开的PDF文档
+     * @param stripper  文本提取器，同一时刻只能被一个线程使用
+     * @param startPage 起始页码（从1开始，包含）
+     * @param endPage   结束页码（包含）
+     * @param bookId    图书ID
+     * @param title     文档名称
+     * @return 按页码排序的章节列表
+     * @throws IOException IO异常
+     */
+    public static List<BookSection> extractPageRange(PDDocument document, PDFTextStripper stripper,
+                                                     int startPage, int endPage, Long bookId, String title) throws IOException {
+        List<BookSection> sections = new ArrayList<>();
+        for (int i = startPage; i <= endPage; i++) {
+            BookSection section = extractPage(document, stripper, i, bookId, title);
+            if (section != null) {
+                sections.add(section);
             }
+        }
+        return sections;
+    }
+
+    /**
+     * 提取单页文本
+     *
+     * @return 章节信息，页面内容为空时返回null
+     */
+    public static BookSection extractPage(PDDocument document, PDFTextStripper stripper,
+                                          int pageNum, Long bookId, String title) throws IOException {
+        stripper.setStartPage(pageNum);
+        stripper.setEndPage(pageNum);
+        String pageText = stripper.getText(document);
 
-            BookSection section = new BookSection();
-            section.setBookId(bookId);
-            section.setPageNum(i);
-            section.setContent(pageText);
-            section.setTitle(title);
-            sections.add(section);
+        // 如果内容为空、null、空字符串、空格或只有换行符，则跳过
+        if (pageText == null || pageText.isEmpty() || pageText.trim().isEmpty() || pageText.trim().equals("\n")|| pageText.trim().equals("\r")) {
+            return null;
         }
 
-        document.close();
-        return sections;
+        BookSection section = new BookSection();
+        section.setBookId(bookId);
+        section.setPageNum(pageNum);
+        section.setContent(pageText);
+        section.setTitle(title);
+        return section;
     }
 
     /**
@@ -65,28 +98,22 @@ public class PDFUtils {
     }
 
     /**
-     * 导出PDF首页为图片
+     * 渲染PDF首页作为封面
+     * <p>
+     * 按页面尺寸计算DPI，使渲染结果的最长边接近目标尺寸，只渲染一次，各尺寸的封面由该图缩放得到
      *
      * @param pdfStream PDF文件输入流
-     * @return Base64编码的图片字符串
+     * @param maxEdge   目标最长边（像素）
+     * @return 首页图片
      * @throws IOException IO异常
      */
-    public static String exportPageToImage(InputStream pdfStream) throws IOException {
-        PDDocument document = PDDocument.load(pdfStream);
-        PDFRenderer renderer = new PDFRenderer(document);
-        
-        // 渲染第一页
-        BufferedImage image = renderer.renderImageWithDPI(0, 150); // 使用150 DPI以获得较好的图像质量
-        
-        // 将图像转换为Base64字符串
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(image, "png", baos);
-        String base64Image = Base64.getEncoder().encodeToString(baos.toByteArray());
-        
-        document.close();
-        baos.close();
-        
-        return base64Image;
+    public static BufferedImage renderCover(InputStream pdfStream, int maxEdge) throws IOException {
+        try (PDDocument document = PDDocument.load(pdfStream, MemoryUsageSetting.setupTempFileOnly())) {
+            PDRectangle box = document.getPage(0).getCropBox();
+            float longEdgeInches = Math.max(box.getWidth(), box.getHeight()) / 72f;
+            float dpi = Math.max(MIN_COVER_DPI, Math.min(MAX_COVER_DPI, maxEdge / longEdgeInches));
+            return new PDFRenderer(document).renderImageWithDPI(0, dpi, ImageType.RGB);
+        }
     }
 
 }
@@ -0,0 +1,162 @@
+package top.lvpi.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import top.lvpi.model.entity.BookSection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * PDF并行文本提取引擎
+ * <p>
+ * 将文档按页码区间切分后提交到有界线程池，每个任务独立打开文档并使用自己的{@link CustomPDFTextStripper}，
+ * 最终按区间顺序合并结果，输出与{@link PDFUtils#extractTextToSections}一致的按页排序章节列表。
+ * 队列满时由提交线程自行执行任务，从而对调用方形成反压。
+ * <p>
+ * 文档统一以"内存+临时文件"混合模式打开，超出内存上限的部分写入scratch文件；
+ * 流式提取时同时在途的区间数不超过线程数，章节按页码顺序逐个交给消费者，堆内存占用不随文档页数增长。
+ */
+@Slf4j
+public class ParallelPdfExtractor {
+
+    private final ThreadPoolExecutor executor;
+
+    private final int parallelism;
+
+    private final int pagesPerRange;
+
+    private final long maxMainMemoryBytes;
+
+    /**
+     * @param parallelism        工作线程数，小于等于0时使用CPU核数
+     * @param pagesPerRange      每个任务处理的页数
+     * @param queueCapacity      等待队列容量
+     * @param maxMainMemoryBytes 每个打开的文档可使用的最大堆内存，超出部分写入临时文件
+     */
+    public ParallelPdfExtractor(int parallelism, int pagesPerRange, int queueCapacity, long maxMainMemoryBytes) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pagesPerRange = Math.max(1, pagesPerRange);
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.executor = new ThreadPoolExecutor(
+                this.parallelism, this.parallelism,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                new CustomizableThreadFactory("pdf-extract-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        log.info("PDF并行提取引擎初始化完成，线程数：{}，每段页数：{}，队列容量：{}",
+                this.parallelism, this.pagesPerRange, queueCapacity);
+    }
+
+    /**
+     * 并行提取PDF文本到章节列表
+     *
+     * @param pdfFile PDF文件（需可随机读取，供多个任务同时打开）
+     * @param bookId  图书ID
+     * @param title   文档名称
+     * @return 按页码排序的章节列表
+     * @throws IOException IO异常
+     */
+    public List<BookSection> extractTextToSections(File pdfFile, Long bookId, String title) throws IOException {
+        List<BookSection> sections = new ArrayList<>();
+        extractTextToSections(pdfFile, bookId, title, sections::add);
+        return sections;
+    }
+
+    /**
+     * 流式提取PDF文本，按页码顺序将章节逐个交给消费者
+     *
+     * @param pdfFile  PDF文件（需可随机读取，供多个任务同时打开）
+     * @param bookId   图书ID
+     * @param title    文档名称
+     * @param consumer 章节消费者，始终在调用线程中按页码顺序被调用
+     * @return PDF总页数
+     * @throws IOException IO异常
+     */
+    public int extractTextToSections(File pdfFile, Long bookId, String title, Consumer<BookSection> consumer) throws IOException {
+        int totalPages;
+        try (PDDocument document = load(pdfFile)) {
+            totalPages = document.getNumberOfPages();
+            // 页数不足一个区间或只有一个线程时，直接在当前线程逐页提取，避免重复打开文档
+            if (totalPages <= pagesPerRange || parallelism == 1) {
+                PDFTextStripper stripper = new CustomPDFTextStripper();
+                for (int i = 1; i <= totalPages; i++) {
+                    BookSection section = PDFUtils.extractPage(document, stripper, i, bookId, title);
+                    if (section != null) {
+                        consumer.accept(section);
+                    }
+                }
+                return totalPages;
+            }
+        }
+
+        log.info("PDF文件{}共{}页，按每段{}页并行提取", pdfFile.getName(), totalPages, pagesPerRange);
+        // 滑动窗口：最多parallelism个区间在途，队首区间完成后立即交给消费者并补充新区间
+        Deque<Future<List<BookSection>>> window = new ArrayDeque<>();
+        int nextStart = 1;
+        try {
+            while (nextStart <= totalPages || !window.isEmpty()) {
+                while (nextStart <= totalPages && window.size() < parallelism) {
+                    int rangeStart = nextStart;
+                    int rangeEnd = Math.min(nextStart + pagesPerRange - 1, totalPages);
+                    window.addLast(executor.submit(() -> extractRange(pdfFile, rangeStart, rangeEnd, bookId, title)));
+                    nextStart = rangeEnd + 1;
+                }
+                for (BookSection section : window.removeFirst().get()) {
+                    consumer.accept(section);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("PDF文本提取被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("PDF文本提取失败: " + cause.getMessage(), cause);
+        } finally {
+            // 正常结束时窗口为空；异常时取消尚未完成的区间
+            cancelAll(window);
+        }
+        return totalPages;
+    }
+
+    /**
+     * 关闭线程池
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<BookSection> extractRange(File pdfFile, int startPage, int endPage, Long bookId, String title) throws IOException {
+        try (PDDocument document = load(pdfFile)) {
+            return PDFUtils.extractPageRange(document, new CustomPDFTextStripper(), startPage, endPage, bookId, title);
+        }
+    }
+
+    private PDDocument load(File pdfFile) throws IOException {
+        return PDDocument.load(pdfFile, MemoryUsageSetting.setupMixed(maxMainMemoryBytes));
+    }
+
+    private void cancelAll(Collection<Future<List<BookSection>>> futures) {
+        for (Future<List<BookSection>> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
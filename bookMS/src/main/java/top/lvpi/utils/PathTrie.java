@@ -0,0 +1,74 @@
+package top.lvpi.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 权限路径前缀树
+ * <p>
+ * 由一组权限路径构建，普通路径要求访问路径完全相同，以 /* 结尾的路径匹配以其前缀（含末尾的 /）开头的所有访问路径，
+ * 如 /api/user/* 匹配 /api/user/list。构建后只读，可被多个线程同时使用，匹配耗时只与访问路径长度有关。
+ */
+public class PathTrie {
+
+    private static final String WILDCARD_SUFFIX = "/*";
+
+    private final Node root = new Node();
+
+    public PathTrie(Iterable<String> permissionPaths) {
+        for (String permissionPath : permissionPaths) {
+            if (permissionPath == null) {
+                continue;
+            }
+            if (permissionPath.endsWith(WILDCARD_SUFFIX)) {
+                // 保留末尾的 /，/api/user/* 不匹配 /api/user
+                insert(permissionPath.substring(0, permissionPath.length() - 1)).prefix = true;
+            } else {
+                insert(permissionPath).exact = true;
+            }
+        }
+    }
+
+    /**
+     * 访问路径是否被某个权限路径覆盖
+     */
+    public boolean matches(String path) {
+        if (path == null) {
+            return false;
+        }
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            if (node.prefix) {
+                return true;
+            }
+            node = node.children.get(path.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.prefix || node.exact;
+    }
+
+    private Node insert(String path) {
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.children.computeIfAbsent(path.charAt(i), c -> new Node());
+        }
+        return node;
+    }
+
+    private static class Node {
+
+        private final Map<Character, Node> children = new HashMap<>();
+
+        /**
+         * 有权限路径与从根到此节点的路径完全相同
+         */
+        private boolean exact;
+
+        /**
+         * 有通配权限路径以从根到此节点的路径为前缀
+         */
+        private boolean prefix;
+    }
+}
@@ -0,0 +1,64 @@
+package top.lvpi.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶限流器
+ * <p>
+ * 以固定速率补充令牌，桶满后不再累积；每次请求取走一个令牌，没有令牌时阻塞到下一个令牌生成。
+ * 桶容量决定允许的突发请求数，补充速率决定长期平均请求速率。线程安全。
+ */
+public class TokenBucket {
+
+    private final long capacity;
+
+    /**
+     * 生成一个令牌所需的纳秒数
+     */
+    private final long nanosPerToken;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    /**
+     * @param permitsPerSecond 每秒补充的令牌数
+     * @param capacity         桶容量，即允许的最大突发请求数
+     */
+    public TokenBucket(double permitsPerSecond, long capacity) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond必须大于0");
+        }
+        this.capacity = Math.max(1, capacity);
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.tokens = this.capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取一个令牌，没有可用令牌时阻塞
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) ((1 - tokens) * nanosPerToken);
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(1, waitNanos));
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + (double) elapsed / nanosPerToken);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -78,7 +78,12 @@ CREATE TABLE IF NOT EXISTS lp_book (
 -- 图书封面img表
 CREATE TABLE IF NOT EXISTS lp_img (
     `id` bigint NOT NULL AUTO_INCREMENT COMMENT '图片ID',
-    `img_data` longtext NOT NULL COMMENT '图片base64数据',
+    `img_data` longtext NULL COMMENT '图片base64数据（旧数据，迁移后为空）',
+    `img_path` varchar(255) DEFAULT NULL COMMENT '图片在MinIO中的对象名称',
+    `content_type` varchar(50) DEFAULT NULL COMMENT '图片MIME类型',
+    `img_etag` varchar(64) DEFAULT NULL COMMENT '图片内容MD5',
+    `img_size` bigint DEFAULT NULL COMMENT '图片大小',
+    `img_variants` varchar(100) DEFAULT NULL COMMENT '除默认尺寸外已生成的封面尺寸，逗号分隔',
     `book_id` bigint DEFAULT NULL COMMENT '图书ID',
     `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `modified_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '修改时间',
@@ -99,7 +104,8 @@ CREATE TABLE IF NOT EXISTS `lp_book_section` (
   `modified_time` datetime NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '修改时间',
   `is_deleted` int NULL DEFAULT 0 COMMENT '是否删除',
   PRIMARY KEY (`id`) USING BTREE,
-  INDEX `idx_book_id`(`book_id` ASC) USING BTREE
+  INDEX `idx_book_id`(`book_id` ASC) USING BTREE,
+  INDEX `idx_modified_time`(`modified_time` ASC) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '图书章节表' ROW_FORMAT = Dynamic;
 
 -- 主题表
@@ -191,9 +197,20 @@ CREATE TABLE IF NOT EXISTS `lp_file` (
   `modified_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   `is_deleted` tinyint NOT NULL DEFAULT '0' COMMENT '逻辑删除（0表示未删除，1表示已删除）',
   PRIMARY KEY (`file_id`) USING BTREE,
-  INDEX `idx_file_name`(`file_name`) USING BTREE
+  INDEX `idx_file_name`(`file_name`) USING BTREE,
+  INDEX `idx_file_md5`(`file_md5`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci ROW_FORMAT=DYNAMIC COMMENT='文件信息表';
 
+-- 文件MD5去重索引表，每个文件内容只对应一个MinIO对象
+CREATE TABLE IF NOT EXISTS `lp_file_md5` (
+  `file_md5` char(32) CHARACTER SET ascii COLLATE ascii_bin NOT NULL COMMENT '文件MD5值',
+  `file_name` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT 'MinIO对象名称',
+  `file_size` bigint DEFAULT NULL COMMENT '文件大小',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`file_md5`) USING BTREE,
+  INDEX `idx_file_name`(`file_name`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='文件MD5去重索引表';
+
 CREATE TABLE IF NOT EXISTS `lp_book_file` (
   `id` bigint NOT NULL AUTO_INCREMENT COMMENT '关联ID',
   `book_id` bigint DEFAULT NULL COMMENT '书籍ID',
@@ -0,0 +1,28 @@
+-- 已有数据库的升级脚本，新部署直接执行 schema.sql 即可
+
+-- 文件MD5去重索引
+ALTER TABLE `lp_file` ADD INDEX `idx_file_md5`(`file_md5`) USING BTREE;
+
+CREATE TABLE IF NOT EXISTS `lp_file_md5` (
+  `file_md5` char(32) CHARACTER SET ascii COLLATE ascii_bin NOT NULL COMMENT '文件MD5值',
+  `file_name` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT 'MinIO对象名称',
+  `file_size` bigint DEFAULT NULL COMMENT '文件大小',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`file_md5`) USING BTREE,
+  INDEX `idx_file_name`(`file_name`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='文件MD5去重索引表';
+
+-- 封面图片改为二进制存放在MinIO，升级后调用 POST /api/book/cover/migrate 迁移旧数据
+ALTER TABLE `lp_img`
+    MODIFY COLUMN `img_data` longtext NULL COMMENT '图片base64数据（旧数据，迁移后为空）',
+    ADD COLUMN `img_path` varchar(255) DEFAULT NULL COMMENT '图片在MinIO中的对象名称' AFTER `img_data`,
+    ADD COLUMN `content_type` varchar(50) DEFAULT NULL COMMENT '图片MIME类型' AFTER `img_path`,
+    ADD COLUMN `img_etag` varchar(64) DEFAULT NULL COMMENT '图片内容MD5' AFTER `content_type`,
+    ADD COLUMN `img_size` bigint DEFAULT NULL COMMENT '图片大小' AFTER `img_etag`;
+
+-- 封面多尺寸
+ALTER TABLE `lp_img`
+    ADD COLUMN `img_variants` varchar(100) DEFAULT NULL COMMENT '除默认尺寸外已生成的封面尺寸，逗号分隔' AFTER `img_size`;
+
+-- 索引重建时按修改时间查找重建期间变化的章节
+ALTER TABLE `lp_book_section` ADD INDEX `idx_modified_time`(`modified_time`) USING BTREE;